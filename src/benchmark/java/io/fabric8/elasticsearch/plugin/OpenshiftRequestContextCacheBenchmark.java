@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.RandomStringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory.OpenshiftRequestContext;
+
+/**
+ * Compares looking up a cached context by the bearer token, as the context
+ * cache did before, with looking it up by its {@link TokenKey}, which digests
+ * the token on every request.  Tokens are OAuth access tokens or service
+ * account tokens, which are JWTs of about a kilobyte.  A key is 32 bytes
+ * whatever the length of the token, where the token costs 40 plus twice its
+ * length
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenshiftRequestContextCacheBenchmark {
+
+    @Param({"10000"})
+    private int entries;
+
+    @Param({"43", "900"})
+    private int tokenLength;
+
+    private String[] tokens;
+    private Cache<String, OpenshiftRequestContext> byToken;
+    private Cache<TokenKey, OpenshiftRequestContext> byKey;
+    private int next;
+
+    @Setup
+    public void setup() {
+        tokens = new String[entries];
+        byToken = CacheBuilder.newBuilder().maximumSize(entries).build();
+        byKey = CacheBuilder.newBuilder().maximumSize(entries).build();
+        for (int i = 0; i < entries; i++) {
+            tokens[i] = RandomStringUtils.randomAlphanumeric(tokenLength);
+            String user = "user" + i;
+            OpenshiftRequestContext context = new OpenshiftRequestContext(user, tokens[i], false, Collections.emptySet(), ".kibana." + user,
+                    KibanaIndexMode.UNIQUE, Collections.emptyList());
+            byToken.put(tokens[i], context);
+            byKey.put(TokenKey.of(tokens[i]), context);
+        }
+    }
+
+    private String nextToken() {
+        next = (next + 1) % entries;
+        return tokens[next];
+    }
+
+    @Benchmark
+    public OpenshiftRequestContext lookupByToken() {
+        return byToken.getIfPresent(nextToken());
+    }
+
+    @Benchmark
+    public OpenshiftRequestContext lookupByKey() {
+        return byKey.getIfPresent(TokenKey.of(nextToken()));
+    }
+}
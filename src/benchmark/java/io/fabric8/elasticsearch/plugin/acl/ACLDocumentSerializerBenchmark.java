@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles;
+
+/**
+ * Compares building the source of the roles document the way it was built
+ * before, as a JSON string wrapped in a map, with the
+ * {@link ACLDocumentSerializer}.  The bytes each allocates are reported by
+ * the gc profiler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ACLDocumentSerializerBenchmark {
+
+    private static final int PROJECTS_PER_ROLE = 5;
+    private static final int PROJECTS = 2000;
+
+    @Param({"1000", "10000", "50000"})
+    private int roles;
+
+    private SearchGuardRoles document;
+    private ACLDocumentSerializer serializer;
+
+    @Setup
+    public void setup() {
+        List<Roles> generated = new ArrayList<>(roles);
+        for (int i = 0; i < roles; i++) {
+            RoleBuilder builder = new RoleBuilder("gen_user_" + i)
+                    .expires(i)
+                    .setClusters(RolesSyncStrategy.USER_ROLE_CLUSTER_ACTIONS);
+            for (int p = 0; p < PROJECTS_PER_ROLE; p++) {
+                String project = "project" + (i + p * 31) % PROJECTS;
+                builder.setActions(project + "?uid?*", RolesSyncStrategy.ALL, RolesSyncStrategy.PROJECT_ROLE_ACTIONS);
+            }
+            generated.add(builder.build());
+        }
+        document = new SearchGuardRoles(1L);
+        document.addAll(generated);
+        serializer = new ACLDocumentSerializer();
+    }
+
+    @Benchmark
+    public XContentBuilder string() throws Exception {
+        Map<String, Object> content = new HashMap<>();
+        content.put(document.getType(), new BytesArray(XContentHelper.toString(document)));
+        return XContentFactory.jsonBuilder().map(content);
+    }
+
+    @Benchmark
+    public XContentBuilder streamed() throws Exception {
+        return serializer.toSource(document);
+    }
+}
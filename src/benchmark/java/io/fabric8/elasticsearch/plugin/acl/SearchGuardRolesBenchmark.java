@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles;
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles.Indices;
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles.Indices.Type;
+
+/**
+ * Compares building generated roles without sharing their parts, as the
+ * roles document was built before roles were interned, with building them
+ * with the {@link RoleBuilder}, and times loading and serializing the roles
+ * document.  That the interned roles share their parts is asserted by
+ * {@link RoleBuilderTest}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SearchGuardRolesBenchmark {
+
+    private static final int PROJECTS_PER_ROLE = 5;
+    private static final int PROJECTS = 2000;
+
+    @Param({"1000", "10000", "50000"})
+    private int roles;
+
+    private Map<String, Object> source;
+    private SearchGuardRoles document;
+
+    @Setup
+    public void setup() {
+        source = source();
+        document = new SearchGuardRoles().load(source);
+    }
+
+    private static String index(int role, int project) {
+        return String.format("project%d?uid%d?*", (role + project * 31) % PROJECTS, (role + project * 31) % PROJECTS);
+    }
+
+    /*
+     * The document as the ConfigurationLoader provides it
+     */
+    private Map<String, Object> source() {
+        Map<String, Object> source = new HashMap<>();
+        for (int i = 0; i < roles; i++) {
+            Map<String, Object> indices = new HashMap<>();
+            for (int p = 0; p < PROJECTS_PER_ROLE; p++) {
+                indices.put(index(i, p), Collections.singletonMap(RolesSyncStrategy.ALL,
+                        new ArrayList<>(Arrays.asList(RolesSyncStrategy.PROJECT_ROLE_ACTIONS))));
+            }
+            Map<String, Object> role = new HashMap<>();
+            role.put("cluster", new ArrayList<>(Arrays.asList(RolesSyncStrategy.USER_ROLE_CLUSTER_ACTIONS)));
+            role.put("indices", indices);
+            role.put("expires", String.valueOf(i));
+            source.put("gen_user_" + i, role);
+        }
+        return source;
+    }
+
+    @Benchmark
+    public List<Roles> buildUnshared() {
+        List<Roles> built = new ArrayList<>(roles);
+        for (int i = 0; i < roles; i++) {
+            Roles role = new Roles("gen_user_" + i);
+            role.setExpires(String.valueOf(i));
+            role.setCluster(new ArrayList<>(Arrays.asList(RolesSyncStrategy.USER_ROLE_CLUSTER_ACTIONS)));
+            List<Indices> indices = new ArrayList<>();
+            for (int p = 0; p < PROJECTS_PER_ROLE; p++) {
+                Type type = new Type();
+                type.setType(new String(RolesSyncStrategy.ALL));
+                type.setActions(new ArrayList<>(Arrays.asList(RolesSyncStrategy.PROJECT_ROLE_ACTIONS)));
+                Indices index = new Indices();
+                index.setIndex(index(i, p));
+                index.setTypes(new ArrayList<>(Collections.singletonList(type)));
+                indices.add(index);
+            }
+            role.setIndices(indices);
+            built.add(role);
+        }
+        return built;
+    }
+
+    @Benchmark
+    public List<Roles> buildInterned() {
+        List<Roles> built = new ArrayList<>(roles);
+        for (int i = 0; i < roles; i++) {
+            RoleBuilder builder = new RoleBuilder("gen_user_" + i)
+                    .expires(String.valueOf(i))
+                    .setClusters(RolesSyncStrategy.USER_ROLE_CLUSTER_ACTIONS);
+            for (int p = 0; p < PROJECTS_PER_ROLE; p++) {
+                builder.setActions(index(i, p), RolesSyncStrategy.ALL, RolesSyncStrategy.PROJECT_ROLE_ACTIONS);
+            }
+            built.add(builder.build());
+        }
+        return built;
+    }
+
+    @Benchmark
+    public SearchGuardRoles load() {
+        return new SearchGuardRoles().load(source);
+    }
+
+    @Benchmark
+    public String serialize() throws Exception {
+        return XContentHelper.toString(document);
+    }
+}
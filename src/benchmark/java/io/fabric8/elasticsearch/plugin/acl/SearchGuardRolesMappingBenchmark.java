@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares syncing the project role mappings of a large tenancy kept as hash
+ * sets of user names, as they were before, with the sorted arrays of
+ * interned names of {@link SortedUsers}.  Every user views a number of
+ * projects and syncs once, adding itself to the mapping of each of its
+ * projects.  That the names are shared is asserted by {@link SortedUsersTest}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SearchGuardRolesMappingBenchmark {
+
+    @Param({"50000"})
+    private int users;
+
+    @Param({"5000"})
+    private int projects;
+
+    @Param({"20"})
+    private int projectsPerUser;
+
+    private SearchGuardRolesMapping document;
+
+    @Setup
+    public void setup() {
+        document = syncSorted();
+    }
+
+    private static String user(int user) {
+        return "user" + user;
+    }
+
+    private String role(int user, int project) {
+        return "gen_project_project" + ((user + project * 31) % projects);
+    }
+
+    /*
+     * The layout before: RolesMapping.addAll merged the users into a HashSet
+     */
+    @Benchmark
+    public Map<String, Set<String>> syncHashSets() {
+        Map<String, Set<String>> mappings = new HashMap<>();
+        for (int u = 0; u < users; u++) {
+            // a new String as it is read from each request
+            String name = new String(user(u));
+            for (int p = 0; p < projectsPerUser; p++) {
+                mappings.computeIfAbsent(role(u, p), k -> new HashSet<>()).add(name);
+            }
+        }
+        return mappings;
+    }
+
+    @Benchmark
+    public SearchGuardRolesMapping syncSorted() {
+        SearchGuardRolesMapping mappings = new SearchGuardRolesMapping();
+        for (int u = 0; u < users; u++) {
+            String name = new String(user(u));
+            RolesMappingBuilder builder = new RolesMappingBuilder();
+            for (int p = 0; p < projectsPerUser; p++) {
+                builder.addUser(role(u, p), name);
+            }
+            mappings.addAll(builder.build());
+        }
+        return mappings;
+    }
+
+    @Benchmark
+    public String serialize() throws Exception {
+        return XContentHelper.toString(document);
+    }
+}
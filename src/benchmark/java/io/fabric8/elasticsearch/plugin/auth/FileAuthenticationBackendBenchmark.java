@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.auth;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.apache.commons.io.FileUtils;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.rest.RestRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.floragunn.searchguard.user.User;
+
+import io.fabric8.elasticsearch.plugin.Samples;
+import io.fabric8.elasticsearch.util.TestRestRequest;
+
+/**
+ * Measures the basic-auth path of {@link FileAuthenticationBackend}:
+ * extracting the credentials from the Authorization header and verifying them
+ * against the passwords file, as SearchGuard does for every request.  Run it
+ * with several threads (-t) to measure it under contention
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileAuthenticationBackendBenchmark {
+
+    private File passwords;
+    private FileAuthenticationBackend backend;
+    private RestRequest request;
+    private ThreadContext context;
+
+    @Setup
+    public void setup() throws Exception {
+        passwords = File.createTempFile("passwd", ".yml");
+        FileUtils.writeStringToFile(passwords, Samples.PASSWORDS.getContent());
+        backend = new FileAuthenticationBackend(Settings.builder().put(FileAuthenticationBackend.FILE, passwords.getAbsolutePath()).build());
+        final Map<String, List<String>> headers = Collections.singletonMap("Authorization",
+                Arrays.asList("Basic " + DatatypeConverter.printBase64Binary("foo:bar".getBytes(StandardCharsets.UTF_8))));
+        request = new TestRestRequest(headers);
+        context = new ThreadContext(Settings.EMPTY);
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(passwords);
+    }
+
+    @Benchmark
+    public User authenticate() {
+        return backend.authenticate(backend.extractCredentials(request, context));
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.auth;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.util.concurrent.ThreadContext.StoredContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.floragunn.searchguard.user.AuthCredentials;
+import com.floragunn.searchguard.user.User;
+
+import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
+import io.fabric8.elasticsearch.plugin.KibanaIndexMode;
+import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory.OpenshiftRequestContext;
+import io.fabric8.elasticsearch.plugin.PluginServiceFactory;
+import io.fabric8.elasticsearch.plugin.acl.BaseRolesSyncStrategy;
+
+/**
+ * Measures {@link OpenShiftTokenAuthentication#authenticate(AuthCredentials)}
+ * for a cached context, which is what SearchGuard does for every request with a
+ * bearer token, and compares it with deriving the role names from the
+ * username for each request as it was before they were carried on the context
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenShiftTokenAuthenticationBenchmark {
+
+    private static final String USERNAME = "system:serviceaccount:openshift-logging:prometheus";
+    private static final ThreadContext THREAD_CONTEXT = new ThreadContext(Settings.EMPTY);
+
+    private OpenshiftRequestContext context;
+    private OpenShiftTokenAuthentication backend;
+    private AuthCredentials credentials;
+    private StoredContext stored;
+
+    @Setup
+    public void setup() {
+        context = new OpenshiftRequestContext(USERNAME, "theAuthToken", false, Collections.emptySet(), ".kibana", KibanaIndexMode.UNIQUE,
+                Collections.emptyList());
+        // the transient is held per thread
+        stored = THREAD_CONTEXT.stashContext();
+        THREAD_CONTEXT.putTransient(ConfigurationSettings.OPENSHIFT_REQUEST_CONTEXT, context);
+        PluginServiceFactory.setThreadContext(THREAD_CONTEXT);
+        PluginServiceFactory.markReady();
+        backend = new OpenShiftTokenAuthentication(Settings.EMPTY);
+        credentials = new AuthCredentials(USERNAME);
+    }
+
+    @TearDown
+    public void tearDown() {
+        stored.close();
+        PluginServiceFactory.setThreadContext(null);
+        PluginServiceFactory.markNotReady();
+    }
+
+    @Benchmark
+    public User authenticate() {
+        return backend.authenticate(credentials);
+    }
+
+    @Benchmark
+    public User derivingTheNamesPerRequest() {
+        User user = new User(context.getUser(), context.getBackendRoles());
+        user.addRole(BaseRolesSyncStrategy.formatUserRoleName(USERNAME));
+        user.addRole(BaseRolesSyncStrategy.formatUserKibanaRoleName(USERNAME));
+        return user;
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.model;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares keeping the projects of a user as a hash set of the projects read
+ * from its API response, as the user contexts kept them before, with a
+ * {@link ProjectSet}, and iterating the projects of every user as the role
+ * sync strategies do.  Many users share the same projects
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ProjectSetBenchmark {
+
+    @Param({"10000"})
+    private int users;
+
+    @Param({"5000"})
+    private int projects;
+
+    @Param({"50"})
+    private int projectsPerUser;
+
+    private Set<Project>[] responses;
+    private Set<Project>[] hashSets;
+    private Set<Project>[] projectSets;
+    private int next;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        responses = new Set[users];
+        hashSets = new Set[users];
+        projectSets = new Set[users];
+        for (int u = 0; u < users; u++) {
+            responses[u] = response(u);
+            hashSets[u] = new HashSet<>(response(u));
+            projectSets[u] = ProjectSet.of(response(u));
+        }
+    }
+
+    /*
+     * Every API response carries its own copies of the names and uids
+     */
+    private Set<Project> response(int user) {
+        Set<Project> response = new HashSet<>();
+        for (int p = 0; p < projectsPerUser; p++) {
+            int project = (user + p * 97) % projects;
+            response.add(new Project("project" + project, "uid-" + project));
+        }
+        return response;
+    }
+
+    private Set<Project> nextResponse() {
+        next = (next + 1) % users;
+        return responses[next];
+    }
+
+    @Benchmark
+    public Set<Project> buildHashSet() {
+        return new HashSet<>(nextResponse());
+    }
+
+    @Benchmark
+    public Set<Project> buildProjectSet() {
+        return ProjectSet.of(nextResponse());
+    }
+
+    @Benchmark
+    public long iterateHashSets() {
+        return iterate(hashSets);
+    }
+
+    @Benchmark
+    public long iterateProjectSets() {
+        return iterate(projectSets);
+    }
+
+    private static long iterate(Set<Project>[] sets) {
+        long length = 0;
+        for (Set<Project> set : sets) {
+            for (Project project : set) {
+                length += project.getName().length() + project.getUID().length();
+            }
+        }
+        return length;
+    }
+}
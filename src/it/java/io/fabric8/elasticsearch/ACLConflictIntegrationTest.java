@@ -0,0 +1,160 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.util.concurrent.ThreadContext.StoredContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.floragunn.searchguard.support.ConfigConstants;
+
+import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftNodeStats;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftStatsAction;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftStatsRequest;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/*
+ * Users make their first request concurrently to different nodes so the
+ * nodes race to write the ACL documents.  Verifies no user's ACLs are lost to
+ * a conflicting write and reports the conflict rate and the time it took for
+ * the documents to include every user
+ */
+public class ACLConflictIntegrationTest extends MultiNodeIntegrationBase {
+
+    private static final int NODES = 3;
+    private static final int USERS = 30;
+    private static final int PROJECTS = 6;
+
+    @Override
+    protected Settings additionalNodeSettings() {
+        return Settings.builder()
+                .put(ConfigurationSettings.OPENSHIFT_ACL_EXPIRE_SWEEP_INTERVAL_SECONDS, 0)
+                .build();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        givenSimulatedMaster(new SimulatedMasterDispatcher(2, PROJECTS, 0, 0, 0, 0.0), PROJECTS);
+        startAdditionalNodes(NODES - 1);
+    }
+
+    @Test
+    public void testConcurrentSyncsOnAllNodesConverge() throws Exception {
+        final OkHttpClient client = getHttpClient();
+        final List<String> uris = getNodeUris();
+        assertEquals("Exp. an HTTP endpoint for each node", NODES, uris.size());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(USERS);
+        final long start = System.nanoTime();
+        try {
+            List<Future<Integer>> responses = new ArrayList<>(USERS);
+            for (int user = 0; user < USERS; user++) {
+                final int requester = user;
+                responses.add(executor.submit(() -> count(client, uris.get(requester % uris.size()), requester)));
+            }
+            for (Future<Integer> response : responses) {
+                assertEquals("Exp. every user to be authorized", 200, response.get().intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        final long answered = System.nanoTime() - start;
+        final long converged = waitForAllUsersToBeMapped() - start;
+
+        long syncs = 0;
+        long conflicts = 0;
+        long retries = 0;
+        for (OpenshiftNodeStats node : client().execute(OpenshiftStatsAction.INSTANCE, new OpenshiftStatsRequest()).actionGet().getNodes()) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> acl = (Map<String, Object>) node.getStats().get("acl");
+            syncs += ((Number) acl.get("syncs")).longValue();
+            conflicts += ((Number) acl.get("conflicts")).longValue();
+            retries += ((Number) acl.get("retries")).longValue();
+        }
+        log.info("\n---------- ACL conflict report ----------\n"
+                + String.format("nodes / users:      %d / %d%n", NODES, USERS)
+                + String.format("syncs:              %d%n", syncs)
+                + String.format("conflicts:          %d (%.2f per sync)%n", conflicts, syncs == 0 ? 0.0 : (double) conflicts / syncs)
+                + String.format("delayed retries:    %d%n", retries)
+                + String.format("all answered after: %d ms%n", TimeUnit.NANOSECONDS.toMillis(answered))
+                + String.format("converged after:    %d ms%n", TimeUnit.NANOSECONDS.toMillis(converged)));
+        assertTrue("Exp. every user to be synced", syncs >= USERS);
+    }
+
+    private int count(OkHttpClient client, String uri, int user) throws Exception {
+        final Request request = simulatedUserRequest(user, 0)
+                .url(simulatedProjectUrl(uri, dispatcher.projectsOf(user)[0]) + "/_count")
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            response.body().bytes();
+            return response.code();
+        }
+    }
+
+    /*
+     * @return the nano time at which the rolesmapping document included every user
+     */
+    private long waitForAllUsersToBeMapped() throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        List<String> missing = new ArrayList<>();
+        do {
+            String mappings = readRolesMapping();
+            missing.clear();
+            for (int user = 0; user < USERS; user++) {
+                String name = SimulatedMasterDispatcher.userName(user);
+                if (!mappings.contains("\"" + name + "\"")) {
+                    missing.add(name);
+                }
+            }
+            if (missing.isEmpty()) {
+                return System.nanoTime();
+            }
+            Thread.sleep(50);
+        } while (System.nanoTime() < deadline);
+        throw new AssertionError("Exp. every user to be mapped but missing " + missing);
+    }
+
+    private String readRolesMapping() {
+        ThreadContext threadContext = client().threadPool().getThreadContext();
+        try (StoredContext cxt = threadContext.stashContext()) {
+            threadContext.putHeader(ConfigConstants.SG_CONF_REQUEST_HEADER, "true");
+            GetResponse response = client().prepareGet(".searchguard", ConfigurationSettings.SEARCHGUARD_MAPPING_TYPE,
+                    ConfigurationSettings.SEARCHGUARD_CONFIG_ID).setRealtime(true).get();
+            return new String(Base64.getDecoder().decode((String) response.getSourceAsMap().get(ConfigurationSettings.SEARCHGUARD_MAPPING_TYPE)),
+                    StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.util.concurrent.ThreadContext.StoredContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.floragunn.searchguard.support.ConfigConstants;
+
+import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
+import io.fabric8.elasticsearch.plugin.stats.Histogram;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftNodeStats;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftStatsAction;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftStatsRequest;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/*
+ * Brings up a cluster of several nodes running the plugin against a simulated
+ * OpenShift master and sends storms of first logins, each spread over a
+ * short period, to all of the nodes so they sync the ACLs at the same time.
+ * Every storm logs in users which were not seen before so every sync has to
+ * write.  Reports the sync latency of every node, the version conflicts and
+ * retries, the bytes written to the searchguard index and the configuration
+ * reloads the syncs caused.  It is not part of the regular integration
+ * tests; run it with:
+ *
+ *   mvn -Pacl-contention verify -Dacl.nodes=5 -Dacl.users_per_storm=100
+ *
+ * Parameters (system properties):
+ *   acl.nodes                    nodes of the cluster (default 3)
+ *   acl.storms                   number of login storms (default 3)
+ *   acl.users_per_storm          users logging in for the first time in each storm (default 40)
+ *   acl.logins_per_user          nodes each user logs in to during a storm (default 2)
+ *   acl.stagger_millis           period over which the logins of a storm are spread (default 500)
+ *   acl.pause_millis             pause between the storms (default 2000)
+ *   acl.projects                 projects in the cluster (default 20)
+ *   acl.projects_per_user        projects each user may access (default 3)
+ *   acl.threads                  concurrent clients (default 32)
+ *   acl.api.latency_millis       minimum latency of the master (default 5)
+ *   acl.api.jitter_millis        maximum random latency added by the master (default 5)
+ *   acl.storage                  storage of generated ACLs, document or sharded (default document)
+ *   acl.refresh_policy           refresh policy of ACL writes, wait_for, false or true (default wait_for)
+ */
+public class ACLContentionLoadTest extends MultiNodeIntegrationBase {
+
+    private final int nodes = Integer.getInteger("acl.nodes", 3);
+    private final int storms = Integer.getInteger("acl.storms", 3);
+    private final int usersPerStorm = Integer.getInteger("acl.users_per_storm", 40);
+    private final int loginsPerUser = Integer.getInteger("acl.logins_per_user", 2);
+    private final long staggerMillis = Long.getLong("acl.stagger_millis", 500L);
+    private final long pauseMillis = Long.getLong("acl.pause_millis", 2000L);
+    private final int projects = Integer.getInteger("acl.projects", 20);
+    private final int projectsPerUser = Integer.getInteger("acl.projects_per_user", 3);
+    private final int threads = Integer.getInteger("acl.threads", 32);
+    private final long latencyMillis = Long.getLong("acl.api.latency_millis", 5L);
+    private final long jitterMillis = Long.getLong("acl.api.jitter_millis", 5L);
+    private final String aclStorage = System.getProperty("acl.storage", ConfigurationSettings.ACL_STORAGE_DOCUMENT);
+    private final String aclRefreshPolicy = System.getProperty("acl.refresh_policy", ConfigurationSettings.DEFAULT_OPENSHIFT_ACL_REFRESH_POLICY);
+
+    private final Histogram loginLatency = new Histogram();
+    private final Map<String, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private final LongAdder failures = new LongAdder();
+    @Override
+    protected Settings additionalNodeSettings() {
+        return Settings.builder()
+                .put(ConfigurationSettings.OPENSHIFT_ACL_EXPIRE_SWEEP_INTERVAL_SECONDS, 0)
+                .put(ConfigurationSettings.OPENSHIFT_ACL_STORAGE, aclStorage)
+                .put(ConfigurationSettings.OPENSHIFT_ACL_REFRESH_POLICY, aclRefreshPolicy)
+                .build();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        givenSimulatedMaster(new SimulatedMasterDispatcher(projectsPerUser, projects, 0, latencyMillis, jitterMillis, 0.0), projects);
+        startAdditionalNodes(nodes - 1);
+    }
+
+    @Test
+    public void testLoginStormsOnAllNodes() throws Exception {
+        log.info("ACL contention: {} nodes, {} storms of {} users logging in to {} nodes each over {}ms, {} projects, "
+                + "{} projects per user, master latency {}+{}ms, acl storage {}, acl refresh policy {}",
+                nodes, storms, usersPerStorm, loginsPerUser, staggerMillis, projects, projectsPerUser, latencyMillis, jitterMillis,
+                aclStorage, aclRefreshPolicy);
+        final OkHttpClient client = getHttpClient();
+        final List<String> uris = getNodeUris();
+        assertEquals("Exp. an HTTP endpoint for each node", nodes, uris.size());
+
+        final ScheduledExecutorService executor = Executors.newScheduledThreadPool(threads);
+        try {
+            for (int storm = 0; storm < storms; storm++) {
+                List<ScheduledFuture<?>> logins = new ArrayList<>(usersPerStorm * loginsPerUser);
+                for (int i = 0; i < usersPerStorm; i++) {
+                    final int user = storm * usersPerStorm + i;
+                    for (int login = 0; login < Math.min(loginsPerUser, uris.size()); login++) {
+                        final String uri = uris.get((user + login) % uris.size());
+                        final long delay = staggerMillis <= 0 ? 0 : ThreadLocalRandom.current().nextLong(staggerMillis);
+                        logins.add(executor.schedule(() -> login(client, uri, user), delay, TimeUnit.MILLISECONDS));
+                    }
+                }
+                for (ScheduledFuture<?> login : logins) {
+                    login.get();
+                }
+                Thread.sleep(pauseMillis);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        report();
+        assertTrue("Exp. logins to have been made", loginLatency.getCount() > 0);
+    }
+
+    private void login(OkHttpClient client, String uri, int user) {
+        final Request request = simulatedUserRequest(user, 0)
+                .url(simulatedProjectUrl(uri, dispatcher.projectsOf(user)[0]) + "/_count")
+                .build();
+        final long start = System.nanoTime();
+        try (Response response = client.newCall(request).execute()) {
+            response.body().bytes();
+            loginLatency.recordMicrosSince(start);
+            statusCounts.computeIfAbsent(String.valueOf(response.code()), k -> new LongAdder()).increment();
+        } catch (Exception e) {
+            failures.increment();
+            log.debug("Login failed", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void report() {
+        Map<String, Long> statuses = new TreeMap<>();
+        statusCounts.forEach((k, v) -> statuses.put(k, v.sum()));
+        StringBuilder report = new StringBuilder("\n---------- ACL contention report ----------\n")
+            .append(String.format("logins:             %d (%d failed to complete), status codes %s%n", loginLatency.getCount(), failures.sum(),
+                    statuses))
+            .append(String.format("login latency (ms): p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n", millis(loginLatency.getPercentile(50.0)),
+                    millis(loginLatency.getPercentile(90.0)), millis(loginLatency.getPercentile(99.0)), millis(loginLatency.getMax())));
+        long syncs = 0;
+        long conflicts = 0;
+        long bulkBytes = 0;
+        long configUpdates = 0;
+        long configReloads = 0;
+        for (OpenshiftNodeStats node : client().execute(OpenshiftStatsAction.INSTANCE, new OpenshiftStatsRequest()).actionGet().getNodes()) {
+            Map<String, Object> acl = (Map<String, Object>) node.getStats().get("acl");
+            Map<String, Object> latency = (Map<String, Object>) acl.get("sync_latency_micros");
+            Map<String, Object> bytes = (Map<String, Object>) acl.get("bulk_bytes");
+            syncs += longOf(acl, "syncs");
+            conflicts += longOf(acl, "conflicts");
+            bulkBytes += longOf(bytes, "sum");
+            configUpdates += longOf(acl, "config_updates");
+            configReloads += longOf(acl, "config_reloads");
+            report.append(String.format("%-20s syncs %d, failures %d, conflicts %d, retries %d, sync latency (ms) p50 %.2f, p90 %.2f, p99 %.2f, "
+                    + "max %.2f, bulk writes %d of %d bytes, config updates %d%n",
+                    node.getNode().getName() + ":", longOf(acl, "syncs"), longOf(acl, "failures"), longOf(acl, "conflicts"),
+                    longOf(acl, "retries"), millis(longOf(latency, "p50")), millis(longOf(latency, "p90")), millis(longOf(latency, "p99")),
+                    millis(longOf(latency, "max")), longOf(bytes, "count"), longOf(bytes, "sum"), longOf(acl, "config_updates")));
+        }
+        report.append(String.format("cluster:            syncs %d, conflicts %d (%.2f per sync), bulk bytes %d (%.0f per sync)%n", syncs, conflicts,
+                    syncs == 0 ? 0.0 : (double) conflicts / syncs, bulkBytes, syncs == 0 ? 0.0 : (double) bulkBytes / syncs))
+            // every config update is broadcast so each node reloads once per update of any node
+            .append(String.format("config reloads:     %d updates reloaded %d times, %.1f reloads per node%n", configUpdates, configReloads,
+                    (double) configReloads / nodes))
+            .append(String.format("searchguard index:  %d documents indexed%n", indexedSearchGuardDocuments()));
+        log.info(report.toString());
+    }
+
+    private long indexedSearchGuardDocuments() {
+        ThreadContext threadContext = client().threadPool().getThreadContext();
+        try (StoredContext cxt = threadContext.stashContext()) {
+            threadContext.putHeader(ConfigConstants.SG_CONF_REQUEST_HEADER, "true");
+            IndicesStatsResponse stats = client().admin().indices().prepareStats(".searchguard").setIndexing(true).get();
+            return stats.getPrimaries().getIndexing().getTotal().getIndexCount();
+        } catch (Exception e) {
+            log.warn("Unable to retrieve the stats of the searchguard index", e);
+            return -1;
+        }
+    }
+
+    private static long longOf(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
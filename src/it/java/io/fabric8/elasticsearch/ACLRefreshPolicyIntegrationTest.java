@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch;
+
+import java.util.Map;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.util.concurrent.ThreadContext.StoredContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.floragunn.searchguard.support.ConfigConstants;
+
+import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
+import io.fabric8.elasticsearch.plugin.KibanaIndexMode;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftNodeStats;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftStatsAction;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftStatsRequest;
+
+/*
+ * Verifies ACLs written without waiting for a refresh are visible to the
+ * authorization check of the request which caused them to be written.  The
+ * refresh of the SearchGuard index is disabled so only realtime reads can see
+ * the written documents
+ */
+public class ACLRefreshPolicyIntegrationTest extends ElasticsearchIntegrationTest {
+
+    @Override
+    protected Settings additionalNodeSettings() {
+        return Settings.builder()
+                .put(ConfigurationSettings.OPENSHIFT_ACL_REFRESH_POLICY, "false")
+                .build();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        givenDocumentIsIndexed("project.multi-tenancy-1.uuid.1970.01.01", "test", "0", "multi-tenancy-1-doc0");
+        ThreadContext threadContext = client().threadPool().getThreadContext();
+        try (StoredContext cxt = threadContext.stashContext()) {
+            threadContext.putHeader(ConfigConstants.SG_CONF_REQUEST_HEADER, "true");
+            client().admin().indices().prepareUpdateSettings(".searchguard")
+                .setSettings(Settings.builder().put("index.refresh_interval", "-1"))
+                .get();
+        }
+    }
+
+    @Test
+    public void testAclIsVisibleToTheNextAuthorizationCheckWithoutRefresh() throws Exception {
+        for (String user : new String [] {"norefreshuser1", "norefreshuser2"}) {
+            givenDocumentIsIndexed(getKibanaIndex(KibanaIndexMode.UNIQUE, user, false), "config",
+                    KibanaIndexModeIntegrationBase.OLD_KIBANA_VERSION, "myKibanaIndex");
+            givenUserIsNotClusterAdmin(user);
+            givenUserIsAdminForProjects("multi-tenancy-1");
+            whenContextIsForUser(user);
+
+            whenGettingDocument(String.format("%s/_count", formatProjectIndexPattern("multi-tenancy-1", "uuid")));
+            assertThatResponseIsSuccessful();
+        }
+        for (OpenshiftNodeStats node : client().execute(OpenshiftStatsAction.INSTANCE, new OpenshiftStatsRequest()).actionGet().getNodes()) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> acl = (Map<String, Object>) node.getStats().get("acl");
+            log.info("ACL sync latency without refresh (micros): {}", acl.get("sync_latency_micros"));
+        }
+    }
+}
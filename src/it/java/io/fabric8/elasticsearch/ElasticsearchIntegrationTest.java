@@ -110,6 +110,7 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.mockwebserver.MockWebServer;
 
 public abstract class ElasticsearchIntegrationTest {
 
@@ -129,6 +130,8 @@ public abstract class ElasticsearchIntegrationTest {
     public OpenShiftServer apiServer = new OpenShiftServer();
 
     protected Node esNode1;
+    protected SimulatedMasterDispatcher dispatcher;
+    private MockWebServer simulatedMaster;
     protected Set<InetSocketTransportAddress> httpAdresses = new HashSet<InetSocketTransportAddress>();
     protected String nodeHost;
     protected int nodePort;
@@ -433,6 +436,50 @@ public abstract class ElasticsearchIntegrationTest {
         return String.format("project.%s.%s.*", project, uid);
     }
 
+    /**
+     * Use a master simulated by the dispatcher in place of the mocked API
+     * server and index a document for each of its projects
+     */
+    protected void givenSimulatedMaster(SimulatedMasterDispatcher dispatcher, int projects) throws Exception {
+        this.dispatcher = dispatcher;
+        simulatedMaster = new MockWebServer();
+        simulatedMaster.setDispatcher(dispatcher);
+        simulatedMaster.start();
+        System.setProperty(Config.KUBERNETES_MASTER_SYSTEM_PROPERTY, simulatedMaster.url("/").toString());
+        for (int project = 0; project < projects; project++) {
+            givenDocumentIsIndexed(String.format("project.%s.%s.1970.01.01", SimulatedMasterDispatcher.projectName(project),
+                    SimulatedMasterDispatcher.projectUid(project)), "test", "0", "doc" + project);
+        }
+    }
+
+    @After
+    public void shutdownSimulatedMaster() throws Exception {
+        if (simulatedMaster != null) {
+            simulatedMaster.shutdown();
+            simulatedMaster = null;
+        }
+    }
+
+    /**
+     * @return a request of a user of the simulated master as the proxy in
+     *          front of Kibana makes it
+     */
+    protected static Request.Builder simulatedUserRequest(int user, int tokenGeneration) {
+        Headers headers = new Headers.Builder()
+                .add("x-forwarded-for", "127.0.0.1")
+                .add("x-proxy-remote-user", SimulatedMasterDispatcher.userName(user))
+                .add("Authorization", "Bearer " + SimulatedMasterDispatcher.token(user, tokenGeneration))
+                .build();
+        return new Request.Builder().headers(headers);
+    }
+
+    /**
+     * @return the URL of the indices of a project of the simulated master
+     */
+    protected String simulatedProjectUrl(String uri, int project) {
+        return uri + "/" + formatProjectIndexPattern(SimulatedMasterDispatcher.projectName(project), SimulatedMasterDispatcher.projectUid(project));
+    }
+
     protected void whenContextIsForUser(String user) {
         testContext.put(USERNAME, user);
     }
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.elasticsearch.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.PluginAwareNode;
+import org.junit.After;
+
+import io.fabric8.elasticsearch.plugin.OpenShiftElasticSearchPlugin;
+
+/**
+ * Base of tests which need a cluster of more than the one node started for
+ * every test.  The additional nodes join the first one and use the ports
+ * following its ports
+ */
+public abstract class MultiNodeIntegrationBase extends ElasticsearchIntegrationTest {
+
+    private static final int FIRST_HTTP_PORT = 9201;
+    private static final int FIRST_TRANSPORT_PORT = 9301;
+
+    protected final List<Node> additionalNodes = new ArrayList<>();
+
+    protected void startAdditionalNodes(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            Settings settings = Settings.builder()
+                    .put(nodeSettings())
+                    .put("node.name", "node" + (i + 2))
+                    .put("http.port", FIRST_HTTP_PORT + i)
+                    .put("transport.tcp.port", FIRST_TRANSPORT_PORT + i)
+                    .putArray("discovery.zen.ping.unicast.hosts", "localhost:9300")
+                    .build();
+            Node node = new PluginAwareNode(settings, OpenShiftElasticSearchPlugin.class);
+            log.debug("--------- Starting additional ES Node {} ----------", i + 2);
+            node.start();
+            additionalNodes.add(node);
+        }
+        waitForCluster(ClusterHealthStatus.GREEN, TimeValue.timeValueSeconds(60), client(), count + 1);
+    }
+
+    /**
+     * @return the URI of the HTTP endpoint of every node of the cluster
+     */
+    protected List<String> getNodeUris() {
+        List<String> uris = new ArrayList<>(httpAdresses.size());
+        for (InetSocketTransportAddress address : httpAdresses) {
+            uris.add("https://" + address.getHost() + ":" + address.getPort());
+        }
+        return uris;
+    }
+
+    @After
+    public void stopAdditionalNodes() throws Exception {
+        for (Node node : additionalNodes) {
+            log.info("--------- Stopping additional ES Node ----------");
+            node.close();
+        }
+        additionalNodes.clear();
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.settings.Settings;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
+import io.fabric8.elasticsearch.plugin.stats.Histogram;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftStatsAction;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftStatsRequest;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftStatsResponse;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/*
+ * Drives the full plugin stack of an embedded node with concurrent users
+ * against a simulated OpenShift master and reports throughput, latency and
+ * the number of calls made to the master.  It is not part of the regular
+ * integration tests; run it with:
+ *
+ *   mvn -Pload verify -Dload.users=200 -Dload.api.latency_millis=50
+ *
+ * Parameters (system properties):
+ *   load.users                   number of simulated users (default 100)
+ *   load.projects_per_user       projects each user may access (default 10)
+ *   load.projects                projects in the cluster (default 50)
+ *   load.admins                  users which are cluster admins (default 2)
+ *   load.threads                 concurrent clients (default 16)
+ *   load.warmup_seconds          seconds of load before measuring (default 5)
+ *   load.duration_seconds        seconds of measured load (default 30)
+ *   load.token_churn             share of requests using a new token for the user (default 0.01)
+ *   load.kibana_ratio            share of requests issued like Kibana does (default 0.5)
+ *   load.api.latency_millis      minimum latency of the master (default 10)
+ *   load.api.jitter_millis       maximum random latency added by the master (default 10)
+ *   load.api.error_rate          share of failed master responses (default 0)
+ *   load.cache.expireseconds     expiry of the user context cache (default 10)
+ *   load.acl.storage             storage of generated ACLs, document or sharded (default document)
+ *   load.acl.refresh_policy      refresh policy of ACL writes, wait_for, false or true (default wait_for)
+ */
+public class PluginLoadTest extends ElasticsearchIntegrationTest {
+
+    private static final MediaType NDJSON = MediaType.parse("application/x-ndjson");
+
+    private final int users = Integer.getInteger("load.users", 100);
+    private final int projectsPerUser = Integer.getInteger("load.projects_per_user", 10);
+    private final int projects = Integer.getInteger("load.projects", 50);
+    private final int admins = Integer.getInteger("load.admins", 2);
+    private final int threads = Integer.getInteger("load.threads", 16);
+    private final long warmupSeconds = Long.getLong("load.warmup_seconds", 5L);
+    private final long durationSeconds = Long.getLong("load.duration_seconds", 30L);
+    private final double tokenChurn = doubleProperty("load.token_churn", 0.01);
+    private final double kibanaRatio = doubleProperty("load.kibana_ratio", 0.5);
+    private final long latencyMillis = Long.getLong("load.api.latency_millis", 10L);
+    private final long jitterMillis = Long.getLong("load.api.jitter_millis", 10L);
+    private final double errorRate = doubleProperty("load.api.error_rate", 0.0);
+    private final long cacheExpireSeconds = Long.getLong("load.cache.expireseconds", 10L);
+    private final String aclStorage = System.getProperty("load.acl.storage", ConfigurationSettings.ACL_STORAGE_DOCUMENT);
+    private final String aclRefreshPolicy = System.getProperty("load.acl.refresh_policy", ConfigurationSettings.DEFAULT_OPENSHIFT_ACL_REFRESH_POLICY);
+
+    private final Histogram latency = new Histogram();
+    private final Map<String, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private final LongAdder failures = new LongAdder();
+    private AtomicIntegerArray tokenGenerations;
+    private volatile boolean measuring;
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    @Override
+    protected Settings additionalNodeSettings() {
+        return Settings.builder()
+                .put(ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_EXPIRE_SECONDS, cacheExpireSeconds)
+                .put(ConfigurationSettings.OPENSHIFT_ACL_STORAGE, aclStorage)
+                .put(ConfigurationSettings.OPENSHIFT_ACL_REFRESH_POLICY, aclRefreshPolicy)
+                .build();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        givenSimulatedMaster(new SimulatedMasterDispatcher(projectsPerUser, projects, admins, latencyMillis, jitterMillis, errorRate), projects);
+        tokenGenerations = new AtomicIntegerArray(users);
+    }
+
+    @Test
+    public void testPluginUnderLoad() throws Exception {
+        log.info("Load: {} users, {} projects per user, {} projects, {} threads, token churn {}, kibana ratio {}, "
+                + "master latency {}+{}ms, master error rate {}, cache expiry {}s, acl storage {}, acl refresh policy {}",
+                users, projectsPerUser, projects, threads, tokenChurn, kibanaRatio, latencyMillis, jitterMillis, errorRate,
+                cacheExpireSeconds, aclStorage, aclRefreshPolicy);
+        final OkHttpClient client = getHttpClient();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final long measureStart = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        final long end = measureStart + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long apiCallsAtStart = 0;
+        try {
+            Future<?>[] workers = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                workers[i] = executor.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        runRequest(client);
+                    }
+                    return null;
+                });
+            }
+            long wait = measureStart - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            apiCallsAtStart = dispatcher.getTotalCalls();
+            measuring = true;
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            measuring = false;
+            executor.shutdownNow();
+        }
+        report(apiCallsAtStart);
+        assertTrue("Exp. requests to have been made", latency.getCount() > 0);
+    }
+
+    private void runRequest(OkHttpClient client) throws Exception {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int user = random.nextInt(users);
+        if (random.nextDouble() < tokenChurn) {
+            tokenGenerations.incrementAndGet(user);
+        }
+        final int[] userProjects = dispatcher.projectsOf(user);
+        final Request.Builder builder = simulatedUserRequest(user, tokenGenerations.get(user));
+        if (random.nextDouble() < kibanaRatio) {
+            if (random.nextBoolean()) {
+                builder.url(getHttpServerUri() + "/.kibana/config/" + ConfigurationSettings.DEFAULT_KIBANA_VERSION);
+            } else {
+                String indices = Arrays.stream(userProjects)
+                        .mapToObj(p -> formatProjectIndexPattern(SimulatedMasterDispatcher.projectName(p), SimulatedMasterDispatcher.projectUid(p)))
+                        .collect(Collectors.joining("\",\""));
+                String body = String.format("{\"index\":[\"%s\"],\"ignore_unavailable\":true}\n{\"size\":0,\"query\":{\"match_all\":{}}}\n", indices);
+                builder.url(getHttpServerUri() + "/_msearch").post(RequestBody.create(NDJSON, body));
+            }
+        } else {
+            int project = userProjects[random.nextInt(userProjects.length)];
+            builder.url(simulatedProjectUrl(getHttpServerUri(), project) + "/_count");
+        }
+        final long start = System.nanoTime();
+        final boolean measured = measuring;
+        try (Response response = client.newCall(builder.build()).execute()) {
+            response.body().bytes();
+            if (measured) {
+                latency.recordMicrosSince(start);
+                statusCounts.computeIfAbsent(String.valueOf(response.code()), k -> new LongAdder()).increment();
+            }
+        } catch (Exception e) {
+            if (measured) {
+                failures.increment();
+            }
+            log.debug("Request failed", e);
+        }
+    }
+
+    private void report(long apiCallsAtStart) {
+        final long requests = latency.getCount();
+        final long apiCalls = dispatcher.getTotalCalls() - apiCallsAtStart;
+        Map<String, Long> statuses = new TreeMap<>();
+        statusCounts.forEach((k, v) -> statuses.put(k, v.sum()));
+        StringBuilder report = new StringBuilder("\n---------- Load test report ----------\n")
+            .append(String.format("requests:           %d in %ds (%d failed to complete)%n", requests, durationSeconds, failures.sum()))
+            .append(String.format("throughput:         %.1f req/s%n", (double) requests / durationSeconds))
+            .append(String.format("latency (ms):       p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n", millis(latency.getPercentile(50.0)),
+                    millis(latency.getPercentile(90.0)), millis(latency.getPercentile(99.0)), millis(latency.getMax())))
+            .append(String.format("status codes:       %s%n", statuses))
+            .append(String.format("master calls:       %d while measuring (%.3f per request), totals %s%n", apiCalls,
+                    requests == 0 ? 0.0 : (double) apiCalls / requests, dispatcher.getCallCounts()));
+        try {
+            OpenshiftStatsResponse stats = client().execute(OpenshiftStatsAction.INSTANCE, new OpenshiftStatsRequest()).actionGet();
+            report.append(String.format("plugin stats:       %s%n", Strings.toString(stats)));
+        } catch (Exception e) {
+            log.warn("Unable to retrieve the plugin stats", e);
+        }
+        log.info(report.toString());
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch;
+
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.util.concurrent.ThreadContext.StoredContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.floragunn.searchguard.support.ConfigConstants;
+
+import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
+import io.fabric8.elasticsearch.plugin.KibanaIndexMode;
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles;
+import io.fabric8.elasticsearch.plugin.acl.ShardedACLStore;
+
+/*
+ * Verifies generated ACLs are written to the sharded store and materialized
+ * into the documents SearchGuard reads
+ */
+public class ShardedACLStorageIntegrationTest extends ElasticsearchIntegrationTest {
+
+    private static final String SEARCHGUARD_INDEX = ".searchguard";
+
+    @Override
+    protected Settings additionalNodeSettings() {
+        return Settings.builder()
+                .put(ConfigurationSettings.OPENSHIFT_ACL_STORAGE, ConfigurationSettings.ACL_STORAGE_SHARDED)
+                .build();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        givenDocumentIsIndexed("project.multi-tenancy-1.uuid.1970.01.01", "test", "0", "multi-tenancy-1-doc0");
+        givenDocumentIsIndexed("project.multi-tenancy-2.uuid.1970.01.01", "test", "0", "multi-tenancy-2-doc0");
+    }
+
+    @Test
+    public void testUsersAclsAreMaterializedFromTheirShards() throws Exception {
+        final String [] users = {"shardeduser1", "shardeduser2"};
+        for (String user : users) {
+            givenDocumentIsIndexed(getKibanaIndex(KibanaIndexMode.UNIQUE, user, false), "config",
+                    KibanaIndexModeIntegrationBase.OLD_KIBANA_VERSION, "myKibanaIndex");
+            givenUserIsNotClusterAdmin(user);
+            givenUserIsAdminForProjects("multi-tenancy-1", "multi-tenancy-2");
+            whenContextIsForUser(user);
+
+            whenGettingDocument(String.format("%s/_count", formatProjectIndexPattern("multi-tenancy-1", "uuid")));
+            assertThatResponseIsSuccessful();
+        }
+
+        ThreadContext threadContext = client().threadPool().getThreadContext();
+        try (StoredContext cxt = threadContext.stashContext()) {
+            threadContext.putHeader(ConfigConstants.SG_CONF_REQUEST_HEADER, "true");
+            client().admin().indices().prepareRefresh(SEARCHGUARD_INDEX).get();
+            SearchResponse shards = client().prepareSearch(SEARCHGUARD_INDEX).setTypes(ShardedACLStore.ROLE_SHARD_TYPE).get();
+            assertTrue("Exp. a role document for each user", shards.getHits().getTotalHits() >= users.length);
+
+            GetResponse response = client().prepareGet(SEARCHGUARD_INDEX, ConfigurationSettings.SEARCHGUARD_ROLE_TYPE,
+                    ConfigurationSettings.SEARCHGUARD_CONFIG_ID).get();
+            String roles = new String(Base64.getDecoder().decode((String) response.getSourceAsMap().get(ConfigurationSettings.SEARCHGUARD_ROLE_TYPE)),
+                    StandardCharsets.UTF_8);
+            for (String user : users) {
+                String role = SearchGuardRoles.formatUniqueKibanaRoleName(user);
+                assertTrue("Exp. the materialized roles to include " + role, roles.contains(role));
+            }
+        }
+    }
+}
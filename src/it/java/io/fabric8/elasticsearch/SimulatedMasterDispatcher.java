@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Simulates the OpenShift master endpoints called by the plugin for an
+ * arbitrary number of users.  Tokens are of the form {@code <user>-token-<generation>}
+ * so a new generation of a user's token looks like a token the plugin has not
+ * seen before.  Every response can be delayed and a share of them can be
+ * failed to simulate a slow or unhealthy master.
+ */
+public class SimulatedMasterDispatcher extends Dispatcher {
+
+    static final String USER_PATH = "/apis/user.openshift.io/v1/users/~";
+    static final String PROJECTS_PATH = "/apis/project.openshift.io/v1/projects";
+    static final String SAR_PATH = "/apis/authorization.openshift.io/v1/subjectaccessreviews";
+    static final String TOKEN_SEPARATOR = "-token-";
+
+    private final int projectsPerUser;
+    private final int totalProjects;
+    private final int admins;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+
+    private final LongAdder userCalls = new LongAdder();
+    private final LongAdder projectCalls = new LongAdder();
+    private final LongAdder sarCalls = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder otherCalls = new LongAdder();
+
+    /**
+     * @param projectsPerUser the number of projects each user may access
+     * @param totalProjects   the number of projects in the cluster
+     * @param admins          the number of users, starting with the first, which are cluster admins
+     * @param latencyMillis   the minimum delay of each response
+     * @param jitterMillis    the maximum random delay added to each response
+     * @param errorRate       the share of responses, between 0 and 1, to fail with a 500
+     */
+    public SimulatedMasterDispatcher(int projectsPerUser, int totalProjects, int admins, long latencyMillis, long jitterMillis,
+            double errorRate) {
+        this.projectsPerUser = projectsPerUser;
+        this.totalProjects = totalProjects;
+        this.admins = admins;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+    }
+
+    public static String userName(int user) {
+        return "user" + user;
+    }
+
+    public static String projectName(int project) {
+        return "project" + project;
+    }
+
+    public static String projectUid(int project) {
+        return "uid" + project;
+    }
+
+    public static String token(int user, int generation) {
+        return userName(user) + TOKEN_SEPARATOR + generation;
+    }
+
+    /**
+     * @return the project ids the given user may access
+     */
+    public int[] projectsOf(int user) {
+        int[] projects = new int[Math.min(projectsPerUser, totalProjects)];
+        for (int i = 0; i < projects.length; i++) {
+            projects[i] = (user + i * 7) % totalProjects;
+        }
+        return projects;
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+        String path = request.getPath();
+        int user = userOf(request.getHeader("Authorization"));
+        if (USER_PATH.equals(path)) {
+            userCalls.increment();
+        } else if (PROJECTS_PATH.equals(path)) {
+            projectCalls.increment();
+        } else if (SAR_PATH.equals(path)) {
+            sarCalls.increment();
+        } else {
+            otherCalls.increment();
+            return new MockResponse().setResponseCode(404);
+        }
+        delay();
+        if (user < 0) {
+            return new MockResponse().setResponseCode(401);
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            injectedErrors.increment();
+            return new MockResponse().setResponseCode(500);
+        }
+        if (USER_PATH.equals(path)) {
+            return json(200, "{\"kind\":\"User\",\"apiVersion\":\"user.openshift.io/v1\",\"metadata\":{\"name\":\"" + userName(user) + "\"}}");
+        }
+        if (PROJECTS_PATH.equals(path)) {
+            return json(200, projectList(user));
+        }
+        return json(201, "{\"kind\":\"SubjectAccessReviewResponse\",\"apiVersion\":\"authorization.openshift.io/v1\",\"allowed\":"
+                + (user < admins) + "}");
+    }
+
+    private void delay() throws InterruptedException {
+        long millis = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private String projectList(int user) {
+        StringBuilder builder = new StringBuilder("{\"kind\":\"ProjectList\",\"apiVersion\":\"project.openshift.io/v1\",\"metadata\":{},\"items\":[");
+        int[] projects = projectsOf(user);
+        for (int i = 0; i < projects.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"metadata\":{\"name\":\"").append(projectName(projects[i]))
+                .append("\",\"uid\":\"").append(projectUid(projects[i])).append("\"}}");
+        }
+        return builder.append("]}").toString();
+    }
+
+    private static MockResponse json(int code, String body) {
+        return new MockResponse()
+                .setResponseCode(code)
+                .setHeader("Content-Type", "application/json")
+                .setBody(body);
+    }
+
+    private static int userOf(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer user")) {
+            return -1;
+        }
+        String token = authorization.substring("Bearer user".length());
+        int end = token.indexOf(TOKEN_SEPARATOR);
+        if (end <= 0) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(token.substring(0, end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public long getTotalCalls() {
+        return userCalls.sum() + projectCalls.sum() + sarCalls.sum();
+    }
+
+    public Map<String, Long> getCallCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("user", userCalls.sum());
+        counts.put("projects", projectCalls.sum());
+        counts.put("subject_access_review", sarCalls.sum());
+        counts.put("unknown", otherCalls.sum());
+        counts.put("injected_errors", injectedErrors.sum());
+        return counts;
+    }
+}
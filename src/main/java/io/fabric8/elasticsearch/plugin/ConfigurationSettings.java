@@ -85,18 +85,102 @@ public interface ConfigurationSettings extends KibanaIndexMode{
     };
 
     static final String OPENSHIFT_ACL_EXPIRE_IN_MILLIS = "openshift.acl.expire_in_millis";
+
+    /**
+     * The interval at which the elected master removes expired ACLs.  A
+     * value of 0 disables the sweep
+     */
+    static final String OPENSHIFT_ACL_EXPIRE_SWEEP_INTERVAL_SECONDS = "openshift.acl.expire_sweep_interval_seconds";
+    static final long DEFAULT_OPENSHIFT_ACL_EXPIRE_SWEEP_INTERVAL_SECONDS = 60;
+
+    /**
+     * The number of times a write of the ACL documents which conflicts with
+     * a write of another node is retried on top of the newer documents
+     * before falling back to retrying the sync after a delay
+     */
+    static final String OPENSHIFT_ACL_CONFLICT_RETRIES = "openshift.acl.conflict_retries";
+    static final int DEFAULT_OPENSHIFT_ACL_CONFLICT_RETRIES = 5;
+
+    /**
+     * The refresh policy of writes of the ACL documents. SearchGuard reads
+     * them with realtime gets so they do not need to wait for a refresh
+     */
+    static final String OPENSHIFT_ACL_REFRESH_POLICY = "openshift.acl.refresh_policy";
+    static final String DEFAULT_OPENSHIFT_ACL_REFRESH_POLICY = "wait_for";
+
+    /**
+     * The maximum number of generated roles kept to be reused by later syncs
+     * of users or projects whose permissions did not change
+     */
+    static final String OPENSHIFT_ACL_ROLE_CACHE_MAXSIZE = "openshift.acl.role_cache.maxsize";
+    static final long DEFAULT_OPENSHIFT_ACL_ROLE_CACHE_MAXSIZE = 10000;
     
+    /**
+     * The maximum number of user contexts cached by the digest of their token
+     */
     static final String OPENSHIFT_CONTEXT_CACHE_MAXSIZE = "openshift.context.cache.maxsize";
     static final String OPENSHIFT_CONTEXT_CACHE_EXPIRE_SECONDS = "openshift.context.cache.expireseconds";
-    static final int DEFAULT_OPENSHIFT_CONTEXT_CACHE_MAXSIZE = 500;
+    static final int DEFAULT_OPENSHIFT_CONTEXT_CACHE_MAXSIZE = 2000;
     static final long DEFAULT_OPENSHIFT_CONTEXT_CACHE_EXPIRE_SECONDS = 120;
 
+    /**
+     * The estimated heap the cached user contexts may use.  A user with many
+     * projects weighs more than many users with a few.  When set it takes
+     * precedence over the maximum number of contexts, which limits the cache
+     * when it is 0
+     */
+    static final String OPENSHIFT_CONTEXT_CACHE_MAX_BYTES = "openshift.context.cache.max_bytes";
+    static final String DEFAULT_OPENSHIFT_CONTEXT_CACHE_MAX_BYTES = "0b";
+
+    /**
+     * Tokens which recently failed authentication (401/403) are rejected
+     * without calling the API until they expire.  A value of 0 disables the
+     * cache
+     */
+    static final String OPENSHIFT_CONTEXT_CACHE_REJECTED_MAXSIZE = "openshift.context.cache.rejected.maxsize";
+    static final String OPENSHIFT_CONTEXT_CACHE_REJECTED_EXPIRE_SECONDS = "openshift.context.cache.rejected.expireseconds";
+    static final long DEFAULT_OPENSHIFT_CONTEXT_CACHE_REJECTED_MAXSIZE = 1000;
+    static final long DEFAULT_OPENSHIFT_CONTEXT_CACHE_REJECTED_EXPIRE_SECONDS = 30;
+
+    /**
+     * Calls to the OpenShift API are made from a bounded thread pool and
+     * guarded by a circuit breaker which opens when the percentage of failed or
+     * slow calls within a window crosses a threshold
+     */
+    static final String OPENSHIFT_API_THREAD_POOL = "openshift_api";
+    static final int DEFAULT_OPENSHIFT_API_THREAD_POOL_SIZE = 8;
+    static final int DEFAULT_OPENSHIFT_API_THREAD_POOL_QUEUE_SIZE = 100;
+    static final String OPENSHIFT_API_TIMEOUT_MILLIS = "openshift.api.timeout_millis";
+    static final String OPENSHIFT_API_BREAKER_FAILURE_RATE = "openshift.api.breaker.failure_rate";
+    static final String OPENSHIFT_API_BREAKER_SLOW_CALL_RATE = "openshift.api.breaker.slow_call_rate";
+    static final String OPENSHIFT_API_BREAKER_SLOW_CALL_MILLIS = "openshift.api.breaker.slow_call_millis";
+    static final String OPENSHIFT_API_BREAKER_MINIMUM_CALLS = "openshift.api.breaker.minimum_calls";
+    static final String OPENSHIFT_API_BREAKER_WINDOW_SECONDS = "openshift.api.breaker.window_seconds";
+    static final String OPENSHIFT_API_BREAKER_OPEN_SECONDS = "openshift.api.breaker.open_seconds";
+    static final long DEFAULT_OPENSHIFT_API_TIMEOUT_MILLIS = 15000;
+    static final int DEFAULT_OPENSHIFT_API_BREAKER_FAILURE_RATE = 50;
+    static final int DEFAULT_OPENSHIFT_API_BREAKER_SLOW_CALL_RATE = 80;
+    static final long DEFAULT_OPENSHIFT_API_BREAKER_SLOW_CALL_MILLIS = 5000;
+    static final int DEFAULT_OPENSHIFT_API_BREAKER_MINIMUM_CALLS = 10;
+    static final long DEFAULT_OPENSHIFT_API_BREAKER_WINDOW_SECONDS = 60;
+    static final long DEFAULT_OPENSHIFT_API_BREAKER_OPEN_SECONDS = 30;
+
     /**
      * The strategy to use for generating roles and role mappings
      */
     static final String OPENSHIFT_ACL_ROLE_STRATEGY = "openshift.acl.role_strategy";
     static final String DEFAULT_ACL_ROLE_STRATEGY = "user";
 
+    /**
+     * How generated ACLs are stored: in the roles and rolesmapping documents
+     * of the SearchGuard index or as one document per role and user, also in
+     * the SearchGuard index, which the elected master merges into those
+     * documents
+     */
+    static final String OPENSHIFT_ACL_STORAGE = "openshift.acl.storage";
+    static final String ACL_STORAGE_DOCUMENT = "document";
+    static final String ACL_STORAGE_SHARDED = "sharded";
+
     /**
      * List of index patterns to create for operations users
      */
@@ -29,6 +29,7 @@ import java.util.function.UnaryOperator;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.action.support.ActionFilter;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
@@ -55,6 +56,8 @@ import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.rest.RestController;
 import org.elasticsearch.rest.RestHandler;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.threadpool.ExecutorBuilder;
+import org.elasticsearch.threadpool.FixedExecutorBuilder;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportInterceptor;
@@ -63,12 +66,21 @@ import org.elasticsearch.watcher.ResourceWatcherService;
 import com.floragunn.searchguard.SearchGuardPlugin;
 
 import io.fabric8.elasticsearch.plugin.acl.ACLDocumentManager;
+import io.fabric8.elasticsearch.plugin.acl.ACLExpirySweeper;
 import io.fabric8.elasticsearch.plugin.acl.DynamicACLFilter;
+import io.fabric8.elasticsearch.plugin.acl.MaterializeACLAction;
 import io.fabric8.elasticsearch.plugin.acl.SearchGuardSyncStrategyFactory;
+import io.fabric8.elasticsearch.plugin.acl.ShardedACLStore;
+import io.fabric8.elasticsearch.plugin.acl.TransportMaterializeACLAction;
+import io.fabric8.elasticsearch.plugin.auth.FileAuthenticationBackend;
 import io.fabric8.elasticsearch.plugin.filter.FieldStatsResponseFilter;
 import io.fabric8.elasticsearch.plugin.kibana.IndexMappingLoader;
 import io.fabric8.elasticsearch.plugin.kibana.KibanaSeed;
 import io.fabric8.elasticsearch.plugin.kibana.KibanaUtils;
+import io.fabric8.elasticsearch.plugin.stats.OpenshiftStatsAction;
+import io.fabric8.elasticsearch.plugin.stats.PluginStats;
+import io.fabric8.elasticsearch.plugin.stats.RestOpenshiftStatsAction;
+import io.fabric8.elasticsearch.plugin.stats.TransportOpenshiftStatsAction;
 import io.fabric8.elasticsearch.util.RequestUtils;
 
 public class OpenShiftElasticSearchPlugin extends Plugin implements ConfigurationSettings, ActionPlugin, NetworkPlugin {
@@ -87,18 +99,23 @@ public class OpenShiftElasticSearchPlugin extends Plugin implements Configuratio
             ResourceWatcherService resourceWatcherService, ScriptService scriptService,
             NamedXContentRegistry namedXContentRegistry) {
 
+        final PluginStats pluginStats = new PluginStats();
         final PluginSettings pluginSettings = new PluginSettings(settings);
         final IndexMappingLoader indexMappingLoader = new IndexMappingLoader(settings);
         final PluginClient pluginClient = new PluginClient(client, threadPool.getThreadContext());
-        final OpenshiftAPIService apiService = new OpenshiftAPIService();
-        final RequestUtils requestUtils = new RequestUtils(pluginSettings, apiService);
+        final OpenshiftAPIService apiService = new OpenshiftAPIService(pluginStats);
+        final RequestUtils requestUtils = new RequestUtils(pluginSettings, apiService, pluginStats);
         final OpenshiftRequestContextFactory contextFactory = new OpenshiftRequestContextFactory(settings, requestUtils,
-                apiService, threadPool.getThreadContext());
+                apiService, threadPool.getThreadContext(), threadPool.executor(OPENSHIFT_API_THREAD_POOL));
         final SearchGuardSyncStrategyFactory documentFactory = new SearchGuardSyncStrategyFactory(pluginSettings);
         final KibanaUtils kUtils = new KibanaUtils(pluginSettings, pluginClient);
-        final KibanaSeed seed = new KibanaSeed(pluginSettings, indexMappingLoader, pluginClient, kUtils);
-        final ACLDocumentManager aclDocumentManager = new ACLDocumentManager(pluginClient, pluginSettings, documentFactory, threadPool);
-        this.aclFilter = new DynamicACLFilter(pluginSettings, seed, client, threadPool, requestUtils, aclDocumentManager);
+        final KibanaSeed seed = new KibanaSeed(pluginSettings, indexMappingLoader, pluginClient, kUtils, pluginStats);
+        final ShardedACLStore aclStore = new ShardedACLStore(pluginClient, threadPool.getThreadContext(), pluginSettings, documentFactory);
+        final ACLDocumentManager aclDocumentManager = new ACLDocumentManager(pluginClient, pluginSettings, documentFactory, threadPool,
+                pluginStats, contextFactory, aclStore);
+        final ACLExpirySweeper aclExpirySweeper = new ACLExpirySweeper(settings, threadPool, clusterService, aclDocumentManager);
+        this.aclFilter = new DynamicACLFilter(pluginSettings, seed, client, threadPool, requestUtils, aclDocumentManager, pluginStats);
+        pluginStats.register("context", contextFactory::getStats);
         
         PluginServiceFactory.setApiService(apiService);
         PluginServiceFactory.setContextFactory(contextFactory);
@@ -106,7 +123,10 @@ public class OpenShiftElasticSearchPlugin extends Plugin implements Configuratio
         PluginServiceFactory.markReady();
 
         List<Object> list = new ArrayList<>();
+        list.add(pluginStats);
+        list.add(aclStore);
         list.add(aclDocumentManager);
+        list.add(aclExpirySweeper);
         list.add(pluginSettings);
         list.add(indexMappingLoader);
         list.add(pluginClient);
@@ -117,12 +137,20 @@ public class OpenShiftElasticSearchPlugin extends Plugin implements Configuratio
         list.add(kUtils);
         list.add(seed);
         list.add(aclFilter);
-        list.add(new FieldStatsResponseFilter(pluginClient));
+        list.add(new FieldStatsResponseFilter(clusterService, settings));
         list.addAll(sgPlugin.createComponents(client, clusterService, threadPool, resourceWatcherService, scriptService,
                 namedXContentRegistry));
         return list;
     }
 
+    @Override
+    public List<ExecutorBuilder<?>> getExecutorBuilders(Settings settings) {
+        List<ExecutorBuilder<?>> builders = new ArrayList<>(sgPlugin.getExecutorBuilders(settings));
+        builders.add(new FixedExecutorBuilder(settings, OPENSHIFT_API_THREAD_POOL, DEFAULT_OPENSHIFT_API_THREAD_POOL_SIZE,
+                DEFAULT_OPENSHIFT_API_THREAD_POOL_QUEUE_SIZE));
+        return builders;
+    }
+
     @Override
     public UnaryOperator<RestHandler> getRestHandlerWrapper(final ThreadContext threadContext) {
         return (rh) -> aclFilter.wrap(rh, sgPlugin.getRestHandlerWrapper(threadContext));
@@ -133,6 +161,7 @@ public class OpenShiftElasticSearchPlugin extends Plugin implements Configuratio
             ClusterSettings clusterSettings, IndexScopedSettings indexScopedSettings, SettingsFilter settingsFilter,
             IndexNameExpressionResolver indexNameExpressionResolver, Supplier<DiscoveryNodes> nodesInCluster) {
         List<RestHandler> list = new ArrayList<>();
+        list.add(new RestOpenshiftStatsAction(settings, restController));
         list.addAll(sgPlugin.getRestHandlers(settings, restController, clusterSettings, indexScopedSettings,
                 settingsFilter, indexNameExpressionResolver, nodesInCluster));
         return list;
@@ -141,6 +170,8 @@ public class OpenShiftElasticSearchPlugin extends Plugin implements Configuratio
     @Override
     public List<ActionHandler<? extends ActionRequest, ? extends ActionResponse>> getActions() {
         List<ActionHandler<? extends ActionRequest, ? extends ActionResponse>> list = new ArrayList<>();
+        list.add(new ActionHandler<>(OpenshiftStatsAction.INSTANCE, TransportOpenshiftStatsAction.class));
+        list.add(new ActionHandler<>(MaterializeACLAction.INSTANCE, TransportMaterializeACLAction.class));
         list.addAll(sgPlugin.getActions());
         return list;
     }
@@ -203,6 +234,17 @@ public class OpenShiftElasticSearchPlugin extends Plugin implements Configuratio
         List<Setting<?>> settings = sgPlugin.getSettings();
         settings.add(Setting.intSetting(OPENSHIFT_CONTEXT_CACHE_MAXSIZE, DEFAULT_OPENSHIFT_CONTEXT_CACHE_MAXSIZE, Property.NodeScope));
         settings.add(Setting.longSetting(OPENSHIFT_CONTEXT_CACHE_EXPIRE_SECONDS, DEFAULT_OPENSHIFT_CONTEXT_CACHE_EXPIRE_SECONDS, 0, Property.NodeScope));
+        settings.add(Setting.byteSizeSetting(OPENSHIFT_CONTEXT_CACHE_MAX_BYTES, DEFAULT_OPENSHIFT_CONTEXT_CACHE_MAX_BYTES, Property.NodeScope));
+        settings.add(Setting.longSetting(OPENSHIFT_CONTEXT_CACHE_REJECTED_MAXSIZE, DEFAULT_OPENSHIFT_CONTEXT_CACHE_REJECTED_MAXSIZE, 0, Property.NodeScope));
+        settings.add(Setting.longSetting(OPENSHIFT_CONTEXT_CACHE_REJECTED_EXPIRE_SECONDS, DEFAULT_OPENSHIFT_CONTEXT_CACHE_REJECTED_EXPIRE_SECONDS, 0,
+                Property.NodeScope));
+        settings.add(Setting.longSetting(OPENSHIFT_API_TIMEOUT_MILLIS, DEFAULT_OPENSHIFT_API_TIMEOUT_MILLIS, 1, Property.NodeScope));
+        settings.add(Setting.intSetting(OPENSHIFT_API_BREAKER_FAILURE_RATE, DEFAULT_OPENSHIFT_API_BREAKER_FAILURE_RATE, 1, Property.NodeScope));
+        settings.add(Setting.intSetting(OPENSHIFT_API_BREAKER_SLOW_CALL_RATE, DEFAULT_OPENSHIFT_API_BREAKER_SLOW_CALL_RATE, 1, Property.NodeScope));
+        settings.add(Setting.longSetting(OPENSHIFT_API_BREAKER_SLOW_CALL_MILLIS, DEFAULT_OPENSHIFT_API_BREAKER_SLOW_CALL_MILLIS, 0, Property.NodeScope));
+        settings.add(Setting.intSetting(OPENSHIFT_API_BREAKER_MINIMUM_CALLS, DEFAULT_OPENSHIFT_API_BREAKER_MINIMUM_CALLS, 1, Property.NodeScope));
+        settings.add(Setting.longSetting(OPENSHIFT_API_BREAKER_WINDOW_SECONDS, DEFAULT_OPENSHIFT_API_BREAKER_WINDOW_SECONDS, 1, Property.NodeScope));
+        settings.add(Setting.longSetting(OPENSHIFT_API_BREAKER_OPEN_SECONDS, DEFAULT_OPENSHIFT_API_BREAKER_OPEN_SECONDS, 0, Property.NodeScope));
         settings.add(Setting.simpleString(OPENSHIFT_ES_KIBANA_SEED_MAPPINGS_APP, Property.NodeScope));
         settings.add(Setting.simpleString(OPENSHIFT_ES_KIBANA_SEED_MAPPINGS_OPERATIONS, Property.NodeScope));
         settings.add(Setting.simpleString(OPENSHIFT_ES_KIBANA_SEED_MAPPINGS_EMPTY, Property.NodeScope));
@@ -214,9 +256,15 @@ public class OpenShiftElasticSearchPlugin extends Plugin implements Configuratio
         settings.add(Setting.boolSetting(OPENSHIFT_CONFIG_OPS_ALLOW_CLUSTER_READER, false, Property.NodeScope));
         settings.add(Setting.simpleString(OPENSHIFT_KIBANA_INDEX_MODE, Property.NodeScope));
         settings.add(Setting.simpleString(OPENSHIFT_ACL_ROLE_STRATEGY, Property.NodeScope));
+        settings.add(Setting.simpleString(OPENSHIFT_ACL_STORAGE, Property.NodeScope));
         settings.add(Setting.listSetting(OPENSHIFT_KIBANA_OPS_INDEX_PATTERNS, Arrays.asList(DEFAULT_KIBANA_OPS_INDEX_PATTERNS),
                 Function.identity(), Property.NodeScope, Property.Dynamic));
         settings.add(Setting.simpleString(OPENSHIFT_ACL_EXPIRE_IN_MILLIS, Property.NodeScope));
+        settings.add(Setting.longSetting(OPENSHIFT_ACL_EXPIRE_SWEEP_INTERVAL_SECONDS, DEFAULT_OPENSHIFT_ACL_EXPIRE_SWEEP_INTERVAL_SECONDS, 0,
+                Property.NodeScope));
+        settings.add(new Setting<>(OPENSHIFT_ACL_REFRESH_POLICY, DEFAULT_OPENSHIFT_ACL_REFRESH_POLICY, RefreshPolicy::parse, Property.NodeScope));
+        settings.add(Setting.longSetting(OPENSHIFT_ACL_ROLE_CACHE_MAXSIZE, DEFAULT_OPENSHIFT_ACL_ROLE_CACHE_MAXSIZE, 0, Property.NodeScope));
+        settings.add(Setting.intSetting(OPENSHIFT_ACL_CONFLICT_RETRIES, DEFAULT_OPENSHIFT_ACL_CONFLICT_RETRIES, 0, Property.NodeScope));
         settings.add(Setting.simpleString(KIBANA_CONFIG_INDEX_NAME, Property.NodeScope));
         settings.add(Setting.simpleString(KIBANA_CONFIG_VERSION, Property.NodeScope));
         settings.add(Setting.simpleString(KIBANA_VERSION_HEADER, Property.NodeScope));
@@ -239,6 +287,7 @@ public class OpenShiftElasticSearchPlugin extends Plugin implements Configuratio
         if (sgPlugin != null) {
             sgPlugin.close();
         }
+        FileAuthenticationBackend.stopWatching();
         super.close();
     }
 
@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+
+/**
+ * Bulkhead and circuit breaker for calls to the OpenShift API.  Calls are
+ * run on a dedicated bounded executor so a slow master can only tie up that
+ * pool instead of every HTTP worker.  The breaker opens when the error rate or
+ * the rate of slow calls within a window crosses a threshold and fails calls
+ * fast until a single probe call succeeds after the open period.
+ */
+public class OpenshiftAPIGuard {
+
+    private static final Logger LOGGER = Loggers.getLogger(OpenshiftAPIGuard.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final ExecutorService executor;
+    private final long timeoutMillis;
+    private final long slowCallMillis;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final int minimumCalls;
+    private final long windowMillis;
+    private final long openMillis;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shortCircuited = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    private State state = State.CLOSED;
+    private long windowStart = System.currentTimeMillis();
+    private int calls;
+    private int failures;
+    private int slowCalls;
+    private long openedAt;
+    private long timesOpened;
+    private boolean probing;
+
+    /**
+     * @param settings the node settings
+     * @param executor the executor to run calls on or null to run them on
+     *                 the calling thread
+     */
+    public OpenshiftAPIGuard(final Settings settings, final ExecutorService executor) {
+        this.executor = executor;
+        this.timeoutMillis = settings.getAsLong(ConfigurationSettings.OPENSHIFT_API_TIMEOUT_MILLIS,
+                ConfigurationSettings.DEFAULT_OPENSHIFT_API_TIMEOUT_MILLIS);
+        this.slowCallMillis = settings.getAsLong(ConfigurationSettings.OPENSHIFT_API_BREAKER_SLOW_CALL_MILLIS,
+                ConfigurationSettings.DEFAULT_OPENSHIFT_API_BREAKER_SLOW_CALL_MILLIS);
+        this.failureRateThreshold = settings.getAsInt(ConfigurationSettings.OPENSHIFT_API_BREAKER_FAILURE_RATE,
+                ConfigurationSettings.DEFAULT_OPENSHIFT_API_BREAKER_FAILURE_RATE);
+        this.slowCallRateThreshold = settings.getAsInt(ConfigurationSettings.OPENSHIFT_API_BREAKER_SLOW_CALL_RATE,
+                ConfigurationSettings.DEFAULT_OPENSHIFT_API_BREAKER_SLOW_CALL_RATE);
+        this.minimumCalls = settings.getAsInt(ConfigurationSettings.OPENSHIFT_API_BREAKER_MINIMUM_CALLS,
+                ConfigurationSettings.DEFAULT_OPENSHIFT_API_BREAKER_MINIMUM_CALLS);
+        this.windowMillis = TimeUnit.SECONDS.toMillis(settings.getAsLong(ConfigurationSettings.OPENSHIFT_API_BREAKER_WINDOW_SECONDS,
+                ConfigurationSettings.DEFAULT_OPENSHIFT_API_BREAKER_WINDOW_SECONDS));
+        this.openMillis = TimeUnit.SECONDS.toMillis(settings.getAsLong(ConfigurationSettings.OPENSHIFT_API_BREAKER_OPEN_SECONDS,
+                ConfigurationSettings.DEFAULT_OPENSHIFT_API_BREAKER_OPEN_SECONDS));
+    }
+
+    /**
+     * Execute a call to the API unless the breaker is open or the bulkhead is
+     * saturated
+     *
+     * @param callable the call to make
+     * @return the result of the call
+     * @throws Exception the exception thrown by the call or an
+     *          ElasticsearchStatusException when the call was not made or timed out
+     */
+    public <T> T call(final Callable<T> callable) throws Exception {
+        if (!tryAcquire()) {
+            shortCircuited.increment();
+            throw new ElasticsearchStatusException("The circuit breaker for the OpenShift API is open", RestStatus.SERVICE_UNAVAILABLE);
+        }
+        final long start = System.nanoTime();
+        boolean recorded = false;
+        try {
+            final T result = execute(callable);
+            recorded = true;
+            onResult(true, System.nanoTime() - start);
+            return result;
+        } catch (EsRejectedExecutionException e) {
+            recorded = true;
+            onRejected();
+            throw new ElasticsearchStatusException("Too many pending calls to the OpenShift API", RestStatus.TOO_MANY_REQUESTS, e);
+        } catch (RejectedExecutionException e) {
+            recorded = true;
+            onRejected();
+            throw new ElasticsearchStatusException("Too many pending calls to the OpenShift API", RestStatus.TOO_MANY_REQUESTS, e);
+        } catch (Exception e) {
+            recorded = true;
+            onResult(isAuthenticationFailure(e), System.nanoTime() - start);
+            throw e;
+        } finally {
+            if (!recorded) {
+                // an Error must not leave the breaker waiting for a probe which never completes
+                onResult(false, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private <T> T execute(final Callable<T> callable) throws Exception {
+        if (executor == null) {
+            return callable.call();
+        }
+        final Future<T> future = executor.submit(callable);
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new ElasticsearchStatusException("Timed out waiting {}ms for the OpenShift API", RestStatus.GATEWAY_TIMEOUT, timeoutMillis);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /*
+     * The API answering that a token is invalid is a healthy API
+     */
+    private static boolean isAuthenticationFailure(final Exception e) {
+        RestStatus status = RejectedTokenCache.statusOf(e);
+        return RestStatus.UNAUTHORIZED == status || RestStatus.FORBIDDEN == status;
+    }
+
+    private synchronized boolean tryAcquire() {
+        switch (state) {
+        case OPEN:
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                return false;
+            }
+            LOGGER.info("Allowing a probe call to the OpenShift API after the circuit breaker was open for {}ms", openMillis);
+            state = State.HALF_OPEN;
+            probing = true;
+            return true;
+        case HALF_OPEN:
+            if (probing) {
+                return false;
+            }
+            probing = true;
+            return true;
+        default:
+            return true;
+        }
+    }
+
+    private synchronized void onRejected() {
+        rejected.increment();
+        if (state == State.HALF_OPEN) {
+            probing = false;
+        }
+    }
+
+    private synchronized void onResult(final boolean success, final long elapsedNanos) {
+        final long now = System.currentTimeMillis();
+        final boolean slow = TimeUnit.NANOSECONDS.toMillis(elapsedNanos) >= slowCallMillis;
+        if (state == State.HALF_OPEN) {
+            probing = false;
+            if (success && !slow) {
+                LOGGER.info("Closing the circuit breaker for the OpenShift API");
+                state = State.CLOSED;
+                resetWindow(now);
+            } else {
+                open(now);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        if (now - windowStart >= windowMillis) {
+            resetWindow(now);
+        }
+        calls++;
+        if (!success) {
+            failures++;
+        }
+        if (slow) {
+            slowCalls++;
+        }
+        if (calls >= minimumCalls
+                && (failures * 100L >= (long) failureRateThreshold * calls || slowCalls * 100L >= (long) slowCallRateThreshold * calls)) {
+            open(now);
+        }
+    }
+
+    private void open(final long now) {
+        LOGGER.warn("Opening the circuit breaker for the OpenShift API for {}ms. calls: {}, failures: {}, slow calls: {}",
+                openMillis, calls, failures, slowCalls);
+        state = State.OPEN;
+        openedAt = now;
+        timesOpened++;
+        resetWindow(now);
+    }
+
+    private void resetWindow(final long now) {
+        windowStart = now;
+        calls = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getTimesOpened() {
+        return timesOpened;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getShortCircuitedCount() {
+        return shortCircuited.sum();
+    }
+
+    public long getTimedOutCount() {
+        return timedOut.sum();
+    }
+}
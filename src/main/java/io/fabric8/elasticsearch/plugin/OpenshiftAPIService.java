@@ -34,6 +34,8 @@ import org.elasticsearch.rest.RestStatus;
 import com.jayway.jsonpath.JsonPath;
 
 import io.fabric8.elasticsearch.plugin.model.Project;
+import io.fabric8.elasticsearch.plugin.stats.PluginStats;
+import io.fabric8.elasticsearch.plugin.stats.PluginStats.ApiEndpoint;
 import io.fabric8.kubernetes.client.Config;
 import io.fabric8.kubernetes.client.ConfigBuilder;
 import io.fabric8.kubernetes.client.KubernetesClientException;
@@ -53,16 +55,27 @@ public class OpenshiftAPIService {
     private static final String APPLICATION_JSON = "application/json";
     private static final Logger LOGGER = Loggers.getLogger(OpenshiftAPIService.class);
     private final OpenShiftClientFactory factory;
+    private final PluginStats stats;
     
     public OpenshiftAPIService() {
         this(new OpenShiftClientFactory(){});
     }
     
+    public OpenshiftAPIService(final PluginStats stats) {
+        this(new OpenShiftClientFactory(){}, stats);
+    }
+    
     public OpenshiftAPIService(OpenShiftClientFactory factory) {
+        this(factory, new PluginStats());
+    }
+    
+    public OpenshiftAPIService(OpenShiftClientFactory factory, final PluginStats stats) {
         this.factory = factory;
+        this.stats = stats;
     }
     
     public String userName(final String token) {
+        final long start = System.nanoTime();
         Response response = null;
         try (DefaultOpenShiftClient client = factory.buildClient(token)) {
             Request okRequest = new Request.Builder()
@@ -86,10 +99,12 @@ public class OpenshiftAPIService {
             if (response != null ) {
                 response.close();
             }
+            stats.onApiCall(ApiEndpoint.USER, start);
         }
     }
     
     public Set<Project> projectNames(final String token){
+        final long start = System.nanoTime();
         Response response = null;
         try (DefaultOpenShiftClient client = factory.buildClient(token)) {
             Request request = new Request.Builder()
@@ -109,7 +124,7 @@ public class OpenshiftAPIService {
             return projects;
         } catch (KubernetesClientException e) {
             LOGGER.error("Error retrieving project list", e);
-            throw new ElasticsearchSecurityException(e.getMessage());
+            throw new ElasticsearchSecurityException(e.getMessage(), statusOf(e), e);
         } catch (IOException e) {
             LOGGER.error("Error retrieving project list", e);
             throw new ElasticsearchException(e);
@@ -117,9 +132,19 @@ public class OpenshiftAPIService {
             if (response != null ) {
                 response.close();
             }
+            stats.onApiCall(ApiEndpoint.PROJECTS, start);
         }
     }
     
+    /*
+     * Only a response of the API tells if the token was rejected.  A client
+     * error without one (e.g. the master is unreachable) is a transient failure
+     */
+    private static RestStatus statusOf(final KubernetesClientException e) {
+        RestStatus status = RestStatus.fromCode(e.getCode());
+        return status == null ? RestStatus.SERVICE_UNAVAILABLE : status;
+    }
+
     /**
      * Execute a LocalSubectAccessReview
      * 
@@ -137,6 +162,7 @@ public class OpenshiftAPIService {
      */
     public boolean localSubjectAccessReview(final String token, 
             final String project, final String verb, final String resource, final String resourceAPIGroup, final String [] scopes) {
+        final long start = System.nanoTime();
         Response response = null;
         try (DefaultOpenShiftClient client = factory.buildClient(token)) {
             XContentBuilder payload = XContentFactory.jsonBuilder()
@@ -175,6 +201,7 @@ public class OpenshiftAPIService {
             if (response != null ) {
                 response.close();
             }
+            stats.onApiCall(ApiEndpoint.SUBJECT_ACCESS_REVIEW, start);
         }
         return false;
     }
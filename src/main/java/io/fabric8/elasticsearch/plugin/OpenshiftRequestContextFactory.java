@@ -25,39 +25,48 @@ import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.SpecialPermission;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.rest.RestRequest;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 
+import io.fabric8.elasticsearch.plugin.acl.BaseRolesSyncStrategy;
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles;
+import io.fabric8.elasticsearch.plugin.auth.BackendRoleRetriever;
 import io.fabric8.elasticsearch.plugin.model.Project;
+import io.fabric8.elasticsearch.plugin.model.ProjectSet;
 import io.fabric8.elasticsearch.util.RequestUtils;
 
 /**
  * Context of information regarding a use
  */
 public class OpenshiftRequestContextFactory 
-    extends CacheLoader<String, OpenshiftRequestContextFactory.OpenshiftRequestContext> 
-    implements RemovalListener<String, OpenshiftRequestContextFactory.OpenshiftRequestContext> {
+    implements RemovalListener<TokenKey, OpenshiftRequestContextFactory.OpenshiftRequestContext> {
 
     private static final Logger LOGGER = Loggers.getLogger(OpenshiftRequestContextFactory.class);
 
@@ -66,14 +75,37 @@ public class OpenshiftRequestContextFactory
     private final String[] operationsProjects;
     private final String kibanaPrefix;
     private String kibanaIndexMode;
-    private LoadingCache<String, OpenshiftRequestContext> contextCache;
+    private Cache<TokenKey, OpenshiftRequestContext> contextCache;
+    private final long maxWeight;
+    private final LongAdder weight = new LongAdder();
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final RejectedTokenCache rejectedTokens;
+    private final OpenshiftAPIGuard apiGuard;
     private ThreadContext threadContext;
+    private volatile boolean backendRolesMapped = true;
 
     public OpenshiftRequestContextFactory(
             final Settings settings,
             final RequestUtils utils,
             final OpenshiftAPIService apiService,
             final ThreadContext threadContext){
+        this(settings, utils, apiService, threadContext, null);
+    }
+
+    /**
+     * @param settings      the node settings
+     * @param utils         the request utilities
+     * @param apiService    the OpenShift API service
+     * @param threadContext the thread context
+     * @param apiExecutor   the bounded executor used to call the OpenShift API or
+     *                      null to call it from the requesting thread
+     */
+    public OpenshiftRequestContextFactory(
+            final Settings settings,
+            final RequestUtils utils,
+            final OpenshiftAPIService apiService,
+            final ThreadContext threadContext,
+            final ExecutorService apiExecutor){
         this.threadContext = threadContext;
         this.apiService = apiService;
         this.utils = utils;
@@ -87,44 +119,125 @@ public class OpenshiftRequestContextFactory
         }
         LOGGER.info("Using kibanaIndexMode: '{}'", this.kibanaIndexMode);
         
-        contextCache = CacheBuilder.newBuilder()
-                .maximumSize(settings.getAsInt(ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_MAXSIZE, 
-                        ConfigurationSettings.DEFAULT_OPENSHIFT_CONTEXT_CACHE_MAXSIZE))
+        this.maxWeight = ByteSizeValue.parseBytesSizeValue(settings.get(ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_MAX_BYTES,
+                ConfigurationSettings.DEFAULT_OPENSHIFT_CONTEXT_CACHE_MAX_BYTES), ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_MAX_BYTES).getBytes();
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        if (maxWeight > 0) {
+            if (settings.get(ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_MAXSIZE) != null) {
+                LOGGER.warn("Both '{}' and '{}' are set, the context cache is limited by '{}' only",
+                        ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_MAX_BYTES, ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_MAXSIZE,
+                        ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_MAX_BYTES);
+            }
+            builder.maximumWeight(maxWeight)
+                .weigher((TokenKey key, OpenshiftRequestContext context) -> (int) Math.min(Integer.MAX_VALUE, context.getEstimatedBytes()));
+        } else {
+            builder.maximumSize(settings.getAsInt(ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_MAXSIZE, 
+                    ConfigurationSettings.DEFAULT_OPENSHIFT_CONTEXT_CACHE_MAXSIZE));
+        }
+        contextCache = builder
                 .expireAfterWrite(settings.getAsLong(ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_EXPIRE_SECONDS, 
                         ConfigurationSettings.DEFAULT_OPENSHIFT_CONTEXT_CACHE_EXPIRE_SECONDS), TimeUnit.SECONDS)
                 .removalListener(this)
-                .build(this);
+                .recordStats()
+                .build();
+        rejectedTokens = new RejectedTokenCache(settings);
+        apiGuard = new OpenshiftAPIGuard(settings, apiExecutor);
     }
     
     
 
     @Override
-    public void onRemoval(RemovalNotification<String, OpenshiftRequestContext> event) {
+    public void onRemoval(RemovalNotification<TokenKey, OpenshiftRequestContext> event) {
+        weight.add(-event.getValue().getEstimatedBytes());
+        if (event.getCause() == RemovalCause.SIZE) {
+            sizeEvictions.increment();
+        }
         if(LOGGER.isDebugEnabled()) {
             LOGGER.debug("Evicted cache entry for {} because: {}",event.getValue().getUser(), event.getCause().name() );
         }
     }
 
-    @Override
-    public OpenshiftRequestContextFactory.OpenshiftRequestContext load(String token) throws Exception {
+    /**
+     * Resolve the context of a token which is not cached
+     *
+     * @param token the bearer token
+     * @return the context of the token
+     * @throws Exception if the token could not be resolved
+     */
+    public OpenshiftRequestContextFactory.OpenshiftRequestContext load(final String token) throws Exception {
+        OpenshiftRequestContext context = apiGuard.call(() -> resolve(token));
+        threadContext.putTransient(ConfigurationSettings.SYNC_AND_SEED, Boolean.TRUE);
+        return context;
+    }
+
+    /*
+     * Resolves the context for a token using the API.  This may run on the API
+     * executor so it must not modify the caller's thread context
+     */
+    private OpenshiftRequestContext resolve(final String token) throws Exception {
         String user = utils.assertUser(token);
         boolean isClusterAdmin = utils.isOperationsUser(user, token);
         if(user.contains("\\")){
             user = user.replace("\\", "/");
         }
-        Set<Project> projects = new HashSet<>();
+        Set<Project> projects = ProjectSet.EMPTY;
         if(!isClusterAdmin) { //skip fetching projects because getting full access anyway
             projects = listProjectsFor(user, token);
         }
-        Collection<String> backend = PluginServiceFactory.getBackendRoleRetriever().retrieveBackendRoles(token);
-        threadContext.putTransient(ConfigurationSettings.SYNC_AND_SEED, Boolean.TRUE);
-        OpenshiftRequestContext context 
-            = new OpenshiftRequestContext(user, token, isClusterAdmin, projects, getKibanaIndex(user, isClusterAdmin), this.kibanaIndexMode, backend);
+        final String usernameHash = getUsernameHash(user);
+        // only capture the token when the backend roles may be resolved with it
+        final Supplier<Collection<String>> backendRoles = backendRolesMapped ? () -> resolveBackendRoles(token) : Collections::emptyList;
+        OpenshiftRequestContext context = new OpenshiftRequestContext(user, token, isClusterAdmin, projects, usernameHash,
+                getKibanaIndex(kibanaPrefix, kibanaIndexMode, user, usernameHash, isClusterAdmin), this.kibanaIndexMode,
+                backendRoles);
         LOGGER.debug("Loaded cache for context '{}'", context.getUser());
         LOGGER.trace("Loaded cache for context '{}'", context);
         return context;
     }
 
+    /*
+     * Backend roles are only of use when a roles mapping refers to them so the
+     * subject access reviews are deferred until the roles are asked for and
+     * skipped when no mapping has backend roles.  No roles are memoized in
+     * that case so the context releases the token; a mapping which later
+     * refers to backend roles applies to the context once it is reloaded.
+     * Returning null signals the context not to memoize the result.  A failure
+     * is thrown so the context can hold off asking again for a while
+     */
+    private Collection<String> resolveBackendRoles(final String token) {
+        if (!backendRolesMapped) {
+            return Collections.emptyList();
+        }
+        final BackendRoleRetriever retriever = PluginServiceFactory.getBackendRoleRetriever();
+        if (retriever == null) {
+            return null;
+        }
+        final Collection<String> roles;
+        try {
+            roles = apiGuard.call(() -> retriever.retrieveBackendRoles(token));
+        } catch (Exception e) {
+            throw new ElasticsearchException("Unable to retrieve the backend roles", e);
+        }
+        return roles == null ? Collections.emptyList() : roles;
+    }
+
+    /**
+     * Set whether any roles mapping refers to backend roles.  Until the
+     * mappings are known they are assumed to
+     *
+     * @param mapped true if a mapping has backend roles
+     */
+    public void setBackendRolesMapped(final boolean mapped) {
+        if (backendRolesMapped != mapped) {
+            LOGGER.debug("Backend roles are {}mapped. Resolving them is {}", mapped ? "" : "not ", mapped ? "enabled" : "skipped");
+        }
+        this.backendRolesMapped = mapped;
+    }
+
+    public boolean isBackendRolesMapped() {
+        return backendRolesMapped;
+    }
+
     /**
      * Create a user context from the given request
      *
@@ -139,9 +252,19 @@ public class OpenshiftRequestContextFactory
         }
         String token = utils.getBearerToken(request);
         if (StringUtils.isNotBlank(token)){
+            final TokenKey key = TokenKey.of(token);
+            if (rejectedTokens.isRejected(key)) {
+                LOGGER.debug("Returning EMPTY request context; token recently failed to resolve to a user.");
+                return OpenshiftRequestContext.EMPTY;
+            }
             try {
-                return contextCache.get(token);
+                return contextCache.get(key, () -> {
+                    OpenshiftRequestContext context = load(token);
+                    weight.add(context.getEstimatedBytes());
+                    return context;
+                });
             } catch(Exception e) {
+                rejectedTokens.onFailure(key, e);
                 LOGGER.error("Error trying to fetch user's context from the cache",e);
             }
         }
@@ -149,6 +272,51 @@ public class OpenshiftRequestContextFactory
         return OpenshiftRequestContext.EMPTY;
     }
     
+    public RejectedTokenCache getRejectedTokenCache() {
+        return rejectedTokens;
+    }
+
+    public OpenshiftAPIGuard getApiGuard() {
+        return apiGuard;
+    }
+
+    /**
+     * @return the statistics of the context cache, the rejected tokens and
+     *          the guard of the API calls
+     */
+    public Map<String, Object> getStats() {
+        CacheStats cacheStats = contextCache.stats();
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("size", contextCache.size());
+        cache.put("hits", cacheStats.hitCount());
+        cache.put("misses", cacheStats.missCount());
+        cache.put("load_successes", cacheStats.loadSuccessCount());
+        cache.put("load_failures", cacheStats.loadExceptionCount());
+        cache.put("total_load_time_millis", TimeUnit.NANOSECONDS.toMillis(cacheStats.totalLoadTime()));
+        cache.put("average_load_time_millis", cacheStats.averageLoadPenalty() / TimeUnit.MILLISECONDS.toNanos(1));
+        cache.put("evictions", cacheStats.evictionCount());
+        cache.put("evictions_by_size", sizeEvictions.sum());
+        cache.put("estimated_bytes", weight.sum());
+        cache.put("max_bytes", maxWeight);
+
+        Map<String, Object> rejected = new LinkedHashMap<>();
+        rejected.put("size", rejectedTokens.size());
+        rejected.put("avoided_calls", rejectedTokens.getAvoidedCalls());
+
+        Map<String, Object> guard = new LinkedHashMap<>();
+        guard.put("state", apiGuard.getState().name().toLowerCase());
+        guard.put("times_opened", apiGuard.getTimesOpened());
+        guard.put("rejected", apiGuard.getRejectedCount());
+        guard.put("short_circuited", apiGuard.getShortCircuitedCount());
+        guard.put("timed_out", apiGuard.getTimedOutCount());
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cache", cache);
+        stats.put("rejected_tokens", rejected);
+        stats.put("api_guard", guard);
+        return stats;
+    }
+
     private void logRequest(final RestRequest request) {
         if (LOGGER.isDebugEnabled()) {
             String user = utils.getUser(request);
@@ -199,12 +367,16 @@ public class OpenshiftRequestContextFactory
         return ArrayUtils.contains(operationsProjects, project.toLowerCase());
     }
 
-    private String getKibanaIndex(String username, boolean isOpsUser) {
-        return getKibanaIndex(kibanaPrefix, kibanaIndexMode, username, isOpsUser);
+    public static String getKibanaIndex(final String kibanaPrefix, final String kibanaIndexMode, final String username,
+            final boolean isOpsUser) {
+        return getKibanaIndex(kibanaPrefix, kibanaIndexMode, username, StringUtils.isBlank(username) ? "" : getUsernameHash(username), isOpsUser);
     }
 
+    /**
+     * @param usernameHash the hash of the username as returned by {@link #getUsernameHash(String)}
+     */
     public static String getKibanaIndex(final String kibanaPrefix, final String kibanaIndexMode, final String username,
-            final boolean isOpsUser) {
+            final String usernameHash, final boolean isOpsUser) {
         if (StringUtils.isBlank(username)) {
             return "";
         }
@@ -214,7 +386,7 @@ public class OpenshiftRequestContextFactory
         if (SHARED_NON_OPS.equals(kibanaIndexMode)) {
             return kibanaPrefix + "_non_ops";
         }
-        return kibanaPrefix + "." + getUsernameHash(username);
+        return kibanaPrefix + "." + usernameHash;
 
     }
     
@@ -225,25 +397,85 @@ public class OpenshiftRequestContextFactory
     public static class OpenshiftRequestContext {
 
         public static final OpenshiftRequestContext EMPTY = new OpenshiftRequestContext("", "", false,
-                new HashSet<Project>(), "", "", Collections.emptyList());
+                ProjectSet.EMPTY, "", "", Collections.emptyList());
+
+        // the context, the collections and the cache entry
+        private static final long CONTEXT_BYTES = 400;
+        // the reference to the canonical project which is shared with other contexts
+        private static final long PROJECT_BYTES = 8;
+        // the backend roles are resolved after the context is weighed
+        private static final long BACKEND_ROLES_BYTES = 256;
+        private static final long BACKEND_ROLES_RETRY_NANOS = TimeUnit.SECONDS.toNanos(5);
 
         private final String user;
-        private final String token;
+        private final boolean authenticated;
         private final boolean isClusterAdmin;
         private final Set<Project> projects;
         private final String kibanaIndex;
         private final String kibanaIndexMode;
-        private final Collection<String> backendRoles;
+        private final String usernameHash;
+        private final String userRoleName;
+        private final String userKibanaRoleName;
+        private final String uniqueKibanaRoleName;
+        private Supplier<Collection<String>> backendRolesSupplier;
+        private final long estimatedBytes;
+        private volatile Collection<String> backendRoles;
+        private boolean backendRolesFailed;
+        private long backendRolesFailedAt;
 
         public OpenshiftRequestContext(final String user, final String token, boolean isClusterAdmin, 
                 Set<Project> projects, String kibanaIndex, final String kibanaIndexMode, Collection<String> backend) {
+            this(user, token, isClusterAdmin, projects, kibanaIndex, kibanaIndexMode, () -> backend);
+        }
+
+        /**
+         * @param backend supplies the backend roles the first time they are
+         *                needed.  A null result is treated as no roles and
+         *                is not memoized
+         */
+        public OpenshiftRequestContext(final String user, final String token, boolean isClusterAdmin, 
+                Set<Project> projects, String kibanaIndex, final String kibanaIndexMode, Supplier<Collection<String>> backend) {
+            this(user, token, isClusterAdmin, projects, StringUtils.isEmpty(user) ? "" : OpenshiftRequestContextFactory.getUsernameHash(user), kibanaIndex, kibanaIndexMode,
+                    backend);
+        }
+
+        /**
+         * The names derived from the username are computed once here instead
+         * of for every request made with the context
+         * 
+         * The token is not retained by the context.  Only the supplier of the
+         * backend roles may hold on to it until the roles are resolved, which
+         * is right away when no roles mapping refers to backend roles
+         * 
+         * @param usernameHash the hash of the user as returned by {@link OpenshiftRequestContextFactory#getUsernameHash(String)}
+         * @param backend supplies the backend roles the first time they are
+         *                needed.  A null result is treated as no roles and
+         *                is not memoized
+         */
+        public OpenshiftRequestContext(final String user, final String token, boolean isClusterAdmin, Set<Project> projects,
+                final String usernameHash, String kibanaIndex, final String kibanaIndexMode, Supplier<Collection<String>> backend) {
             this.user = user;
-            this.token = token;
+            this.authenticated = StringUtils.isNotEmpty(token) && StringUtils.isNotEmpty(user);
             this.isClusterAdmin = isClusterAdmin;
-            this.projects = new HashSet<>(projects);
+            this.projects = ProjectSet.of(projects);
             this.kibanaIndex = kibanaIndex;
             this.kibanaIndexMode = kibanaIndexMode;
-            this.backendRoles = backend;
+            this.backendRolesSupplier = backend;
+            this.usernameHash = usernameHash;
+            this.userRoleName = BaseRolesSyncStrategy.formatUserRoleNameFromHash(usernameHash);
+            this.userKibanaRoleName = BaseRolesSyncStrategy.formatUserKibanaRoleNameFromHash(usernameHash);
+            this.uniqueKibanaRoleName = SearchGuardRoles.formatUniqueKibanaRoleNameFromHash(usernameHash);
+            this.estimatedBytes = estimateBytes();
+        }
+
+        private long estimateBytes() {
+            long bytes = CONTEXT_BYTES + BACKEND_ROLES_BYTES + estimateBytes(user) + estimateBytes(kibanaIndex) + estimateBytes(usernameHash)
+                + estimateBytes(userRoleName) + estimateBytes(userKibanaRoleName) + estimateBytes(uniqueKibanaRoleName);
+            return bytes + PROJECT_BYTES * projects.size();
+        }
+
+        private static long estimateBytes(final String value) {
+            return value == null ? 0 : 40 + 2L * value.length();
         }
         
         public String toString() {
@@ -264,17 +496,13 @@ public class OpenshiftRequestContextFactory
          * @return true if there is a non-empty user and token
          */
         public boolean isAuthenticated() {
-            return StringUtils.isNotEmpty(token) && StringUtils.isNotEmpty(user);
+            return authenticated;
         }
 
         public String getUser() {
             return this.user;
         }
 
-        public String getToken() {
-            return this.token;
-        }
-
         public boolean isOperationsUser() {
             return isClusterAdmin;
         }
@@ -296,8 +524,65 @@ public class OpenshiftRequestContextFactory
             return this.kibanaIndexMode;
         }
 
+        public String getUsernameHash() {
+            return this.usernameHash;
+        }
+
+        /**
+         * @return the name of the generated role giving the user access to the
+         *          indices of its projects
+         */
+        public String getUserRoleName() {
+            return this.userRoleName;
+        }
+
+        public String getUserKibanaRoleName() {
+            return this.userKibanaRoleName;
+        }
+
+        /**
+         * @return the name of the role giving the user access to its own
+         *          Kibana index
+         */
+        public String getUniqueKibanaRoleName() {
+            return this.uniqueKibanaRoleName;
+        }
+
+        /**
+         * @return the estimated heap retained by the context which is used to
+         *          weigh it in the cache
+         */
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
         public Collection<String> getBackendRoles() {
-            return backendRoles;
+            Collection<String> roles = backendRoles;
+            if (roles == null) {
+                synchronized (this) {
+                    roles = backendRoles;
+                    if (roles == null) {
+                        if (backendRolesFailed && System.nanoTime() - backendRolesFailedAt < BACKEND_ROLES_RETRY_NANOS) {
+                            return Collections.emptyList();
+                        }
+                        try {
+                            roles = backendRolesSupplier.get();
+                        } catch (RuntimeException e) {
+                            LOGGER.error("Unable to resolve the backend roles of user {}", user, e);
+                            backendRolesFailed = true;
+                            backendRolesFailedAt = System.nanoTime();
+                            return Collections.emptyList();
+                        }
+                        if (roles == null) {
+                            return Collections.emptyList();
+                        }
+                        backendRoles = roles;
+                        // release the token captured by the supplier
+                        backendRolesSupplier = null;
+                    }
+                }
+            }
+            return roles;
         }
     }
 
@@ -22,12 +22,14 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.ElasticsearchException;
-
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
 import org.elasticsearch.action.admin.indices.alias.IndicesAliasesResponse;
 import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequestBuilder;
@@ -68,6 +70,7 @@ import com.floragunn.searchguard.support.ConfigConstants;
 public class PluginClient {
 
     private static Logger LOGGER = Loggers.getLogger(PluginClient.class);
+    private static final ThreadLocal<long[]> ROUND_TRIPS = ThreadLocal.withInitial(() -> new long[1]);
     private final Client client;
     private final ThreadContext threadContext;
 
@@ -144,6 +147,10 @@ public class PluginClient {
                 }
             });  
         }
+
+        public CompletableFuture<BulkResponse> executeAsync() {
+            return pluginClient.executeAsync(listener -> builder.execute(listener));
+        }
     }
     
     
@@ -348,6 +355,77 @@ public class PluginClient {
         });
     }
 
+    public CompletableFuture<SearchResponse> searchAsync(String index, String type, int size, boolean fetchSource) {
+        return executeAsync(listener -> client.prepareSearch(index)
+                .setTypes(type)
+                .setSize(size)
+                .setFetchSource(fetchSource)
+                .addSort("_index", SortOrder.ASC)
+                .execute(listener));
+    }
+
+    public CompletableFuture<GetIndexResponse> getIndexAsync(String... indices) {
+        return executeAsync(listener -> client.admin().indices().prepareGetIndex().addIndices(indices).execute(listener));
+    }
+
+    public CompletableFuture<GetResponse> getDocumentAsync(String index, String type, String id) {
+        return executeAsync(listener -> client.prepareGet(index, type, id).execute(listener));
+    }
+
+    public CompletableFuture<Boolean> documentExistsAsync(String index, String type, String id) {
+        return getDocumentAsync(index, type, id).thenApply(GetResponse::isExists);
+    }
+
+    public CompletableFuture<IndexResponse> createDocumentAsync(String index, String type, String id, String source) {
+        LOGGER.trace("create document: '{}/{}/{}' source: '{}'", index, type, id, source);
+        return executeAsync(listener -> client.prepareIndex(index, type, id).setSource(source, XContentType.JSON).execute(listener));
+    }
+
+    public CompletableFuture<UpdateResponse> updateDocumentAsync(String index, String type, String id, String source) {
+        return executeAsync(listener -> client.prepareUpdate(index, type, id).setDoc(source, XContentType.JSON)
+                .setDocAsUpsert(true).execute(listener));
+    }
+
+    public CompletableFuture<Boolean> indexExistsAsync(String index) {
+        return executeAsync((ActionListener<IndicesExistsResponse> listener) -> client.admin().indices().prepareExists(index).execute(listener))
+                .thenApply(IndicesExistsResponse::isExists);
+    }
+
+    public CompletableFuture<RefreshResponse> refreshIndicesAsync(String... indices) {
+        return executeAsync(listener -> client.admin().indices().prepareRefresh(indices).execute(listener));
+    }
+
+    /**
+     * Copy the mappings of the given types of an index to a new index without
+     * blocking
+     */
+    public CompletableFuture<CreateIndexResponse> copyIndexAsync(final String index, final String target, Settings settings, String... types) {
+        LOGGER.trace("Copying {} index to {} for types {}", index, target, types);
+        return executeAsync((ActionListener<GetIndexResponse> listener) -> client.admin().indices().prepareGetIndex().setIndices(index)
+                .execute(listener))
+            .thenCompose(response -> executeAsync((ActionListener<CreateIndexResponse> listener) -> {
+                CreateIndexRequestBuilder builder = client.admin().indices().prepareCreate(target);
+                if (settings != null) {
+                    builder.setSettings(settings);
+                }
+                for (String type : types) {
+                    builder.addMapping(type, response.mappings().get(index).get(type).getSourceAsMap());
+                }
+                builder.execute(listener);
+            }));
+    }
+
+    /**
+     * The number of requests executed by this client on the current thread.
+     * The difference between two calls is the number of round trips made in
+     * between
+     * 
+     * @return the number of requests
+     */
+    public long getRoundTrips() {
+        return ROUND_TRIPS.get()[0];
+    }
+
     public void addCommonHeaders() {
         if (StringUtils.isBlank(threadContext.getTransient(ConfigConstants.SG_CHANNEL_TYPE))) {
             threadContext.putTransient(ConfigConstants.SG_CHANNEL_TYPE, "direct");
@@ -361,9 +439,87 @@ public class PluginClient {
     public <T> T execute(Callable<T> callable) {
         try (StoredContext context = threadContext.stashContext()) {
             addCommonHeaders();
+            ROUND_TRIPS.get()[0]++;
             return callable.call();
         } catch (Exception e) {
             throw new ElasticsearchException(e);
         }
     }
+
+    /**
+     * Execute an action directly against Elasticsearch bypassing
+     * authorization restrictions without waiting for its response.  The
+     * request is sent from a stashed context with the common headers, like
+     * {@link #execute(Callable)}, and the listener is notified in the context
+     * of the caller on whichever thread completes the request
+     * 
+     * @param request  sends the request and notifies the listener it is given
+     * @param listener the listener of the response
+     */
+    public <T> void executeAsync(final Consumer<ActionListener<T>> request, final ActionListener<T> listener) {
+        final StoredContext callerContext = threadContext.stashContext();
+        final ActionListener<T> restoringListener = new CallerContextListener<>(callerContext, listener);
+        try {
+            addCommonHeaders();
+            ROUND_TRIPS.get()[0]++;
+            request.accept(restoringListener);
+        } catch (Exception e) {
+            restoringListener.onFailure(e);
+        } finally {
+            callerContext.close();
+        }
+    }
+
+    /**
+     * @param request sends the request and notifies the listener it is given
+     * @return a future completed with the response in the context of the
+     *          caller.  Dependent stages must not block
+     */
+    public <T> CompletableFuture<T> executeAsync(final Consumer<ActionListener<T>> request) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        executeAsync(request, new ActionListener<T>() {
+
+            @Override
+            public void onResponse(T response) {
+                future.complete(response);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /*
+     * Notifies a listener in the context of the caller and restores the
+     * context of the notifying thread afterwards
+     */
+    private final class CallerContextListener<T> implements ActionListener<T> {
+
+        private final StoredContext callerContext;
+        private final ActionListener<T> delegate;
+
+        CallerContextListener(final StoredContext callerContext, final ActionListener<T> delegate) {
+            this.callerContext = callerContext;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onResponse(T response) {
+            try (StoredContext context = threadContext.stashContext()) {
+                callerContext.close();
+                delegate.onResponse(response);
+            }
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            try (StoredContext context = threadContext.stashContext()) {
+                callerContext.close();
+                delegate.onFailure(e);
+            }
+        }
+    }
 }
@@ -41,6 +41,7 @@ public class PluginSettings implements ConfigurationSettings {
     private final String kbnVersionHeader;
     private final Set<String> opsIndexPatterns;
     private final long expireInMillis;
+    private final String aclStorage;
     private final Settings settings;
     
     public PluginSettings(final Settings settings) {
@@ -65,9 +66,12 @@ public class PluginSettings implements ConfigurationSettings {
         this.expireInMillis = settings.getAsLong(OPENSHIFT_CONTEXT_CACHE_EXPIRE_SECONDS,
                 DEFAULT_OPENSHIFT_CONTEXT_CACHE_EXPIRE_SECONDS) * 1000;
 
+        this.aclStorage = settings.get(OPENSHIFT_ACL_STORAGE, ACL_STORAGE_DOCUMENT).toLowerCase();
+
         LOGGER.info("Using kibanaIndexMode: '{}'", this.kibanaIndexMode);
         LOGGER.debug("searchGuardIndex: {}", this.searchGuardIndex);
         LOGGER.debug("roleStrategy: {}", this.roleStrategy);
+        LOGGER.debug("aclStorage: {}", this.aclStorage);
 
     }
     
@@ -79,6 +83,10 @@ public class PluginSettings implements ConfigurationSettings {
         return expireInMillis;
     }
     
+    public String getACLStorage() {
+        return aclStorage;
+    }
+
     public String getRoleStrategy() {
         return this.roleStrategy;
     }
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.RestStatus;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Short lived memory of tokens the OpenShift API recently rejected (401/403)
+ * so they can be turned away without calling the API again. Failures of the
+ * API itself (5xx, IO errors) are not remembered; outages are handled by the
+ * {@link OpenshiftAPIGuard}. Only the {@link TokenKey} of the token is retained.
+ */
+public class RejectedTokenCache {
+
+    private static final Logger LOGGER = Loggers.getLogger(RejectedTokenCache.class);
+
+    private final Cache<TokenKey, RestStatus> rejected;
+    private final LongAdder avoidedCalls = new LongAdder();
+
+    public RejectedTokenCache(final Settings settings) {
+        this.rejected = build(settings.getAsLong(ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_REJECTED_MAXSIZE,
+                ConfigurationSettings.DEFAULT_OPENSHIFT_CONTEXT_CACHE_REJECTED_MAXSIZE),
+                settings.getAsLong(ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_REJECTED_EXPIRE_SECONDS,
+                ConfigurationSettings.DEFAULT_OPENSHIFT_CONTEXT_CACHE_REJECTED_EXPIRE_SECONDS));
+    }
+
+    private static Cache<TokenKey, RestStatus> build(final long maxSize, final long expireSeconds) {
+        if (expireSeconds <= 0) {
+            return null;
+        }
+        return CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Determine if the token was recently rejected.  Every positive answer
+     * is counted as an avoided call to the API
+     *
+     * @param token the bearer token
+     * @return true if the token should be rejected without further evaluation
+     */
+    public boolean isRejected(final String token) {
+        return isRejected(TokenKey.of(token));
+    }
+
+    /**
+     * @param key the key of the bearer token
+     * @return true if the token should be rejected without further evaluation
+     */
+    public boolean isRejected(final TokenKey key) {
+        final RestStatus status = rejected == null ? null : rejected.getIfPresent(key);
+        if (status == null) {
+            return false;
+        }
+        avoidedCalls.increment();
+        LOGGER.debug("Refusing token which was recently rejected with status {}", status);
+        return true;
+    }
+
+    /**
+     * Record the failure to resolve a context for a token.  Only failures
+     * which reject the token itself are remembered
+     *
+     * @param token the bearer token
+     * @param failure the exception raised while resolving the token
+     */
+    public void onFailure(final String token, final Throwable failure) {
+        onFailure(TokenKey.of(token), failure);
+    }
+
+    /**
+     * @param key the key of the bearer token
+     * @param failure the exception raised while resolving the token
+     */
+    public void onFailure(final TokenKey key, final Throwable failure) {
+        final RestStatus status = statusOf(failure);
+        if (rejected != null && (RestStatus.UNAUTHORIZED == status || RestStatus.FORBIDDEN == status)) {
+            rejected.put(key, status);
+        }
+    }
+
+    public long getAvoidedCalls() {
+        return avoidedCalls.sum();
+    }
+
+    public long size() {
+        return rejected == null ? 0 : rejected.size();
+    }
+
+    /*
+     * LoadingCache wraps the exceptions thrown by the loader so
+     * walk the causes looking for the one reporting a status
+     */
+    static RestStatus statusOf(final Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ElasticsearchException) {
+                RestStatus status = ((ElasticsearchException) cause).status();
+                if (status != null) {
+                    return status;
+                }
+            }
+            if (cause == cause.getCause()) {
+                break;
+            }
+        }
+        return RestStatus.INTERNAL_SERVER_ERROR;
+    }
+}
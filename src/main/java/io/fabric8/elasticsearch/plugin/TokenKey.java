@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin;
+
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+/**
+ * Fixed size key of a bearer token: the first 128 bits of its SHA-256
+ * digest.  Caches keyed by it retain 32 bytes per entry instead of the
+ * token, which can be kilobytes for service account tokens, and never hold
+ * the token itself.
+ */
+public final class TokenKey {
+
+    private final long high;
+    private final long low;
+
+    private TokenKey(final long high, final long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static TokenKey of(final String token) {
+        final HashCode hash = Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+        final byte[] bytes = hash.asBytes();
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 8; i++) {
+            high = (high << 8) | (bytes[i] & 0xffL);
+            low = (low << 8) | (bytes[i + 8] & 0xffL);
+        }
+        return new TokenKey(high, low);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) low;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof TokenKey)) {
+            return false;
+        }
+        final TokenKey other = (TokenKey) obj;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TokenKey[%08x]", (int) (high >>> 32));
+    }
+}
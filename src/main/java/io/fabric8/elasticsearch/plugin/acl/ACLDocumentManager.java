@@ -18,16 +18,23 @@ package io.fabric8.elasticsearch.plugin.acl;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
-import org.apache.commons.lang.math.NumberUtils;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.DocWriteRequest.OpType;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
@@ -35,27 +42,33 @@ import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
 import org.elasticsearch.action.update.UpdateRequestBuilder;
 import org.elasticsearch.client.Client;
-import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.util.concurrent.ThreadContext.StoredContext;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import com.floragunn.searchguard.action.configupdate.ConfigUpdateAction;
 import com.floragunn.searchguard.action.configupdate.ConfigUpdateRequest;
 import com.floragunn.searchguard.action.configupdate.ConfigUpdateResponse;
 import com.floragunn.searchguard.support.ConfigConstants;
+import com.google.common.collect.Lists;
 
 import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
+import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory;
 import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory.OpenshiftRequestContext;
 import io.fabric8.elasticsearch.plugin.PluginClient;
 import io.fabric8.elasticsearch.plugin.PluginSettings;
 import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles;
+import io.fabric8.elasticsearch.plugin.acl.ShardedACLStore.ExpiredShard;
+import io.fabric8.elasticsearch.plugin.acl.ShardedACLStore.ShardIds;
 import io.fabric8.elasticsearch.plugin.acl.SearchGuardRolesMapping.RolesMapping;
+import io.fabric8.elasticsearch.plugin.stats.PluginStats;
 
 /**
  * Manages process of loading and updating the ACL Documents
@@ -66,15 +79,44 @@ public class ACLDocumentManager implements ConfigurationSettings {
     
     private static final String [] CONFIG_DOCS = {SEARCHGUARD_ROLE_TYPE, SEARCHGUARD_MAPPING_TYPE};
     private static final Logger LOGGER = Loggers.getLogger(ACLDocumentManager.class);
+    //the delays between the attempts to sync, up to about 12 seconds overall
+    private static final int [] RETRY_DELAYS_SECONDS = {1, 1, 2, 3, 5};
     private final ReentrantLock lock = new ReentrantLock();
     private final String searchGuardIndex;
     private final PluginClient client;
     private final SearchGuardSyncStrategyFactory documentFactory;
     private final ConfigurationLoader configLoader;
     private final ThreadContext threadContext;
+    private final PluginStats stats;
+    private final OpenshiftRequestContextFactory contextFactory;
+    private final ACLDocumentSerializer serializer = new ACLDocumentSerializer();
+    /*
+     * The parsed ACL documents by type as last read or written by this node.
+     * Guarded by the lock
+     */
+    @SuppressWarnings("rawtypes")
+    private final Map<String, SearchGuardACLDocument> documents = new HashMap<>();
+    private final ShardedACLStore store;
+    private final ThreadPool threadPool;
+    private final int conflictRetries;
+    private final RefreshPolicy refreshPolicy;
+    /*
+     * Requests to materialize the sharded ACLs, and the shards they wrote,
+     * waiting for the next materialization. Guarded by the list
+     */
+    private final List<ActionListener<Boolean>> pendingMaterializations = new ArrayList<>();
+    private final ShardIds pendingShards = new ShardIds();
+    private boolean materializing;
 
-    public ACLDocumentManager(final PluginClient client, final PluginSettings settings, final SearchGuardSyncStrategyFactory documentFactory, ThreadPool threadPool) {
+    public ACLDocumentManager(final PluginClient client, final PluginSettings settings, final SearchGuardSyncStrategyFactory documentFactory,
+            ThreadPool threadPool, final PluginStats stats, final OpenshiftRequestContextFactory contextFactory, final ShardedACLStore store) {
+        this.stats = stats;
+        this.contextFactory = contextFactory;
+        this.store = store;
+        this.threadPool = threadPool;
         this.searchGuardIndex = settings.getSearchGuardIndex();
+        this.conflictRetries = settings.getSettings().getAsInt(OPENSHIFT_ACL_CONFLICT_RETRIES, DEFAULT_OPENSHIFT_ACL_CONFLICT_RETRIES);
+        this.refreshPolicy = RefreshPolicy.parse(settings.getSettings().get(OPENSHIFT_ACL_REFRESH_POLICY, DEFAULT_OPENSHIFT_ACL_REFRESH_POLICY));
         this.client = client;
         this.documentFactory = documentFactory;
         this.threadContext = threadPool.getThreadContext();
@@ -85,6 +127,20 @@ public class ACLDocumentManager implements ConfigurationSettings {
     interface ACLDocumentOperation{
         
         void execute(Collection<SearchGuardACLDocument> docs);
+
+        /**
+         * @return false if executing the operation left the documents unchanged
+         *          and they do not need to be written
+         */
+        default boolean hasChanges() {
+            return true;
+        }
+
+        /**
+         * Called once the changed documents were written
+         */
+        default void onWritten() {
+        }
         
         BulkRequest buildRequest(Client client, BulkRequestBuilder builder, Collection<SearchGuardACLDocument> docs) throws IOException;
     }
@@ -101,33 +157,6 @@ public class ACLDocumentManager implements ConfigurationSettings {
         }
     }
     
-    @SuppressWarnings("rawtypes")
-    class SyncAndExpireOperation implements ACLDocumentOperation {
-        
-        private SyncFromContextOperation sync;
-        private ExpireOperation expire;
-        
-        SyncAndExpireOperation(OpenshiftRequestContext context){
-            long now = System.currentTimeMillis();
-            sync = new SyncFromContextOperation(context, now);
-            expire = new ExpireOperation(now);
-        }
-
-        @Override
-        public void execute(Collection<SearchGuardACLDocument> docs) {
-            //purposely expire and then sync to add back in
-            expire.execute(docs);
-            sync.execute(docs);
-        }
-
-        @Override
-        public BulkRequest buildRequest(Client client, BulkRequestBuilder builder,
-                Collection<SearchGuardACLDocument> docs) throws IOException {
-            return expire.buildRequest(client, builder, docs);
-        }
-        
-    }
-    
     @SuppressWarnings("rawtypes")
     class SyncFromContextOperation implements ACLDocumentOperation {
 
@@ -158,11 +187,9 @@ public class ACLDocumentManager implements ConfigurationSettings {
             
             for (SearchGuardACLDocument doc : docs) {
                 logContent("Updating {} to: {}", doc.getType(), doc);
-                Map<String, Object> content = new HashMap<>();
-                content.put(doc.getType(), new BytesArray(XContentHelper.toString(doc)));
                 UpdateRequestBuilder update = client
                         .prepareUpdate(searchGuardIndex, doc.getType(), SEARCHGUARD_CONFIG_ID)
-                        .setDoc(content);
+                        .setDoc(serializer.toSource(doc));
                 if(doc.getVersion() != null) {
                     update.setVersion(doc.getVersion());
                 }
@@ -172,10 +199,100 @@ public class ACLDocumentManager implements ConfigurationSettings {
         }
     }
     
+    /*
+     * Merge the sharded ACLs into the documents. Until the store is migrated,
+     * the generated ACLs of the documents are first moved to the store. Given
+     * the ids of the shards written since the last materialization, only those
+     * are read and merged. Otherwise, which is what the sweep does, the
+     * generated ACLs of the documents are replaced with all of the sharded
+     * ACLs, and the documents are only written when sharded ACLs expired.
+     * The expired sharded ACLs are only deleted once the documents without
+     * them were written so a failed write is retried
+     */
+    @SuppressWarnings("rawtypes")
+    class MaterializeOperation extends ExpireOperation {
+
+        private static final String SHARDS = "shards";
+
+        private final ShardIds changed;
+        private SearchGuardRoles generatedRoles;
+        private SearchGuardRolesMapping generatedMappings;
+        private List<ExpiredShard> expiredShards = Collections.emptyList();
+
+        /**
+         * @param changed the ids of the shards to merge or null to replace the
+         *                generated ACLs with all of them
+         */
+        MaterializeOperation(long currentTimeMillis, ShardIds changed) {
+            super(currentTimeMillis);
+            this.changed = changed;
+        }
+
+        @Override
+        public void execute(Collection<SearchGuardACLDocument> docs) {
+            SearchGuardRoles roles = null;
+            SearchGuardRolesMapping mappings = null;
+            for (SearchGuardACLDocument doc : docs) {
+                if(ConfigurationSettings.SEARCHGUARD_MAPPING_TYPE.equals(doc.getType())){
+                    mappings = (SearchGuardRolesMapping) doc;
+                } else if(ConfigurationSettings.SEARCHGUARD_ROLE_TYPE.equals(doc.getType())) {
+                    roles = (SearchGuardRoles) doc;
+                }
+            }
+            //only the documents which conflicted are given when retrying, by then the store is migrated
+            if(roles != null && mappings != null && !store.isMigrated() && !store.migrate(roles, mappings)) {
+                throw new IllegalStateException("Unable to move the generated ACLs to the sharded ACL store");
+            }
+            if(generatedRoles == null) {
+                generatedRoles = new SearchGuardRoles();
+                generatedMappings = new SearchGuardRolesMapping();
+                if(changed != null) {
+                    store.get(changed, generatedRoles, generatedMappings);
+                } else {
+                    expiredShards = store.load(generatedRoles, generatedMappings, now);
+                    setExpired(SHARDS, expiredShards.size());
+                    LOGGER.debug("Materializing the sharded ACLs, {} expired", expiredShards.size());
+                }
+            }
+            if(roles != null) {
+                if(changed == null) {
+                    for (Roles role : roles) {
+                        if(ShardedACLStore.isGenerated(role.getName())) {
+                            roles.removeRole(role);
+                        }
+                    }
+                }
+                roles.addAll(Lists.newArrayList(generatedRoles));
+            }
+            if(mappings != null) {
+                if(changed == null) {
+                    for (RolesMapping mapping : mappings) {
+                        if(ShardedACLStore.isGenerated(mapping.getName())) {
+                            mappings.removeRolesMapping(mapping);
+                        }
+                    }
+                }
+                mappings.addAll(Lists.newArrayList(generatedMappings));
+            }
+        }
+
+        @Override
+        public boolean hasChanges() {
+            return changed != null || super.hasChanges();
+        }
+
+        @Override
+        public void onWritten() {
+            store.deleteExpired(expiredShards);
+        }
+    }
+
     @SuppressWarnings("rawtypes")
     class ExpireOperation implements ACLDocumentOperation {
 
-        private long now;
+        final long now;
+        //a retry only executes on the documents which conflicted so count per document
+        private final Map<String, Integer> expired = new HashMap<>();
 
         public ExpireOperation(long currentTimeMillis) {
             this.now = currentTimeMillis;
@@ -185,97 +302,313 @@ public class ACLDocumentManager implements ConfigurationSettings {
         public void execute(Collection<SearchGuardACLDocument> docs) {
             LOGGER.debug("Expiring ACLs older then {}", now);
             for (SearchGuardACLDocument doc : docs) {
+                int count = 0;
                 if(ConfigurationSettings.SEARCHGUARD_MAPPING_TYPE.equals(doc.getType())){
-                    SearchGuardRolesMapping mappings = (SearchGuardRolesMapping) doc;
-                    for (RolesMapping mapping : mappings) {
-                        //assume if the value is there its intentional
-                        String expire = mapping.getExpire();
-                        if(expire != null && NumberUtils.isNumber(expire) && Long.parseLong(expire) < now) {
-                            logDebug("Expiring rolesMapping: {}", mapping);
-                            mappings.removeRolesMapping(mapping);
-                        }
+                    for (RolesMapping mapping : ((SearchGuardRolesMapping) doc).removeExpired(now)) {
+                        logDebug("Expired rolesMapping: {}", mapping);
+                        count++;
                     }
                 } else if(ConfigurationSettings.SEARCHGUARD_ROLE_TYPE.equals(doc.getType())) {
-                    SearchGuardRoles roles = (SearchGuardRoles) doc;
-                    for (Roles role : roles) {
-                        //assume if the value is there its intentional
-                        String expire = role.getExpire();
-                        if(expire != null && Long.parseLong(expire) < now) {
-                            logDebug("Expiring role: {}", role);
-                            roles.removeRole(role);
-                        }
+                    for (Roles role : ((SearchGuardRoles) doc).removeExpired(now)) {
+                        logDebug("Expired role: {}", role);
+                        count++;
                     }
                 }
+                setExpired(doc.getType(), count);
             }
         }
 
+        @Override
+        public boolean hasChanges() {
+            return getExpired() > 0;
+        }
+
+        void setExpired(String type, int count) {
+            expired.put(type, count);
+        }
+
+        int getExpired() {
+            int total = 0;
+            for (int count : expired.values()) {
+                total += count;
+            }
+            return total;
+        }
+
         @Override
         public BulkRequest buildRequest(Client client, BulkRequestBuilder builder, Collection<SearchGuardACLDocument> docs) throws IOException{
             for (SearchGuardACLDocument doc : docs) {
                 logContent("Expired doc {} to be: {}", doc.getType(), doc);
-                Map<String, Object> content = new HashMap<>();
-                content.put(doc.getType(), new BytesArray(XContentHelper.toString(doc)));
                 IndexRequestBuilder indexBuilder = client
                         .prepareIndex(searchGuardIndex, doc.getType(), SEARCHGUARD_CONFIG_ID)
                         .setOpType(OpType.INDEX)
                         .setVersion(doc.getVersion())
-                        .setSource(content);
+                        .setSource(serializer.toSource(doc));
                 builder.add(indexBuilder.request());
             }
             return builder.request();
         }
     }
 
-    public void syncAcl(OpenshiftRequestContext context) {
-        if(!syncAcl(new SyncAndExpireOperation(context))){
-            LOGGER.warn("Unable to sync ACLs for request from user: {}", context.getUser());
+    /**
+     * Sync the ACLs of a user without blocking the calling thread
+     *
+     * @param context the context of the user
+     * @return a future completed with whether the ACLs were synced
+     */
+    public CompletableFuture<Boolean> syncAclAsync(OpenshiftRequestContext context) {
+        final long start = System.nanoTime();
+        final CompletableFuture<Boolean> synced;
+        if(store.isEnabled()) {
+            synced = syncShardedAcl(context);
+        } else {
+            synced = syncAclAsync(new SyncFromContextOperation(context, System.currentTimeMillis()));
         }
-    }    
+        return synced.thenApply(success -> {
+            stats.onAclSync(start, success);
+            if(!success){
+                LOGGER.warn("Unable to sync ACLs for request from user: {}", context.getUser());
+            }
+            return success;
+        });
+    }
+
+    /**
+     * Remove the roles and role mappings which expired before the given time.
+     * The documents are only written when something expired
+     *
+     * @param now the current time in millis
+     * @return the number of entries removed
+     */
+    public int expireAcl(final long now) {
+        final long start = System.nanoTime();
+        final ExpireOperation operation = store.isEnabled() ? new MaterializeOperation(now, null) : new ExpireOperation(now);
+        final boolean success = trySyncAcl(operation);
+        final int expired = success ? operation.getExpired() : 0;
+        stats.onAclSweep(start, expired, success);
+        if(!success){
+            LOGGER.warn("Unable to remove expired ACLs, will try again on the next sweep");
+        } else if(expired > 0) {
+            LOGGER.debug("Removed {} expired ACL entries", expired);
+        }
+        return expired;
+    }
     
-    private boolean syncAcl(ACLDocumentOperation operation) {
-        //try up to 30 seconds and then continue
-        for (int n : new int [] {1 , 1 , 2 , 3 , 5 , 8}) {
+    /*
+     * Write the ACLs of the user to the store and have the elected master
+     * materialize them.  No thread waits for either
+     */
+    private CompletableFuture<Boolean> syncShardedAcl(OpenshiftRequestContext context) {
+        return store.writeAsync(context, System.currentTimeMillis())
+            .thenCompose(shards -> {
+                if(shards == null) {
+                    return CompletableFuture.completedFuture(false);
+                }
+                return client.executeAsync((ActionListener<MaterializeACLResponse> listener) -> client.getClient()
+                        .execute(MaterializeACLAction.INSTANCE, new MaterializeACLRequest(shards), listener))
+                    .thenApply(MaterializeACLResponse::isMaterialized);
+            })
+            .exceptionally(e -> {
+                LOGGER.error("Exception while syncing the sharded ACLs", e);
+                return false;
+            });
+    }
+
+    /**
+     * Merge the given sharded ACLs into the ACL documents.  Requests which
+     * arrive while the ACLs are materialized are served together by the next
+     * materialization
+     *
+     * @param shards the ids of the shards to merge
+     * @param listener notified whether the ACL documents were written
+     */
+    public void materialize(final ShardIds shards, final ActionListener<Boolean> listener) {
+        synchronized (pendingMaterializations) {
+            pendingMaterializations.add(listener);
+            pendingShards.addAll(shards);
+            if(materializing) {
+                return;
+            }
+            materializing = true;
+        }
+        threadPool.generic().execute(this::drainMaterializations);
+    }
+
+    /*
+     * Materialize the requests which arrived meanwhile and drain again once
+     * they were notified.  The requests queued while they are materialized
+     * are served by the next drain
+     */
+    private void drainMaterializations() {
+        final List<ActionListener<Boolean>> batch;
+        final ShardIds shards = new ShardIds();
+        synchronized (pendingMaterializations) {
+            if(pendingMaterializations.isEmpty()) {
+                materializing = false;
+                return;
+            }
+            batch = new ArrayList<>(pendingMaterializations);
+            pendingMaterializations.clear();
+            shards.addAll(pendingShards);
+            pendingShards.clear();
+        }
+        logDebug("Materializing the sharded ACLs for {} requests", batch.size());
+        syncAclAsync(new MaterializeOperation(System.currentTimeMillis(), shards)).whenComplete((success, e) -> {
+            for (ActionListener<Boolean> listener : batch) {
+                notifyMaterialized(listener, e == null && success);
+            }
+            threadPool.generic().execute(this::drainMaterializations);
+        });
+    }
+
+    private static void notifyMaterialized(final ActionListener<Boolean> listener, final boolean success) {
+        try {
+            listener.onResponse(success);
+        } catch (Exception e) {
+            LOGGER.error("Unable to notify a request of the materialized ACLs", e);
+        }
+    }
+
+    /*
+     * Try the operation on the generic thread pool and retry it with a
+     * backoff when it fails.  The retries are scheduled so no thread waits
+     * for them
+     */
+    private CompletableFuture<Boolean> syncAclAsync(ACLDocumentOperation operation) {
+        final CompletableFuture<Boolean> synced = new CompletableFuture<>();
+        try {
+            threadPool.generic().execute(() -> trySyncAcl(operation, 0, synced));
+        } catch (Exception e) {
+            synced.completeExceptionally(e);
+        }
+        return synced;
+    }
+
+    private void trySyncAcl(final ACLDocumentOperation operation, final int retry, final CompletableFuture<Boolean> synced) {
+        try {
             if(trySyncAcl(operation)) {
-                return true;
+                synced.complete(true);
+                return;
             }
-            try {
-                if(LOGGER.isTraceEnabled()) {
-                    LOGGER.trace("Sleeping for {}(s)", n);
-                }
-                Thread.sleep(n * 1000);
-            } catch (InterruptedException e) {
-                LOGGER.error("There was an error while trying the sleep the syncACL operation", e);
+            if(retry >= RETRY_DELAYS_SECONDS.length) {
+                synced.complete(false);
+                return;
             }
+            stats.onAclRetry();
+            final int delay = RETRY_DELAYS_SECONDS[retry];
+            if(LOGGER.isTraceEnabled()) {
+                LOGGER.trace("Retrying the ACL sync in {}(s)", delay);
+            }
+            threadPool.schedule(TimeValue.timeValueSeconds(delay), ThreadPool.Names.GENERIC, () -> trySyncAcl(operation, retry + 1, synced));
+        } catch (Exception e) {
+            synced.completeExceptionally(e);
         }
-        return false;
     }
     
+    /**
+     * Execute the operation on the ACL documents and write them.  When the
+     * write of a document conflicts with a write of another node, only the
+     * newer version of that document is fetched and the operation is applied
+     * to it again, which re-applies the changes of this node on top of
+     * the changes of the other one.  This is retried immediately up to the
+     * configured number of times
+     *
+     * @param operation the operation to execute
+     * @return true if the documents were written or did not need to be
+     */
     public boolean trySyncAcl(ACLDocumentOperation operation) {
         LOGGER.debug("Syncing the ACL to ElasticSearch");
         try (StoredContext ctx = threadContext.stashContext()) {
             threadContext.putHeader(ConfigConstants.SG_CONF_REQUEST_HEADER, "true");
+            final long lockStart = System.nanoTime();
             lock.lock();
-            @SuppressWarnings("rawtypes")
-            Collection<SearchGuardACLDocument> docs = loadAcls();
-            if(docs.size() < 2) {
-                return false;
+            stats.onAclLockAcquired(lockStart);
+            Set<String> pending = new HashSet<>(Arrays.asList(CONFIG_DOCS));
+            boolean written = false;
+            try {
+                for (int attempt = 0; !pending.isEmpty(); attempt++) {
+                    if(attempt > conflictRetries) {
+                        LOGGER.debug("Giving up on writing {} after {} conflicts", pending, conflictRetries);
+                        return false;
+                    }
+                    @SuppressWarnings("rawtypes")
+                    Collection<SearchGuardACLDocument> docs = loadAcls(pending);
+                    if(docs.size() < pending.size()) {
+                        return false;
+                    }
+                    operation.execute(docs);
+                    if(!operation.hasChanges()) {
+                        return true;
+                    }
+                    BulkResponse response = writeAcl(operation, docs);
+                    written |= Arrays.stream(response.getItems()).anyMatch(item -> !item.isFailed());
+                    pending = updateVersions(response);
+                    if(pending == null) {
+                        LOGGER.debug("Unable to write ACL {}", response.buildFailureMessage());
+                        return false;
+                    }
+                    if(!pending.isEmpty()) {
+                        logDebug("Writing {} conflicted with another node, applying the changes to the newer version", pending);
+                        stats.onAclConflict();
+                    }
+                }
+                try {
+                    operation.onWritten();
+                } catch (Exception e) {
+                    LOGGER.warn("Unable to complete the ACL operation after writing the documents", e);
+                }
+                return true;
+            } finally {
+                if(written) {
+                    notifyConfigUpdate();
+                }
             }
-            operation.execute(docs);
-
-            return isSuccessfulWrite(writeAcl(operation, docs));
         } catch (Exception e) {
             LOGGER.error("Exception while syncing ACL to Elasticsearch", e);
+            documents.clear();
         } finally {
             lock.unlock();
         }
         return false;
     }
     
+    /*
+     * Reuse the documents parsed by a previous sync unless a check of their
+     * versions shows they were changed since.  Only the changed documents
+     * are fetched and parsed again
+     */
     @SuppressWarnings("rawtypes")
-    private Collection<SearchGuardACLDocument> loadAcls() throws Exception {
+    private Collection<SearchGuardACLDocument> loadAcls(Set<String> types) throws Exception {
         LOGGER.debug("Loading SearchGuard ACL...waiting up to 30s");
-        Map<String, Tuple<Settings, Long>> loadedDocs = configLoader.load(CONFIG_DOCS, 30, TimeUnit.SECONDS);
-        Collection<SearchGuardACLDocument> docs = new ArrayList<>(loadedDocs.size());
+        String [] requested = types.toArray(new String[types.size()]);
+        Map<String, Long> versions = configLoader.loadVersions(requested, 30, TimeUnit.SECONDS);
+        List<String> stale = new ArrayList<>(requested.length);
+        int reused = 0;
+        for (String type : requested) {
+            SearchGuardACLDocument doc = documents.get(type);
+            Long version = versions.get(type);
+            if(version == null) {
+                documents.remove(type);
+            } else if(doc == null || !version.equals(doc.getVersion())) {
+                stale.add(type);
+            } else {
+                reused++;
+            }
+        }
+        stats.onAclLoad(reused, stale.size());
+        if(!stale.isEmpty()) {
+            parseAcls(configLoader.load(stale.toArray(new String[stale.size()]), 30, TimeUnit.SECONDS));
+        }
+        List<SearchGuardACLDocument> docs = new ArrayList<>(requested.length);
+        for (String type : requested) {
+            if(documents.containsKey(type)) {
+                docs.add(documents.get(type));
+            }
+        }
+        return docs;
+    }
+
+    private void parseAcls(Map<String, Tuple<Settings, Long>> loadedDocs) throws IOException {
         for (Entry<String, Tuple<Settings, Long>> item : loadedDocs.entrySet()) {
             Settings settings = item.getValue().v1();
             Long version = item.getValue().v2();
@@ -285,43 +618,71 @@ public class ACLDocumentManager implements ConfigurationSettings {
             }
             switch (item.getKey()) {
             case SEARCHGUARD_ROLE_TYPE:
-                docs.add(new SearchGuardRoles(version).load(original));
+                documents.put(SEARCHGUARD_ROLE_TYPE, new SearchGuardRoles(version).load(original));
                 break;
             case SEARCHGUARD_MAPPING_TYPE:
-                docs.add(new SearchGuardRolesMapping(version).load(original));
+                SearchGuardRolesMapping mappings = new SearchGuardRolesMapping(version).load(original);
+                contextFactory.setBackendRolesMapped(mappings.hasBackendRoles());
+                documents.put(SEARCHGUARD_MAPPING_TYPE, mappings);
                 break;
             }
         }
-        return docs;
     }
-    
+
+    /*
+     * The written documents are what is now indexed so keep them with their
+     * new versions.  The documents which conflicted are dropped so their newer
+     * version is fetched.  Any other failure leaves the state of the index
+     * unknown
+     *
+     * @return the types of the documents which conflicted or null
+     */
+    @SuppressWarnings("rawtypes")
+    private Set<String> updateVersions(BulkResponse response) {
+        Set<String> conflicts = new HashSet<>();
+        for (BulkItemResponse item : response.getItems()) {
+            if(item.isFailed()) {
+                if(RestStatus.CONFLICT != item.getFailure().getStatus()) {
+                    documents.clear();
+                    return null;
+                }
+                documents.remove(item.getType());
+                conflicts.add(item.getType());
+                continue;
+            }
+            SearchGuardACLDocument doc = documents.get(item.getType());
+            if(doc != null) {
+                doc.setVersion(item.getVersion());
+            }
+        }
+        return conflicts;
+    }
+
     @SuppressWarnings("rawtypes")
     private BulkResponse writeAcl(ACLDocumentOperation operation, Collection<SearchGuardACLDocument> docs) throws Exception {
-        BulkRequestBuilder builder = client.getClient().prepareBulk().setRefreshPolicy(RefreshPolicy.WAIT_UNTIL);
+        BulkRequestBuilder builder = client.getClient().prepareBulk().setRefreshPolicy(refreshPolicy);
         BulkRequest request = operation.buildRequest(this.client.getClient(), builder, docs);
+        stats.onAclBulkWrite(request.estimatedSizeInBytes());
         client.addCommonHeaders();
         return this.client.getClient().bulk(request).actionGet();
     }
     
-    private boolean isSuccessfulWrite(BulkResponse response) {
-        if(!response.hasFailures()) {
-            ConfigUpdateRequest confRequest = new ConfigUpdateRequest(SEARCHGUARD_INITIAL_CONFIGS);
-            client.addCommonHeaders();
-            try {
-                ConfigUpdateResponse cur = this.client.getClient().execute(ConfigUpdateAction.INSTANCE, confRequest).actionGet();
-                final int totNodes = cur.getNodes().size();
-                if (totNodes > 0) {
-                    LOGGER.debug("Successfully reloaded config with '{}' nodes", totNodes);
-                }else {
-                    LOGGER.warn("Failed to reloaded configs", totNodes);
-                }
-            }catch(Exception e) {
-                LOGGER.error("Unable to notify of an ACL config update", e);
+    private void notifyConfigUpdate() {
+        ConfigUpdateRequest confRequest = new ConfigUpdateRequest(SEARCHGUARD_INITIAL_CONFIGS);
+        client.addCommonHeaders();
+        final long start = System.nanoTime();
+        try {
+            ConfigUpdateResponse cur = this.client.getClient().execute(ConfigUpdateAction.INSTANCE, confRequest).actionGet();
+            final int totNodes = cur.getNodes().size();
+            stats.onAclConfigUpdate(start, totNodes);
+            if (totNodes > 0) {
+                LOGGER.debug("Successfully reloaded config with '{}' nodes", totNodes);
+            }else {
+                LOGGER.warn("Failed to reloaded configs", totNodes);
             }
-            return true;
-        } else {
-            LOGGER.debug("Unable to write ACL {}", response.buildFailureMessage());
+        }catch(Exception e) {
+            stats.onAclConfigUpdate(start, 0);
+            LOGGER.error("Unable to notify of an ACL config update", e);
         }
-        return false;
     }
 }
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+
+/**
+ * Serializes ACL documents into the source SearchGuard reads its
+ * configuration from: an object with a single binary field, named by the
+ * type, holding the JSON of the document.  The JSON is written once into a
+ * buffer which is reused for every document so it is not thread safe
+ */
+class ACLDocumentSerializer {
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final Buffer buffer = new Buffer(INITIAL_BUFFER_SIZE);
+
+    /**
+     * @param doc the document to serialize
+     * @return the source of the document
+     * @throws IOException if the document could not be serialized
+     */
+    @SuppressWarnings("rawtypes")
+    XContentBuilder toSource(final SearchGuardACLDocument doc) throws IOException {
+        buffer.reset();
+        XContentBuilder json = new XContentBuilder(JsonXContent.jsonXContent, buffer);
+        json.startObject();
+        doc.toXContent(json, ToXContent.EMPTY_PARAMS);
+        json.endObject();
+        json.close();
+
+        final BytesReference bytes = buffer.bytes();
+        // base64 grows the content by a third
+        XContentBuilder source = new XContentBuilder(JsonXContent.jsonXContent, new BytesStreamOutput(bytes.length() / 3 * 4 + 64));
+        return source.startObject().field(doc.getType(), bytes).endObject();
+    }
+
+    /*
+     * Exposes the written bytes without copying them and keeps its capacity
+     * when reset
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+
+        Buffer(final int size) {
+            super(size);
+        }
+
+        BytesReference bytes() {
+            return new BytesArray(buf, 0, count);
+        }
+    }
+}
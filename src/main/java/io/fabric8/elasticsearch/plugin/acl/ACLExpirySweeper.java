@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.threadpool.ThreadPool.Cancellable;
+
+import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
+
+/**
+ * Periodically removes expired roles and role mappings from the ACL
+ * documents so user requests only ever add or refresh entries.  The sweep
+ * runs on every node but only does work on the elected master so the
+ * documents are rewritten by a single node in one batched write
+ */
+public class ACLExpirySweeper extends AbstractLifecycleComponent implements ConfigurationSettings {
+
+    private static final Logger LOGGER = Loggers.getLogger(ACLExpirySweeper.class);
+
+    private final ThreadPool threadPool;
+    private final ClusterService clusterService;
+    private final ACLDocumentManager aclDocumentManager;
+    private final TimeValue interval;
+    private volatile Cancellable scheduled;
+
+    public ACLExpirySweeper(final Settings settings, final ThreadPool threadPool, final ClusterService clusterService,
+            final ACLDocumentManager aclDocumentManager) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.clusterService = clusterService;
+        this.aclDocumentManager = aclDocumentManager;
+        this.interval = TimeValue.timeValueSeconds(settings.getAsLong(OPENSHIFT_ACL_EXPIRE_SWEEP_INTERVAL_SECONDS,
+                DEFAULT_OPENSHIFT_ACL_EXPIRE_SWEEP_INTERVAL_SECONDS));
+    }
+
+    @Override
+    protected void doStart() {
+        if (interval.millis() <= 0) {
+            LOGGER.info("Sweeping expired ACLs is disabled");
+            return;
+        }
+        LOGGER.debug("Sweeping expired ACLs every {}", interval);
+        scheduled = threadPool.scheduleWithFixedDelay(this::sweep, interval, ThreadPool.Names.GENERIC);
+    }
+
+    @Override
+    protected void doStop() {
+        if (scheduled != null) {
+            scheduled.cancel();
+            scheduled = null;
+        }
+    }
+
+    @Override
+    protected void doClose() {
+    }
+
+    /**
+     * Remove the expired ACLs if this node is the elected master
+     *
+     * @return true if this node swept the ACLs
+     */
+    boolean sweep() {
+        if (!isElectedMaster()) {
+            return false;
+        }
+        try {
+            aclDocumentManager.expireAcl(System.currentTimeMillis());
+        } catch (Exception e) {
+            LOGGER.error("Exception while sweeping expired ACLs", e);
+        }
+        return true;
+    }
+
+    private boolean isElectedMaster() {
+        try {
+            ClusterState state = clusterService.state();
+            return state != null && state.nodes() != null && state.nodes().isLocalNodeElectedMaster();
+        } catch (Exception e) {
+            LOGGER.debug("Unable to determine if this node is the elected master", e);
+            return false;
+        }
+    }
+}
@@ -21,16 +21,16 @@ import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory.OpenshiftR
 public abstract class BaseRolesMappingSyncStrategy implements RolesMappingSyncStrategy {
 
     protected final SearchGuardRolesMapping mappings;
-    private String expire;
+    private final long expire;
     
     protected BaseRolesMappingSyncStrategy(final SearchGuardRolesMapping mappings, long expiresInMillis) {
         this.mappings = mappings;
-        this.expire = String.valueOf(expiresInMillis);
+        this.expire = expiresInMillis;
     }
 
     protected abstract void syncFromImpl(OpenshiftRequestContext context, RolesMappingBuilder builder);
     
-    protected String getExpires() {
+    protected long getExpires() {
         return expire;
     }
 
@@ -45,7 +45,7 @@ public abstract class BaseRolesSyncStrategy implements RolesSyncStrategy {
 
     protected String formatKibanaIndexName(OpenshiftRequestContext context, String kibanaIndexMode) {
         String kibanaIndex = OpenshiftRequestContextFactory.getKibanaIndex(userProfilePrefix, 
-                kibanaIndexMode, context.getUser(), context.isOperationsUser());
+                kibanaIndexMode, context.getUser(), context.getUsernameHash(), context.isOperationsUser());
         return kibanaIndex.replace('.','?');
     }
 
@@ -54,7 +54,7 @@ public abstract class BaseRolesSyncStrategy implements RolesSyncStrategy {
         if (context.isOperationsUser() ) {
             switch (kibanaIndexMode) {
             case KibanaIndexMode.UNIQUE:
-                return SearchGuardRoles.formatUniqueKibanaRoleName(context.getUser());
+                return context.getUniqueKibanaRoleName();
             default:
                 return SearchGuardRolesMapping.KIBANA_SHARED_ROLE;
             }
@@ -63,16 +63,24 @@ public abstract class BaseRolesSyncStrategy implements RolesSyncStrategy {
         case KibanaIndexMode.SHARED_NON_OPS:
             return SearchGuardRolesMapping.KIBANA_SHARED_NON_OPS_ROLE;
         default:
-            return SearchGuardRoles.formatUniqueKibanaRoleName(context.getUser());
+            return context.getUniqueKibanaRoleName();
         }
     }
 
     public static String formatUserRoleName(String username) {
-        return String.format("%s_%s", USER_PREFIX, OpenshiftRequestContextFactory.getUsernameHash(username));
+        return formatUserRoleNameFromHash(OpenshiftRequestContextFactory.getUsernameHash(username));
+    }
+
+    public static String formatUserRoleNameFromHash(String usernameHash) {
+        return String.format("%s_%s", USER_PREFIX, usernameHash);
     }
 
     public static String formatUserKibanaRoleName(String username) {
-        return String.format("%s_%s", USER_KIBANA_PREFIX, OpenshiftRequestContextFactory.getUsernameHash(username));
+        return formatUserKibanaRoleNameFromHash(OpenshiftRequestContextFactory.getUsernameHash(username));
+    }
+
+    public static String formatUserKibanaRoleNameFromHash(String usernameHash) {
+        return String.format("%s_%s", USER_KIBANA_PREFIX, usernameHash);
     }
 
 }
\ No newline at end of file
@@ -44,6 +44,7 @@ import java.util.concurrent.TimeoutException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionFuture;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.get.MultiGetItemResponse;
@@ -61,6 +62,7 @@ import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import com.floragunn.searchguard.support.ConfigConstants;
@@ -127,6 +129,36 @@ public class ConfigurationLoader {
         return rs;
     }
     
+    /**
+     * Retrieve the current versions of the configuration documents without
+     * fetching their source
+     *
+     * @param events the configuration types
+     * @param timeout the time to wait for the versions
+     * @param timeUnit the unit of the timeout
+     * @return the version of each existing document by type
+     */
+    public Map<String, Long> loadVersions(final String[] events, long timeout, TimeUnit timeUnit) {
+        final MultiGetRequest mget = new MultiGetRequest();
+        for (String event : events) {
+            mget.add(new MultiGetRequest.Item(searchguardIndex, event, "0").fetchSourceContext(FetchSourceContext.DO_NOT_FETCH_SOURCE));
+        }
+        mget.realtime(true);
+
+        final ActionFuture<MultiGetResponse> future;
+        try (StoredContext ctx = threadContext.stashContext()) {
+            threadContext.putHeader(ConfigConstants.SG_CONF_REQUEST_HEADER, "true");
+            future = client.multiGet(mget);
+        }
+        final Map<String, Long> versions = new HashMap<>(events.length);
+        for (MultiGetItemResponse item : future.actionGet(timeout, timeUnit).getResponses()) {
+            if (item != null && !item.isFailed() && item.getResponse().isExists()) {
+                versions.put(item.getType(), item.getResponse().getVersion());
+            }
+        }
+        return versions;
+    }
+
     public void loadAsync(final String[] events, final ConfigCallback callback) {        
         if(events == null || events.length == 0) {
             log.warn("No config events requested to load");
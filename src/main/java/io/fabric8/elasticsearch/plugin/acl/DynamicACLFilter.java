@@ -16,6 +16,7 @@
 
 package io.fabric8.elasticsearch.plugin.acl;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.UnaryOperator;
 
 import org.apache.commons.lang.StringUtils;
@@ -24,6 +25,7 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.rest.BytesRestResponse;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestHandler;
 import org.elasticsearch.rest.RestRequest;
@@ -34,10 +36,15 @@ import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory.OpenshiftR
 import io.fabric8.elasticsearch.plugin.PluginSettings;
 import io.fabric8.elasticsearch.plugin.kibana.KibanaSeed;
 import io.fabric8.elasticsearch.plugin.rest.RestChannelInterceptor;
+import io.fabric8.elasticsearch.plugin.stats.PluginStats;
 import io.fabric8.elasticsearch.util.RequestUtils;
 
 /**
- * REST filter to update the ACL when a user first makes a request
+ * REST filter to update the ACL when a user first makes a request.  Seeding
+ * the Kibana index of the user and syncing the ACL are independent so they
+ * run concurrently and the request is handed to the wrapped handler once both
+ * completed.  The network thread which received the request never waits for
+ * them.
  */
 public class DynamicACLFilter implements ConfigurationSettings {
 
@@ -50,13 +57,15 @@ public class DynamicACLFilter implements ConfigurationSettings {
     private final RequestUtils utils;
     private final ThreadContext threadContext;
     private final String defaultKibanaIndex;
+    private final PluginStats stats;
 
     public DynamicACLFilter(final PluginSettings settings, 
             final KibanaSeed seed, 
             final Client client, 
             final ThreadPool threadPool,
             final RequestUtils utils,
-            final ACLDocumentManager aclManager) {
+            final ACLDocumentManager aclManager,
+            final PluginStats stats) {
         this.threadContext = threadPool.getThreadContext();
         this.kibanaSeed = seed;
         this.kibanaVersion = settings.getKibanaVersion();
@@ -65,6 +74,7 @@ public class DynamicACLFilter implements ConfigurationSettings {
         this.defaultKibanaIndex = settings.getDefaultKibanaIndex();
         this.utils = utils;
         this.aclManager = aclManager;
+        this.stats = stats;
     }
 
     /*
@@ -80,10 +90,26 @@ public class DynamicACLFilter implements ConfigurationSettings {
                 
                 @Override
                 public void handleRequest(RestRequest request, RestChannel channel, NodeClient client) throws Exception {
-                    if ((request = continueProcessing(request, channel)) != null) {
-                        RestChannelInterceptor interceptor = new RestChannelInterceptor(channel, threadContext, defaultKibanaIndex);
-                        original.handleRequest(request, interceptor, client);
+                    final RestRequest modified = continueProcessing(request, channel);
+                    final CompletableFuture<Void> syncAndSeed = syncAndSeed(modified);
+                    if (syncAndSeed == null) {
+                        handle(modified, channel, client);
+                        return;
                     }
+                    // the sync completes on another thread which must handle the request in its context
+                    final Runnable handler = threadContext.preserveContext(() -> {
+                        try {
+                            handle(modified, channel, client);
+                        } catch (Exception e) {
+                            sendFailure(channel, e);
+                        }
+                    });
+                    syncAndSeed.whenComplete((ignored, e) -> handler.run());
+                }
+
+                private void handle(RestRequest request, RestChannel channel, NodeClient client) throws Exception {
+                    RestChannelInterceptor interceptor = new RestChannelInterceptor(channel, threadContext, defaultKibanaIndex, stats);
+                    original.handleRequest(request, interceptor, client);
                 }
             };
 
@@ -101,18 +127,6 @@ public class DynamicACLFilter implements ConfigurationSettings {
             if (threadContext.getTransient(OPENSHIFT_REQUEST_CONTEXT) != null) {
                 OpenshiftRequestContext requestContext = threadContext.getTransient(OPENSHIFT_REQUEST_CONTEXT);
                 request = utils.modifyRequest(request, requestContext, channel);
-                Boolean syncAndSeed = threadContext.getTransient(SYNC_AND_SEED);
-                if (requestContext != OpenshiftRequestContext.EMPTY){
-                    if(Boolean.TRUE.equals(syncAndSeed)) {
-                        LOGGER.debug("Seeding dashboards and syncing ACLs for user {}", requestContext.getUser());
-                        utils.logRequest(request);
-                        final String kbnVersion = getKibanaVersion(request);
-                        kibanaSeed.setDashboards(requestContext, kbnVersion, cdmProjectPrefix);
-                        aclManager.syncAcl(requestContext);
-                    } else {
-                        LOGGER.debug("Cache hit. Skipping dashboards and syncing ACLs for user {}", requestContext.getUser());
-                    }
-                }
             }
         } catch (Exception e) {
             LOGGER.error("Error handling request", e);
@@ -120,6 +134,47 @@ public class DynamicACLFilter implements ConfigurationSettings {
         return request;
     }
 
+    /**
+     * Seed the dashboards and sync the ACLs of a user whose context was just
+     * loaded.  Failures of either step are logged and do not fail the request
+     *
+     * @param request the request of the user
+     * @return a future completed when both steps completed or null when
+     *          nothing needs to be done
+     */
+    public CompletableFuture<Void> syncAndSeed(final RestRequest request) {
+        final OpenshiftRequestContext requestContext = threadContext.getTransient(OPENSHIFT_REQUEST_CONTEXT);
+        if (requestContext == null || requestContext == OpenshiftRequestContext.EMPTY) {
+            return null;
+        }
+        if (!Boolean.TRUE.equals(threadContext.getTransient(SYNC_AND_SEED))) {
+            LOGGER.debug("Cache hit. Skipping dashboards and syncing ACLs for user {}", requestContext.getUser());
+            return null;
+        }
+        LOGGER.debug("Seeding dashboards and syncing ACLs for user {}", requestContext.getUser());
+        utils.logRequest(request);
+        final String kbnVersion = getKibanaVersion(request);
+        CompletableFuture<Void> seed = kibanaSeed.setDashboards(requestContext, kbnVersion, cdmProjectPrefix)
+                .exceptionally(e -> {
+                    LOGGER.error("Error seeding the dashboards of user {}", requestContext.getUser(), e);
+                    return null;
+                });
+        CompletableFuture<Boolean> sync = aclManager.syncAclAsync(requestContext)
+                .exceptionally(e -> {
+                    LOGGER.error("Error syncing the ACLs of user {}", requestContext.getUser(), e);
+                    return false;
+                });
+        return CompletableFuture.allOf(seed, sync);
+    }
+
+    private static void sendFailure(final RestChannel channel, final Exception failure) {
+        try {
+            channel.sendResponse(new BytesRestResponse(channel, failure));
+        } catch (Exception e) {
+            LOGGER.error("Unable to send the failure of the request", e);
+        }
+    }
+
 
     private String getKibanaVersion(final RestRequest request) {
         String kbnVersion = StringUtils.defaultIfEmpty(request.header(kbnVersionHeader), "");
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Names of ACL entries ordered by the time they expire so the expired
+ * entries of a document are found without visiting every entry
+ */
+class ExpiryIndex {
+
+    /**
+     * The expiry of an entry which does not expire
+     */
+    static final long NONE = -1L;
+
+    private final TreeMap<Long, Set<String>> index = new TreeMap<>();
+
+    /**
+     * @param expires the expiry in millis as stored in the document
+     * @return the expiry or {@link #NONE} if it is missing or not a number
+     */
+    static long parse(final String expires) {
+        if (expires == null) {
+            return NONE;
+        }
+        try {
+            return Long.parseLong(expires.trim());
+        } catch (NumberFormatException e) {
+            return NONE;
+        }
+    }
+
+    static String format(final long expires) {
+        return expires == NONE ? null : String.valueOf(expires);
+    }
+
+    void add(final String name, final long expires) {
+        if (expires != NONE) {
+            index.computeIfAbsent(expires, k -> new HashSet<>()).add(name);
+        }
+    }
+
+    void remove(final String name, final long expires) {
+        Set<String> names = index.get(expires);
+        if (names != null && names.remove(name) && names.isEmpty()) {
+            index.remove(expires);
+        }
+    }
+
+    /**
+     * Remove and return the names of entries which expire before the given time
+     *
+     * @param now the time in millis
+     * @return the names
+     */
+    List<String> pollExpired(final long now) {
+        NavigableMap<Long, Set<String>> expired = index.headMap(now, false);
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<Long, Set<String>> entry : expired.entrySet()) {
+            names.addAll(entry.getValue());
+        }
+        expired.clear();
+        return names;
+    }
+
+    int size() {
+        int size = 0;
+        for (Set<String> names : index.values()) {
+            size += names.size();
+        }
+        return size;
+    }
+}
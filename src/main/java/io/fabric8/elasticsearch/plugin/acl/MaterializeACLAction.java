@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.client.ElasticsearchClient;
+
+/**
+ * Ask the elected master to merge the sharded generated ACLs into the ACL
+ * documents SearchGuard reads
+ */
+public class MaterializeACLAction extends Action<MaterializeACLRequest, MaterializeACLResponse, MaterializeACLRequestBuilder> {
+
+    public static final MaterializeACLAction INSTANCE = new MaterializeACLAction();
+    public static final String NAME = "cluster:admin/openshift/acl/materialize";
+
+    private MaterializeACLAction() {
+        super(NAME);
+    }
+
+    @Override
+    public MaterializeACLRequestBuilder newRequestBuilder(ElasticsearchClient client) {
+        return new MaterializeACLRequestBuilder(client, this);
+    }
+
+    @Override
+    public MaterializeACLResponse newResponse() {
+        return new MaterializeACLResponse();
+    }
+}
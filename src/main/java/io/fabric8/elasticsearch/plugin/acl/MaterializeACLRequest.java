@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import java.io.IOException;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.master.MasterNodeRequest;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import io.fabric8.elasticsearch.plugin.acl.ShardedACLStore.ShardIds;
+
+public class MaterializeACLRequest extends MasterNodeRequest<MaterializeACLRequest> {
+
+    private ShardIds shards = new ShardIds();
+
+    public MaterializeACLRequest() {
+        super();
+    }
+
+    /**
+     * @param shards the ids of the sharded ACLs to materialize
+     */
+    public MaterializeACLRequest(final ShardIds shards) {
+        super();
+        this.shards = shards;
+    }
+
+    public ShardIds getShards() {
+        return shards;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        return null;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        shards = new ShardIds(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        shards.writeTo(out);
+    }
+}
@@ -16,8 +16,7 @@
 
 package io.fabric8.elasticsearch.plugin.acl;
 
-import org.apache.commons.lang.StringUtils;
-
+import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
 import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory.OpenshiftRequestContext;
 import io.fabric8.elasticsearch.plugin.model.Project;
 
@@ -36,37 +35,29 @@ import io.fabric8.elasticsearch.plugin.model.Project;
 public class ProjectRolesSyncStrategy extends BaseRolesSyncStrategy {
 
 
-    private final String cdmProjectPrefix;
+    private final RoleTemplateCache templates;
     private final String kibanaIndexMode;
-    private final String expires;
+    private final long expires;
     
     public ProjectRolesSyncStrategy(SearchGuardRoles roles, 
             final String userProfilePrefix, final String cdmProjectPrefix, final String kibanaIndexMode, final long expiresInMillies) {
+        this(roles, userProfilePrefix, new RoleTemplateCache(cdmProjectPrefix, ConfigurationSettings.DEFAULT_OPENSHIFT_ACL_ROLE_CACHE_MAXSIZE),
+                kibanaIndexMode, expiresInMillies);
+    }
+
+    ProjectRolesSyncStrategy(SearchGuardRoles roles, 
+            final String userProfilePrefix, final RoleTemplateCache templates, final String kibanaIndexMode, final long expiresInMillies) {
         super(roles, userProfilePrefix);
         this.roles = roles;
-        this.cdmProjectPrefix = cdmProjectPrefix;
+        this.templates = templates;
         this.kibanaIndexMode = kibanaIndexMode;
-        this.expires = String.valueOf(expiresInMillies);
+        this.expires = expiresInMillies;
     }
 
     @Override
     public void syncFromImpl(OpenshiftRequestContext context, RolesBuilder builder) {
         for (Project project : context.getProjects()) {
-            String projectName = String.format("%s_%s", SearchGuardRoles.PROJECT_PREFIX, project.getName().replace('.', '_'));
-            String indexName = String.format("%s?%s?*", project.getName().replace('.', '?'), project.getUID());
-            RoleBuilder role = new RoleBuilder(projectName)
-                .setActions(indexName, ALL,PROJECT_ROLE_ACTIONS)
-                .expires(expires);
-
-            // If using common data model, allow access to both the
-            // $projname.$uuid.* indices and
-            // the project.$projname.$uuid.* indices for backwards compatibility
-            if (StringUtils.isNotEmpty(cdmProjectPrefix)) {
-                indexName = String.format("%s?%s?%s?*", cdmProjectPrefix.replace('.', '?'), project.getName().replace('.', '?'), project.getUID());
-                role.setActions(indexName, ALL, PROJECT_ROLE_ACTIONS);
-            }
-
-            builder.addRole(role.build());
+            builder.addRole(templates.projectRole(project, expires));
         }
         
         //create role to user's Kibana index
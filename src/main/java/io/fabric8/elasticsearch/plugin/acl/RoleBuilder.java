@@ -34,13 +34,17 @@ public class RoleBuilder {
     private String name;
     private Set<String> clusters = new HashSet<String>();
     private Map<String, HashMap<String, HashSet<String>>> indices = new HashMap<String, HashMap<String, HashSet<String>>>();
-    private String expires;
+    private long expires = ExpiryIndex.NONE;
 
     public RoleBuilder(String name) {
         this.name = name;
     }
     
     public RoleBuilder expires(String expiresInMillis) {
+        return expires(ExpiryIndex.parse(expiresInMillis));
+    }
+
+    public RoleBuilder expires(long expiresInMillis) {
         this.expires = expiresInMillis;
         return this;
     }
@@ -78,27 +82,25 @@ public class RoleBuilder {
         return setActions(index, type, Arrays.asList(actions));
     }
 
+    /**
+     * Build the role.  The actions, index patterns and index permissions of
+     * the role are interned and shared with other roles so they must not be
+     * modified
+     *
+     * @return the role
+     */
     public Roles build() {
         role.setName(name);
-        role.setCluster(new ArrayList<String>(clusters));
+        role.setCluster(RoleInterner.actions(clusters));
         role.setExpires(expires);
 
-        List<Indices> roleIndices = new ArrayList<Indices>();
-        for (String indexKey : indices.keySet()) {
-
-            Indices index = new Indices();
-            index.setIndex(indexKey);
-
-            List<Type> types = new ArrayList<Type>();
-            for (String typeKey : indices.get(indexKey).keySet()) {
-                Type type = new Type();
-                type.setType(typeKey);
-                type.setActions(new ArrayList<String>(indices.get(indexKey).get(typeKey)));
-                types.add(type);
+        List<Indices> roleIndices = new ArrayList<Indices>(indices.size());
+        for (Map.Entry<String, HashMap<String, HashSet<String>>> index : indices.entrySet()) {
+            List<Type> types = new ArrayList<Type>(index.getValue().size());
+            for (Map.Entry<String, HashSet<String>> type : index.getValue().entrySet()) {
+                types.add(RoleInterner.type(type.getKey(), type.getValue()));
             }
-
-            index.setTypes(types);
-            roleIndices.add(index);
+            roleIndices.add(RoleInterner.indices(index.getKey(), types));
         }
 
         role.setIndices(roleIndices);
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles.Indices;
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles.Indices.Type;
+
+/**
+ * Canonical instances of the parts of generated roles.  Nearly every
+ * generated role is made of the same few action lists and many roles refer
+ * to the same index patterns so sharing them keeps the roles document
+ * small no matter how many roles it holds.  Interned instances are shared
+ * and must not be modified.  References are weak so parts which are no
+ * longer used by any role can be collected.
+ */
+final class RoleInterner {
+
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+    private static final Interner<List<String>> ACTIONS = Interners.newWeakInterner();
+    private static final Interner<Type> TYPES = Interners.newWeakInterner();
+    private static final Interner<List<Type>> TYPE_LISTS = Interners.newWeakInterner();
+    private static final Interner<Indices> INDICES = Interners.newWeakInterner();
+
+    private RoleInterner() {
+    }
+
+    static String intern(final String value) {
+        return value == null ? null : STRINGS.intern(value);
+    }
+
+    /**
+     * @param actions the actions in the order they should be serialized
+     * @return an immutable, shared list of the actions
+     */
+    static List<String> actions(final Collection<String> actions) {
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        for (String action : actions) {
+            builder.add(intern(action));
+        }
+        return ACTIONS.intern(builder.build());
+    }
+
+    static Type type(final String type, final Collection<String> actions) {
+        Type value = new Type();
+        value.setType(intern(type));
+        value.setActions(actions(actions));
+        return TYPES.intern(value);
+    }
+
+    static Indices indices(final String index, final List<Type> types) {
+        Indices value = new Indices();
+        value.setIndex(intern(index));
+        value.setTypes(TYPE_LISTS.intern(ImmutableList.copyOf(types)));
+        return INDICES.intern(value);
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import static io.fabric8.elasticsearch.plugin.acl.RolesSyncStrategy.ALL;
+import static io.fabric8.elasticsearch.plugin.acl.RolesSyncStrategy.PROJECT_ROLE_ACTIONS;
+import static io.fabric8.elasticsearch.plugin.acl.RolesSyncStrategy.USER_ROLE_CLUSTER_ACTIONS;
+
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles;
+import io.fabric8.elasticsearch.plugin.model.Project;
+import io.fabric8.elasticsearch.plugin.model.ProjectSet;
+
+/**
+ * Generated roles which only depend on the projects they give access to so
+ * they can be reused by later syncs instead of being built again.  The cached
+ * roles are templates which are never added to a roles document: syncs add
+ * copies which share the permissions of the template and carry their own
+ * expiry
+ */
+class RoleTemplateCache {
+
+    private final String cdmProjectPrefix;
+    private final Cache<Project, List<String>> indexPatterns;
+    private final Cache<Project, Roles> projectRoles;
+    private final Cache<String, UserRole> userRoles;
+
+    private static final class UserRole {
+        private final int projectsHash;
+        private final Set<Project> projects;
+        private final Roles role;
+
+        UserRole(final Set<Project> projects, final Roles role) {
+            this.projects = ProjectSet.of(projects);
+            this.projectsHash = this.projects.hashCode();
+            this.role = role;
+        }
+
+        boolean isFor(final Set<Project> projects) {
+            return projectsHash == projects.hashCode() && this.projects.equals(projects);
+        }
+    }
+
+    /**
+     * @param cdmProjectPrefix the prefix of project indices of the common data model
+     * @param maxSize          the maximum number of templates of each kind
+     */
+    RoleTemplateCache(final String cdmProjectPrefix, final long maxSize) {
+        this.cdmProjectPrefix = cdmProjectPrefix;
+        this.indexPatterns = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+        this.projectRoles = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+        this.userRoles = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * The index patterns of a project: $projname.$uuid.* and, when using the
+     * common data model, $prefix.$projname.$uuid.* for backwards compatibility
+     *
+     * @param project the project
+     * @return the patterns
+     */
+    List<String> indexPatterns(final Project project) {
+        List<String> patterns = indexPatterns.getIfPresent(project);
+        if (patterns == null) {
+            final String name = project.getName().replace('.', '?');
+            if (StringUtils.isNotEmpty(cdmProjectPrefix)) {
+                patterns = ImmutableList.of(String.format("%s?%s?*", name, project.getUID()),
+                        String.format("%s?%s?%s?*", cdmProjectPrefix.replace('.', '?'), name, project.getUID()));
+            } else {
+                patterns = ImmutableList.of(String.format("%s?%s?*", name, project.getUID()));
+            }
+            indexPatterns.put(project, patterns);
+        }
+        return patterns;
+    }
+
+    /**
+     * @param project the project
+     * @param expires the expiry of the role
+     * @return the role giving access to the indices of the project
+     */
+    Roles projectRole(final Project project, final long expires) {
+        Roles template = projectRoles.getIfPresent(project);
+        if (template == null) {
+            RoleBuilder builder = new RoleBuilder(String.format("%s_%s", SearchGuardRoles.PROJECT_PREFIX, project.getName().replace('.', '_')));
+            for (String pattern : indexPatterns(project)) {
+                builder.setActions(pattern, ALL, PROJECT_ROLE_ACTIONS);
+            }
+            template = builder.build();
+            projectRoles.put(project, template);
+        }
+        return template.copy(expires);
+    }
+
+    /**
+     * @param user     the user
+     * @param projects the projects of the user
+     * @param expires  the expiry of the role
+     * @return the role giving the user access to the indices of the projects
+     */
+    Roles userRole(final String user, final Set<Project> projects, final long expires) {
+        UserRole cached = userRoles.getIfPresent(user);
+        if (cached == null || !cached.isFor(projects)) {
+            RoleBuilder builder = new RoleBuilder(BaseRolesSyncStrategy.formatUserRoleName(user))
+                    .setClusters(USER_ROLE_CLUSTER_ACTIONS);
+            for (Project project : projects) {
+                for (String pattern : indexPatterns(project)) {
+                    builder.setActions(pattern, ALL, PROJECT_ROLE_ACTIONS);
+                }
+            }
+            cached = new UserRole(projects, builder.build());
+            userRoles.put(user, cached);
+        }
+        return cached.role.copy(expires);
+    }
+}
@@ -28,7 +28,7 @@ public class RolesMappingBuilder {
 
     private Map<String, HashSet<String>> roles = new HashMap<>();
     private List<RolesMapping> rolesMappings = new ArrayList<RolesMapping>();
-    private String expire;
+    private long expire = ExpiryIndex.NONE;
 
     public List<RolesMapping> build() {
 
@@ -64,7 +64,11 @@ public class RolesMappingBuilder {
     }
 
     public RolesMappingBuilder expire(String expire) {
-        this.expire = expire;
+        return expire(ExpiryIndex.parse(expire));
+    }
+
+    public RolesMappingBuilder expire(long expiresInMillis) {
+        this.expire = expiresInMillis;
         return this;
     }
     
@@ -29,4 +29,9 @@ public interface SearchGuardACLDocument<T> extends ToXContentObject {
     T load(Map<String, Object> sourceAsMap);
     
     Long getVersion();
+
+    /**
+     * @param version the version of the document after it was written
+     */
+    void setVersion(Long version);
 }
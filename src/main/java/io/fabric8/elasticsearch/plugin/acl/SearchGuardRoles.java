@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.builder.ToStringBuilder;
@@ -50,17 +51,22 @@ public class SearchGuardRoles
     private static final String INDICES_HEADER = "indices";
 
     private Map<String, Roles> roles = new HashMap<>();
+    private final ExpiryIndex expiries = new ExpiryIndex();
     private Long version;
 
     public static class Roles {
 
+        private static final Comparator<Indices> BY_INDEX = Comparator.comparing(Indices::getIndex);
+
         private String name;
-        private String expires;
+        private long expires = ExpiryIndex.NONE;
         
         // This is just a list of actions
         private List<String> cluster = new ArrayList<>();
 
         private List<Indices> indices = new ArrayList<>();
+        // true when the indices are shared with the role this one was copied from
+        private boolean sharedIndices;
         
         public Roles() {
         }
@@ -69,15 +75,45 @@ public class SearchGuardRoles
             this.name = name;
         }
 
+        /**
+         * Copy the role with a different expiry.  The copy shares the
+         * permissions of this role until it is modified
+         *
+         * @param expiresInMillis the expiry of the copy
+         * @return the copy
+         */
+        Roles copy(long expiresInMillis) {
+            Roles copy = new Roles(name);
+            copy.expires = expiresInMillis;
+            copy.cluster = cluster;
+            copy.indices = indices;
+            copy.sharedIndices = true;
+            return copy;
+        }
+
         public String getName() {
             return name;
         }
         
         public void setExpires(String expiresInMillies) {
-            this.expires = expiresInMillies;
+            this.expires = ExpiryIndex.parse(expiresInMillies);
+        }
+
+        /**
+         * Set when the role expires.  The expiry of a role must be set before
+         * it is added to the roles document
+         *
+         * @param expiresInMillis the expiry or -1 if the role does not expire
+         */
+        public void setExpires(long expiresInMillis) {
+            this.expires = expiresInMillis;
         }
         
         public String getExpire() {
+            return ExpiryIndex.format(expires);
+        }
+
+        public long getExpiresInMillis() {
             return expires;
         }
         
@@ -94,23 +130,49 @@ public class SearchGuardRoles
         }
 
         public void addClusterAction(String action) {
-            this.cluster.add(action);
+            // the list may be shared with other roles
+            List<String> actions = new ArrayList<>(this.cluster);
+            actions.add(action);
+            this.cluster = actions;
         }
         
+        /**
+         * Add index permissions keeping the permissions sorted by index
+         *
+         * @param index the permissions of an index
+         */
         public void addIndexAction(Indices index) {
-            this.indices.add(index);
+            if (sharedIndices) {
+                this.indices = new ArrayList<>(this.indices);
+                sharedIndices = false;
+            }
+            int position = Collections.binarySearch(this.indices, index, BY_INDEX);
+            if (position < 0) {
+                position = -position - 1;
+            } else {
+                while (position < this.indices.size() && BY_INDEX.compare(this.indices.get(position), index) == 0) {
+                    position++;
+                }
+            }
+            this.indices.add(position, index);
         }
 
         public void addIndexAction(String index, String type, String action) {
-            this.indices.add(new Indices(index, type, action));
+            addIndexAction(new Indices(index, type, action));
         }
 
+        /**
+         * @return the index permissions sorted by index
+         */
         public List<Indices> getIndices() {
             return indices;
         }
 
         public void setIndices(List<Indices> indices) {
-            this.indices = indices;
+            List<Indices> sorted = new ArrayList<>(indices);
+            sorted.sort(BY_INDEX);
+            this.indices = sorted;
+            this.sharedIndices = false;
         }
 
         @Override
@@ -181,12 +243,46 @@ public class SearchGuardRoles
                     this.actions = actions;
                 }
 
+                @Override
+                public boolean equals(Object obj) {
+                    if (this == obj) {
+                        return true;
+                    }
+                    if (!(obj instanceof Type)) {
+                        return false;
+                    }
+                    Type other = (Type) obj;
+                    return Objects.equals(type, other.type) && Objects.equals(actions, other.actions);
+                }
+
+                @Override
+                public int hashCode() {
+                    return Objects.hash(type, actions);
+                }
+
                 @Override
                 public String toString() {
                     return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
                 }
             }
 
+            @Override
+            public boolean equals(Object obj) {
+                if (this == obj) {
+                    return true;
+                }
+                if (!(obj instanceof Indices)) {
+                    return false;
+                }
+                Indices other = (Indices) obj;
+                return Objects.equals(index, other.index) && Objects.equals(types, other.types);
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hash(index, types);
+            }
+
             @Override
             public String toString() {
                 return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
@@ -207,6 +303,10 @@ public class SearchGuardRoles
         return version;
     }
 
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public Iterator<Roles> iterator() {
         return new ArrayList<>(roles.values()).iterator();
@@ -218,17 +318,53 @@ public class SearchGuardRoles
     }
 
     public void removeRole(Roles role) {
-        roles.remove(role.getName());
+        Roles removed = roles.remove(role.getName());
+        if (removed != null) {
+            expiries.remove(removed.getName(), removed.getExpiresInMillis());
+        }
     }
 
     public void addAll(Collection<Roles> roles) {
         for (Roles role : roles) {
-            this.roles.put(role.getName(), role);
+            Roles previous = this.roles.put(role.getName(), role);
+            if (previous != null) {
+                expiries.remove(previous.getName(), previous.getExpiresInMillis());
+            }
+            expiries.add(role.getName(), role.getExpiresInMillis());
         }
     }
 
+    /**
+     * Remove the roles which expire before the given time.  Only the expired
+     * roles are visited
+     *
+     * @param now the time in millis
+     * @return the removed roles
+     */
+    public List<Roles> removeExpired(long now) {
+        List<Roles> removed = new ArrayList<>();
+        for (String name : expiries.pollExpired(now)) {
+            Roles role = roles.get(name);
+            if (role == null) {
+                continue;
+            }
+            long expires = role.getExpiresInMillis();
+            if (expires != ExpiryIndex.NONE && expires < now) {
+                roles.remove(name);
+                removed.add(role);
+            } else {
+                expiries.add(name, expires);
+            }
+        }
+        return removed;
+    }
+
     public static String formatUniqueKibanaRoleName(String username) {
-        return String.format("%s_%s_%s", ROLE_PREFIX, "kibana", getUsernameHash(username));
+        return formatUniqueKibanaRoleNameFromHash(getUsernameHash(username));
+    }
+
+    public static String formatUniqueKibanaRoleNameFromHash(String usernameHash) {
+        return String.format("%s_%s_%s", ROLE_PREFIX, "kibana", usernameHash);
     }
 
     @SuppressWarnings("unchecked")
@@ -287,12 +423,6 @@ public class SearchGuardRoles
                 }
                 if(!role.getIndices().isEmpty()) {
                     builder.startObject(INDICES_HEADER);
-                    role.getIndices().sort(new Comparator<Indices>() {
-                        @Override
-                        public int compare(Indices o1, Indices o2) {
-                            return o1.getIndex().compareTo(o2.getIndex());
-                        }
-                    });
                     for (Indices index : role.getIndices()) {
                         if(!index.getTypes().isEmpty()) {
                             builder.startObject(index.getIndex());
@@ -19,7 +19,9 @@ package io.fabric8.elasticsearch.plugin.acl;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -41,15 +43,17 @@ public class SearchGuardRolesMapping implements Iterable<SearchGuardRolesMapping
     private static final String USER_HEADER = "users";
     private static final String BACKEND_ROLES = "backendroles";
     private Map<String, RolesMapping> mappings = new HashMap<>();
+    private final ExpiryIndex expiries = new ExpiryIndex();
     private Long version;
     
     public static class RolesMapping {
 
         private Boolean protect;
         private String name;
-        private Set<String> users = new HashSet<String>();
+        // sorted, distinct and interned
+        private String[] users = SortedUsers.EMPTY;
         private Set<String> backendroles = new HashSet<String>();
-        private String expire;
+        private long expire = ExpiryIndex.NONE;
 
         public Boolean getProtected() {
             return this.protect;
@@ -67,15 +71,15 @@ public class SearchGuardRolesMapping implements Iterable<SearchGuardRolesMapping
             this.name = name;
         }
 
+        /**
+         * @return the users sorted by name
+         */
         public Collection<String> getUsers() {
-            return users;
+            return Collections.unmodifiableList(Arrays.asList(users));
         }
 
         public void setUsers(Collection<String> users) {
-            if(users == null ) {
-                users = new HashSet<>();
-            }
-            this.users = new HashSet<>(users);
+            this.users = SortedUsers.of(users);
         }
 
         public void setBackendRoles(Collection<String> roles) {
@@ -95,20 +99,38 @@ public class SearchGuardRolesMapping implements Iterable<SearchGuardRolesMapping
             return new StringBuilder()
                     .append("name=").append(getName()).append("\n")
                     .append("expire=").append(getExpire()).append("\n")
-                    .append("users=").append(getUsers().toArray()).append("\n")
+                    .append("users=").append(Arrays.toString(users)).append("\n")
                     .append("backendroles=").append(getBackendRoles().toArray()).append("\n")
                     .toString();
         }
 
         public void addAll(Collection<String> users) {
-            this.users.addAll(users);
+            this.users = SortedUsers.merge(this.users, SortedUsers.of(users));
+        }
+
+        public void addAll(RolesMapping mapping) {
+            this.users = SortedUsers.merge(this.users, mapping.users);
         }
 
         public void setExpire(String expire) {
-            this.expire = expire;
+            this.expire = ExpiryIndex.parse(expire);
+        }
+
+        /**
+         * Set when the mapping expires.  The expiry of a mapping must be set
+         * before it is added to the roles mapping document
+         *
+         * @param expiresInMillis the expiry or -1 if the mapping does not expire
+         */
+        public void setExpire(long expiresInMillis) {
+            this.expire = expiresInMillis;
         }
 
         public String getExpire() {
+            return ExpiryIndex.format(this.expire);
+        }
+
+        public long getExpiresInMillis() {
             return this.expire;
         }
     }
@@ -126,6 +148,10 @@ public class SearchGuardRolesMapping implements Iterable<SearchGuardRolesMapping
         return version;
     }
 
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public Iterator<RolesMapping> iterator() {
         return new ArrayList<>(mappings.values()).iterator();
@@ -136,8 +162,56 @@ public class SearchGuardRolesMapping implements Iterable<SearchGuardRolesMapping
         return ToStringBuilder.reflectionToString(this, ToStringStyle.SHORT_PREFIX_STYLE);
     }
 
+    /**
+     * @return true if any mapping maps backend roles
+     */
+    public boolean hasBackendRoles() {
+        for (RolesMapping mapping : mappings.values()) {
+            if (!mapping.getBackendRoles().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void removeRolesMapping(RolesMapping mapping) {
-        mappings.remove(mapping.getName());
+        RolesMapping removed = mappings.remove(mapping.getName());
+        if (removed != null) {
+            expiries.remove(removed.getName(), removed.getExpiresInMillis());
+        }
+    }
+
+    /**
+     * Remove the mappings which expire before the given time.  Only the
+     * expired mappings are visited
+     *
+     * @param now the time in millis
+     * @return the removed mappings
+     */
+    public List<RolesMapping> removeExpired(long now) {
+        List<RolesMapping> removed = new ArrayList<>();
+        for (String name : expiries.pollExpired(now)) {
+            RolesMapping mapping = mappings.get(name);
+            if (mapping == null) {
+                continue;
+            }
+            long expires = mapping.getExpiresInMillis();
+            if (expires != ExpiryIndex.NONE && expires < now) {
+                mappings.remove(name);
+                removed.add(mapping);
+            } else {
+                expiries.add(name, expires);
+            }
+        }
+        return removed;
+    }
+
+    private void put(RolesMapping mapping) {
+        RolesMapping previous = mappings.put(mapping.getName(), mapping);
+        if (previous != null) {
+            expiries.remove(previous.getName(), previous.getExpiresInMillis());
+        }
+        expiries.add(mapping.getName(), mapping.getExpiresInMillis());
     }
 
     @SuppressWarnings("unchecked")
@@ -155,7 +229,7 @@ public class SearchGuardRolesMapping implements Iterable<SearchGuardRolesMapping
             if(rawMappings.containsKey(EXPIRES)) {
                 mapping.setExpire((String)rawMappings.get(EXPIRES));
             }
-            mappings.put(mapping.getName(), mapping);
+            put(mapping);
         }
         
         return this;
@@ -174,7 +248,7 @@ public class SearchGuardRolesMapping implements Iterable<SearchGuardRolesMapping
                 if(mapping.getExpire() != null) {
                     builder.field(EXPIRES, mapping.getExpire());
                 }
-                builder.array(USER_HEADER, mapping.getUsers().toArray());
+                builder.array(USER_HEADER, mapping.users);
                 if(!mapping.getBackendRoles().isEmpty()) {
                     builder.array(BACKEND_ROLES, mapping.getBackendRoles().toArray());
                 }
@@ -189,9 +263,9 @@ public class SearchGuardRolesMapping implements Iterable<SearchGuardRolesMapping
     public void addAll(Collection<RolesMapping> mappings) {
         for (RolesMapping rolesMapping : mappings) {
             if(this.mappings.containsKey(rolesMapping.getName())){
-                this.mappings.get(rolesMapping.getName()).addAll(rolesMapping.getUsers());
+                this.mappings.get(rolesMapping.getName()).addAll(rolesMapping);
             } else {
-                this.mappings.put(rolesMapping.getName(), rolesMapping);
+                put(rolesMapping);
             }
         }
     }
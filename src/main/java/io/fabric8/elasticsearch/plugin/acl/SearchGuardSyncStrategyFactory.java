@@ -16,6 +16,7 @@
 
 package io.fabric8.elasticsearch.plugin.acl;
 
+import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
 import io.fabric8.elasticsearch.plugin.PluginSettings;
 
 /**
@@ -28,9 +29,13 @@ public class SearchGuardSyncStrategyFactory {
     public static final String USER = "user";
     
     private final PluginSettings settings;
+    private final RoleTemplateCache templates;
 
     public SearchGuardSyncStrategyFactory(final PluginSettings settings) {
         this.settings = settings;
+        this.templates = new RoleTemplateCache(settings.getCdmProjectPrefix(),
+                settings.getSettings().getAsLong(ConfigurationSettings.OPENSHIFT_ACL_ROLE_CACHE_MAXSIZE,
+                        ConfigurationSettings.DEFAULT_OPENSHIFT_ACL_ROLE_CACHE_MAXSIZE));
     }
     
     public RolesMappingSyncStrategy createRolesMappingSyncStrategy(SearchGuardRolesMapping mapping, long currentTime) {
@@ -45,10 +50,10 @@ public class SearchGuardSyncStrategyFactory {
         final long expires = currentTime + settings.getACLExpiresInMillis();
         if(PROJECT.equals(settings.getRoleStrategy())) {
             return new ProjectRolesSyncStrategy(roles, 
-                    settings.getDefaultKibanaIndex(), settings.getCdmProjectPrefix(), settings.getKibanaIndexMode(), expires);
+                    settings.getDefaultKibanaIndex(), templates, settings.getKibanaIndexMode(), expires);
         }
         return new UserRolesSyncStrategy(roles, 
-                settings.getDefaultKibanaIndex(), settings.getCdmProjectPrefix(), settings.getKibanaIndexMode(), expires);
+                settings.getDefaultKibanaIndex(), templates, settings.getKibanaIndexMode(), expires);
     }
     
 }
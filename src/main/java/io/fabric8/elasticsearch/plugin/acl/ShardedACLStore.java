@@ -0,0 +1,518 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest.OpType;
+import org.elasticsearch.action.admin.indices.mapping.put.PutMappingResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.SearchHit;
+
+import com.floragunn.searchguard.support.ConfigConstants;
+
+import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
+import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory.OpenshiftRequestContext;
+import io.fabric8.elasticsearch.plugin.PluginClient;
+import io.fabric8.elasticsearch.plugin.PluginSettings;
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles;
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRolesMapping.RolesMapping;
+
+/**
+ * Stores the generated roles and role mappings as one document per role and
+ * per user of a role mapping.  Users only ever write their own documents so
+ * writes from different nodes do not conflict.  The documents are merged into
+ * the ACL documents SearchGuard reads when they are materialized by the
+ * elected master.
+ *
+ * The documents are kept in the SearchGuard index, under types of their own,
+ * so only the plugin may write them.  Only generated roles and role mappings
+ * are ever read from them
+ */
+public class ShardedACLStore implements ConfigurationSettings {
+
+    public static final String ROLE_SHARD_TYPE = "openshift-roles";
+    public static final String MAPPING_SHARD_TYPE = "openshift-rolesmapping";
+    private static final String MIGRATION_TYPE = "openshift-acl";
+    private static final String MIGRATION_ID = "migrated";
+
+    private static final Logger LOGGER = Loggers.getLogger(ShardedACLStore.class);
+    private static final String EXPIRES_FIELD = "expires";
+    private static final String ACL_FIELD = "acl";
+    private static final TimeValue SCROLL_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+    private static final int SCROLL_SIZE = 1000;
+
+    private final PluginClient client;
+    private final ThreadContext threadContext;
+    private final SearchGuardSyncStrategyFactory documentFactory;
+    private final String index;
+    private final boolean enabled;
+    private volatile boolean mapped;
+    private volatile boolean migrated;
+
+    public ShardedACLStore(final PluginClient client, final ThreadContext threadContext, final PluginSettings settings,
+            final SearchGuardSyncStrategyFactory documentFactory) {
+        this.client = client;
+        this.threadContext = threadContext;
+        this.documentFactory = documentFactory;
+        this.index = settings.getSearchGuardIndex();
+        this.enabled = ACL_STORAGE_SHARDED.equals(settings.getACLStorage());
+    }
+
+    /**
+     * @return true if generated ACLs are stored by this store
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The ids of stored roles and role mappings
+     */
+    public static final class ShardIds {
+
+        private final Set<String> roles = new TreeSet<>();
+        private final Set<String> mappings = new TreeSet<>();
+
+        public ShardIds() {
+        }
+
+        ShardIds(final StreamInput in) throws IOException {
+            Collections.addAll(roles, in.readStringArray());
+            Collections.addAll(mappings, in.readStringArray());
+        }
+
+        void writeTo(final StreamOutput out) throws IOException {
+            out.writeStringArray(roles.toArray(new String[roles.size()]));
+            out.writeStringArray(mappings.toArray(new String[mappings.size()]));
+        }
+
+        void addAll(final ShardIds other) {
+            roles.addAll(other.roles);
+            mappings.addAll(other.mappings);
+        }
+
+        void clear() {
+            roles.clear();
+            mappings.clear();
+        }
+
+        public boolean isEmpty() {
+            return roles.isEmpty() && mappings.isEmpty();
+        }
+
+        public Set<String> getRoles() {
+            return Collections.unmodifiableSet(roles);
+        }
+
+        public Set<String> getMappings() {
+            return Collections.unmodifiableSet(mappings);
+        }
+    }
+
+    /**
+     * Write the roles and role mappings generated for the context of a user
+     * without blocking
+     *
+     * @param context the context of the user
+     * @param now the current time in millis
+     * @return a future of the ids of the written documents or of null unless
+     *          every document was written
+     */
+    public CompletableFuture<ShardIds> writeAsync(final OpenshiftRequestContext context, final long now) {
+        SearchGuardRoles roles = new SearchGuardRoles();
+        SearchGuardRolesMapping mappings = new SearchGuardRolesMapping();
+        documentFactory.createRolesSyncStrategy(roles, now).syncFrom(context);
+        documentFactory.createRolesMappingSyncStrategy(mappings, now).syncFrom(context);
+        final ShardIds ids = new ShardIds();
+        final BulkRequestBuilder bulk;
+        try {
+            bulk = prepareWrite(roles, mappings, OpType.INDEX, ids);
+        } catch (IOException e) {
+            CompletableFuture<ShardIds> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        if (bulk.numberOfActions() == 0) {
+            return CompletableFuture.completedFuture(ids);
+        }
+        return putMappingsAsync()
+            .thenCompose(ignored -> executeAsync((ActionListener<BulkResponse> listener) -> bulk.execute(listener)))
+            .thenApply(response -> isWritten(response, OpType.INDEX) ? ids : null);
+    }
+
+    /**
+     * @return true once the generated ACLs of the ACL documents were moved to
+     *          the store
+     */
+    public boolean isMigrated() {
+        if (!migrated) {
+            migrated = execute(() -> client.getClient().prepareGet(index, MIGRATION_TYPE, MIGRATION_ID).get().isExists());
+        }
+        return migrated;
+    }
+
+    /**
+     * Move the generated roles and role mappings of the ACL documents to the
+     * store and mark the store as migrated once they all were written.  Roles
+     * and role mappings which users wrote meanwhile are kept
+     *
+     * @param roles the roles document
+     * @param mappings the role mappings document
+     * @return true if the store was migrated
+     */
+    public boolean migrate(final SearchGuardRoles roles, final SearchGuardRolesMapping mappings) {
+        if (!write(roles, mappings, OpType.CREATE, new ShardIds())) {
+            return false;
+        }
+        execute(() -> client.getClient().prepareIndex(index, MIGRATION_TYPE, MIGRATION_ID)
+                .setSource(XContentFactory.jsonBuilder().startObject().field("timestamp", System.currentTimeMillis()).endObject())
+                .get());
+        LOGGER.info("Moved the generated ACLs of the ACL documents to the sharded ACL store");
+        migrated = true;
+        return true;
+    }
+
+    private boolean write(final SearchGuardRoles roles, final SearchGuardRolesMapping mappings, final OpType opType, final ShardIds ids) {
+        putMappings();
+        return execute(() -> {
+            BulkRequestBuilder bulk = prepareWrite(roles, mappings, opType, ids);
+            if (bulk.numberOfActions() == 0) {
+                return true;
+            }
+            return isWritten(bulk.get(), opType);
+        });
+    }
+
+    private BulkRequestBuilder prepareWrite(final SearchGuardRoles roles, final SearchGuardRolesMapping mappings, final OpType opType,
+            final ShardIds ids) throws IOException {
+        Client esClient = client.getClient();
+        BulkRequestBuilder bulk = esClient.prepareBulk();
+        for (Roles role : roles) {
+            if (isGenerated(role.getName())) {
+                SearchGuardRoles shard = new SearchGuardRoles();
+                shard.addAll(Collections.singletonList(role));
+                bulk.add(esClient.prepareIndex(index, ROLE_SHARD_TYPE, role.getName())
+                        .setOpType(opType)
+                        .setSource(toSource(role.getExpiresInMillis(), shard)));
+                ids.roles.add(role.getName());
+            }
+        }
+        for (RolesMapping mapping : mappings) {
+            if (isGenerated(mapping.getName())) {
+                for (String user : mapping.getUsers()) {
+                    SearchGuardRolesMapping shard = new SearchGuardRolesMapping();
+                    shard.addAll(new RolesMappingBuilder().addUser(mapping.getName(), user).expire(mapping.getExpiresInMillis()).build());
+                    String id = mappingId(mapping.getName(), user);
+                    bulk.add(esClient.prepareIndex(index, MAPPING_SHARD_TYPE, id)
+                            .setOpType(opType)
+                            .setSource(toSource(mapping.getExpiresInMillis(), shard)));
+                    ids.mappings.add(id);
+                }
+            }
+        }
+        return bulk;
+    }
+
+    private static boolean isWritten(final BulkResponse response, final OpType opType) {
+        for (BulkItemResponse item : response.getItems()) {
+            //a document created meanwhile is newer than the one it is created from
+            if (item.isFailed() && !(OpType.CREATE == opType && RestStatus.CONFLICT == item.getFailure().getStatus())) {
+                LOGGER.warn("Unable to write generated ACLs: {}", response.buildFailureMessage());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A stored role or role mapping which expired, with the version it was
+     * loaded with
+     */
+    public static final class ExpiredShard {
+
+        private final String type;
+        private final String id;
+        private final long version;
+
+        ExpiredShard(final String type, final String id, final long version) {
+            this.type = type;
+            this.id = id;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Add every generated role and role mapping which is not expired to the
+     * given documents.  The store is refreshed and read in full so this is
+     * only done by the periodic sweep.  The expired ones are left in place
+     * until the documents without them were written
+     *
+     * @param roles the document to add the roles to
+     * @param mappings the document to add the role mappings to
+     * @param now the current time in millis
+     * @return the expired roles and role mappings
+     */
+    @SuppressWarnings("unchecked")
+    public List<ExpiredShard> load(final SearchGuardRoles roles, final SearchGuardRolesMapping mappings, final long now) {
+        return execute(() -> {
+            Client esClient = client.getClient();
+            esClient.admin().indices().prepareRefresh(index).get();
+            List<ExpiredShard> expired = new ArrayList<>();
+            SearchResponse response = esClient.prepareSearch(index)
+                    .setTypes(ROLE_SHARD_TYPE, MAPPING_SHARD_TYPE)
+                    .setQuery(QueryBuilders.matchAllQuery())
+                    .setVersion(true)
+                    .setScroll(SCROLL_KEEP_ALIVE)
+                    .setSize(SCROLL_SIZE)
+                    .get();
+            try {
+                while (response.getHits().getHits().length > 0) {
+                    for (SearchHit hit : response.getHits().getHits()) {
+                        Map<String, Object> source = hit.getSourceAsMap();
+                        Object expires = source.get(EXPIRES_FIELD);
+                        if (expires instanceof Number && ((Number) expires).longValue() < now) {
+                            expired.add(new ExpiredShard(hit.getType(), hit.getId(), hit.getVersion()));
+                            continue;
+                        }
+                        addGenerated(hit.getType(), (Map<String, Object>) source.get(ACL_FIELD), roles, mappings);
+                    }
+                    response = esClient.prepareSearchScroll(response.getScrollId()).setScroll(SCROLL_KEEP_ALIVE).get();
+                }
+            } finally {
+                esClient.prepareClearScroll().addScrollId(response.getScrollId()).get();
+            }
+            return expired;
+        });
+    }
+
+    /**
+     * Add the given generated roles and role mappings to the documents.  They
+     * are read in real time so the store does not need to be refreshed
+     *
+     * @param ids the ids of the roles and role mappings
+     * @param roles the document to add the roles to
+     * @param mappings the document to add the role mappings to
+     */
+    @SuppressWarnings("unchecked")
+    public void get(final ShardIds ids, final SearchGuardRoles roles, final SearchGuardRolesMapping mappings) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        execute(() -> {
+            MultiGetRequestBuilder mget = client.getClient().prepareMultiGet().setRealtime(true);
+            for (String id : ids.roles) {
+                mget.add(index, ROLE_SHARD_TYPE, id);
+            }
+            for (String id : ids.mappings) {
+                mget.add(index, MAPPING_SHARD_TYPE, id);
+            }
+            for (MultiGetItemResponse item : mget.get().getResponses()) {
+                if (item.isFailed()) {
+                    throw new IllegalStateException("Unable to read the generated ACL " + item.getId(), item.getFailure().getFailure());
+                }
+                if (item.getResponse().isExists()) {
+                    addGenerated(item.getType(), (Map<String, Object>) item.getResponse().getSourceAsMap().get(ACL_FIELD), roles, mappings);
+                }
+            }
+            return null;
+        });
+    }
+
+    /*
+     * Only generated roles and role mappings are taken from a stored document
+     * so it can never grant a role which the plugin does not manage
+     */
+    static void addGenerated(final String type, final Map<String, Object> acl, final SearchGuardRoles roles,
+            final SearchGuardRolesMapping mappings) {
+        if (acl == null) {
+            return;
+        }
+        if (ROLE_SHARD_TYPE.equals(type)) {
+            List<Roles> generated = new ArrayList<>();
+            for (Roles role : new SearchGuardRoles().load(acl)) {
+                if (isGenerated(role.getName())) {
+                    generated.add(role);
+                } else {
+                    LOGGER.warn("Ignoring the stored role '{}' which is not generated", role.getName());
+                }
+            }
+            roles.addAll(generated);
+        } else if (MAPPING_SHARD_TYPE.equals(type)) {
+            List<RolesMapping> generated = new ArrayList<>();
+            for (RolesMapping mapping : new SearchGuardRolesMapping().load(acl)) {
+                if (isGenerated(mapping.getName())) {
+                    generated.add(mapping);
+                } else {
+                    LOGGER.warn("Ignoring the stored role mapping '{}' which is not generated", mapping.getName());
+                }
+            }
+            mappings.addAll(generated);
+        }
+    }
+
+    /**
+     * Delete expired roles and role mappings.  A role or role mapping written
+     * again since it was loaded is no longer expired and is kept
+     *
+     * @param expired the expired roles and role mappings
+     * @return the number of roles and role mappings deleted
+     */
+    public int deleteExpired(final Collection<ExpiredShard> expired) {
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        return execute(() -> {
+            Client esClient = client.getClient();
+            BulkRequestBuilder bulk = esClient.prepareBulk();
+            for (ExpiredShard shard : expired) {
+                bulk.add(esClient.prepareDelete(index, shard.type, shard.id).setVersion(shard.version));
+            }
+            int deleted = 0;
+            for (BulkItemResponse item : bulk.get().getItems()) {
+                if (!item.isFailed()) {
+                    deleted++;
+                } else if (RestStatus.CONFLICT == item.getFailure().getStatus()) {
+                    LOGGER.debug("Keeping {} which was written again after it expired", item.getId());
+                } else {
+                    LOGGER.debug("Unable to delete expired ACL {}: {}", item.getId(), item.getFailureMessage());
+                }
+            }
+            return deleted;
+        });
+    }
+
+    /*
+     * The types of the store are mapped before they are first written so the
+     * ACLs are not mapped dynamically
+     */
+    private void putMappings() {
+        if (mapped) {
+            return;
+        }
+        execute(() -> {
+            for (String type : new String[] {ROLE_SHARD_TYPE, MAPPING_SHARD_TYPE}) {
+                client.getClient().admin().indices().preparePutMapping(index).setType(type).setSource(mapping(type)).get();
+            }
+            return null;
+        });
+        mapped = true;
+    }
+
+    private CompletableFuture<Void> putMappingsAsync() {
+        if (mapped) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<PutMappingResponse>> puts = new ArrayList<>();
+        for (String type : new String[] {ROLE_SHARD_TYPE, MAPPING_SHARD_TYPE}) {
+            puts.add(executeAsync((ActionListener<PutMappingResponse> listener) -> {
+                try {
+                    client.getClient().admin().indices().preparePutMapping(index).setType(type).setSource(mapping(type)).execute(listener);
+                } catch (IOException e) {
+                    listener.onFailure(e);
+                }
+            }));
+        }
+        return CompletableFuture.allOf(puts.toArray(new CompletableFuture<?>[puts.size()])).thenRun(() -> mapped = true);
+    }
+
+    /*
+     * The SearchGuard index is only accessible to requests of the plugin
+     * which carry the configuration request header, whether they wait for
+     * their response or not
+     */
+    private <T> T execute(final Callable<T> callable) {
+        return client.execute(() -> {
+            threadContext.putHeader(ConfigConstants.SG_CONF_REQUEST_HEADER, "true");
+            return callable.call();
+        });
+    }
+
+    private <T> CompletableFuture<T> executeAsync(final Consumer<ActionListener<T>> request) {
+        return client.executeAsync(listener -> {
+            threadContext.putHeader(ConfigConstants.SG_CONF_REQUEST_HEADER, "true");
+            request.accept(listener);
+        });
+    }
+
+    /**
+     * @param name the name of a role or role mapping
+     * @return true if the role or role mapping is generated by the plugin
+     */
+    public static boolean isGenerated(final String name) {
+        return name != null && name.startsWith(SearchGuardRoles.ROLE_PREFIX + "_");
+    }
+
+    /*
+     * Only the expiry is indexed. The ACL is kept in the source
+     */
+    private static XContentBuilder mapping(final String type) throws IOException {
+        return XContentFactory.jsonBuilder()
+                .startObject()
+                    .startObject(type)
+                        .field("dynamic", false)
+                        .startObject("properties")
+                            .startObject(EXPIRES_FIELD).field("type", "long").endObject()
+                        .endObject()
+                    .endObject()
+                .endObject();
+    }
+
+    private static XContentBuilder toSource(final long expires, final ToXContent acl) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder().startObject();
+        if (expires != ExpiryIndex.NONE) {
+            builder.field(EXPIRES_FIELD, expires);
+        }
+        builder.startObject(ACL_FIELD);
+        acl.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        return builder.endObject().endObject();
+    }
+
+    private static String mappingId(final String mapping, final String user) {
+        return mapping + "/" + DigestUtils.sha1Hex(user);
+    }
+}
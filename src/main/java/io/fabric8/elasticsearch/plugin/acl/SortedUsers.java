@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The users of a roles mapping as a sorted array of distinct, interned names.
+ * With the project role strategy every project's mapping lists each user
+ * which viewed the project so the same names are repeated across thousands
+ * of mappings.  Interning keeps one instance of each name and an array costs
+ * a reference per user where a hash set costs an entry object and a table
+ * slot.  Being sorted, two sets merge in a single pass and serialize in a
+ * stable order.  Arrays are never modified once built
+ */
+final class SortedUsers {
+
+    static final String[] EMPTY = new String[0];
+
+    private SortedUsers() {
+    }
+
+    /**
+     * @param users the names of users in any order, possibly repeated
+     * @return the sorted, distinct and interned names
+     */
+    static String[] of(final Collection<String> users) {
+        if (users == null || users.isEmpty()) {
+            return EMPTY;
+        }
+        String[] sorted = new String[users.size()];
+        int size = 0;
+        for (String user : users) {
+            sorted[size++] = RoleInterner.intern(user);
+        }
+        Arrays.sort(sorted);
+        int distinct = 1;
+        for (int i = 1; i < size; i++) {
+            if (!sorted[i].equals(sorted[distinct - 1])) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return distinct == size ? sorted : Arrays.copyOf(sorted, distinct);
+    }
+
+    /**
+     * Merge two sorted arrays of users
+     *
+     * @param users the users
+     * @param added the users to add
+     * @return the union which is the given users when nothing was added
+     */
+    static String[] merge(final String[] users, final String[] added) {
+        int missing = 0;
+        int i = 0;
+        int j = 0;
+        while (j < added.length) {
+            int cmp = i < users.length ? users[i].compareTo(added[j]) : 1;
+            if (cmp <= 0) {
+                i++;
+            }
+            if (cmp >= 0) {
+                if (cmp > 0) {
+                    missing++;
+                }
+                j++;
+            }
+        }
+        if (missing == 0) {
+            return users;
+        }
+        String[] merged = new String[users.length + missing];
+        i = 0;
+        j = 0;
+        int k = 0;
+        while (i < users.length && j < added.length) {
+            int cmp = users[i].compareTo(added[j]);
+            if (cmp < 0) {
+                merged[k++] = users[i++];
+            } else if (cmp > 0) {
+                merged[k++] = added[j++];
+            } else {
+                merged[k++] = users[i++];
+                j++;
+            }
+        }
+        while (i < users.length) {
+            merged[k++] = users[i++];
+        }
+        while (j < added.length) {
+            merged[k++] = added[j++];
+        }
+        return merged;
+    }
+}
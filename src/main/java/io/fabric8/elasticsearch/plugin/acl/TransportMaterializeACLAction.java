@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.master.TransportMasterNodeAction;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockException;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+public class TransportMaterializeACLAction extends TransportMasterNodeAction<MaterializeACLRequest, MaterializeACLResponse> {
+
+    private final ACLDocumentManager aclDocumentManager;
+
+    @Inject
+    public TransportMaterializeACLAction(final Settings settings, final TransportService transportService, final ClusterService clusterService,
+            final ThreadPool threadPool, final ActionFilters actionFilters, final IndexNameExpressionResolver indexNameExpressionResolver,
+            final ACLDocumentManager aclDocumentManager) {
+        super(settings, MaterializeACLAction.NAME, transportService, clusterService, threadPool, actionFilters, indexNameExpressionResolver,
+                MaterializeACLRequest::new);
+        this.aclDocumentManager = aclDocumentManager;
+    }
+
+    /*
+     * Requests are queued and materialized together by the manager
+     */
+    @Override
+    protected String executor() {
+        return ThreadPool.Names.SAME;
+    }
+
+    @Override
+    protected MaterializeACLResponse newResponse() {
+        return new MaterializeACLResponse();
+    }
+
+    @Override
+    protected void masterOperation(MaterializeACLRequest request, ClusterState state, ActionListener<MaterializeACLResponse> listener) {
+        aclDocumentManager.materialize(request.getShards(), ActionListener.wrap(success -> listener.onResponse(new MaterializeACLResponse(success)),
+                listener::onFailure));
+    }
+
+    @Override
+    protected ClusterBlockException checkBlock(MaterializeACLRequest request, ClusterState state) {
+        return null;
+    }
+}
@@ -48,8 +48,7 @@ public class UserRolesMappingSyncStrategy extends BaseRolesMappingSyncStrategy {
             builder.addUser(SearchGuardRolesMapping.ADMIN_ROLE, user)
                 .expire(getExpires());
         } else {
-            String roleName = BaseRolesSyncStrategy.formatUserRoleName(user);
-            builder.addUser(roleName, user).expire(getExpires());
+            builder.addUser(context.getUserRoleName(), user).expire(getExpires());
         }
     }
 
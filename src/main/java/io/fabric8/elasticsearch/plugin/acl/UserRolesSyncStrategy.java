@@ -16,22 +16,25 @@
 
 package io.fabric8.elasticsearch.plugin.acl;
 
-import org.apache.commons.lang.StringUtils;
-
+import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
 import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory.OpenshiftRequestContext;
-import io.fabric8.elasticsearch.plugin.model.Project;
 
 public class UserRolesSyncStrategy extends BaseRolesSyncStrategy implements RolesSyncStrategy {
 
-    private final String cdmProjectPrefix;
+    private final RoleTemplateCache templates;
     private final String kibanaIndexMode;
-    private String expire;
+    private final long expire;
 
     public UserRolesSyncStrategy(SearchGuardRoles roles, String userProfilePrefix, String cdmProjectPrefix, String kibanaIndexMode, long expiresInMillis) {
+        this(roles, userProfilePrefix, new RoleTemplateCache(cdmProjectPrefix, ConfigurationSettings.DEFAULT_OPENSHIFT_ACL_ROLE_CACHE_MAXSIZE),
+                kibanaIndexMode, expiresInMillis);
+    }
+
+    UserRolesSyncStrategy(SearchGuardRoles roles, String userProfilePrefix, RoleTemplateCache templates, String kibanaIndexMode, long expiresInMillis) {
         super(roles, userProfilePrefix);
-        this.cdmProjectPrefix = cdmProjectPrefix;
+        this.templates = templates;
         this.kibanaIndexMode = kibanaIndexMode;
-        this.expire = String.valueOf(expiresInMillis);
+        this.expire = expiresInMillis;
     }
 
     protected void syncFromImpl(OpenshiftRequestContext context, RolesBuilder builder) {
@@ -53,24 +56,8 @@ public class UserRolesSyncStrategy extends BaseRolesSyncStrategy implements Role
             return;
         }        
 
-        String roleName = formatUserRoleName(context.getUser());
-        RoleBuilder role = new RoleBuilder(roleName)
-                .setClusters(USER_ROLE_CLUSTER_ACTIONS)
-                .expires(expire);
-
-        //permissions for projects
-        for (Project project : context.getProjects()) {
-            String indexName = String.format("%s?%s?*", project.getName().replace('.', '?'), project.getUID());
-            role.setActions(indexName, ALL, PROJECT_ROLE_ACTIONS);
-            // If using common data model, allow access to both the
-            // $projname.$uuid.* indices and
-            // the project.$projname.$uuid.* indices for backwards compatibility
-            if (StringUtils.isNotEmpty(cdmProjectPrefix)) {
-                indexName = String.format("%s?%s?%s?*", cdmProjectPrefix.replace('.', '?'), project.getName().replace('.', '?'), project.getUID());
-                role.setActions(indexName, ALL, PROJECT_ROLE_ACTIONS);
-            }
-        }
-        builder.addRole(role.build());
+        //permissions for projects, reused while the projects of the user are unchanged
+        builder.addRole(templates.userRole(context.getUser(), context.getProjects(), expire));
         
     }
 }
\ No newline at end of file
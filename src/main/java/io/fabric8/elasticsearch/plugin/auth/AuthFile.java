@@ -0,0 +1,216 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.auth;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.AccessController;
+import java.security.MessageDigest;
+import java.security.PrivilegedAction;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.SpecialPermission;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.settings.loader.YamlSettingsLoader;
+
+import io.fabric8.elasticsearch.plugin.OpenShiftElasticSearchConfigurationException;
+
+/**
+ * The credentials of a file of usernames and base64 encoded passwords as an
+ * immutable snapshot.  SearchGuard creates its authentication backends again
+ * on every configuration change so the snapshot of a file is shared by the
+ * backends reading it, and a single daemon thread watches the directories of
+ * the files to reload them when they change until the plugin is closed.
+ * Checking credentials never touches the filesystem
+ */
+final class AuthFile {
+
+    private static final Logger LOGGER = Loggers.getLogger(AuthFile.class);
+    private static final String PASSWD = ".passwd";
+    private static final Map<Path, AuthFile> FILES = new ConcurrentHashMap<>();
+    private static final Map<WatchKey, Path> DIRECTORIES = new ConcurrentHashMap<>();
+    private static WatchService watcher;
+    private static Thread watcherThread;
+
+    private final File file;
+    private final AtomicReference<Map<String, byte[]>> passwords = new AtomicReference<>(Collections.emptyMap());
+
+    private AuthFile(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Load the file and watch it for changes
+     *
+     * @param file the file
+     * @return the credentials of the file
+     * @throws OpenShiftElasticSearchConfigurationException when the file can
+     *          not be parsed
+     */
+    static AuthFile load(final File file) {
+        final Path path = file.toPath().toAbsolutePath().normalize();
+        AuthFile authFile = FILES.computeIfAbsent(path, p -> new AuthFile(file));
+        authFile.reload();
+        watch(path.getParent());
+        return authFile;
+    }
+
+    /**
+     * @param username the user
+     * @return true if the file has an entry for the user
+     */
+    boolean exists(final String username) {
+        return passwords.get().containsKey(username);
+    }
+
+    /**
+     * Compare the password of the user in constant time
+     *
+     * @param username the user
+     * @param password the presented password
+     * @return true if the user has a password which matches
+     */
+    boolean matches(final String username, final byte[] password) {
+        final byte[] saved = passwords.get().get(username);
+        return saved != null && password != null && MessageDigest.isEqual(saved, password);
+    }
+
+    /**
+     * Stop watching the files and forget them.  Files loaded afterwards are
+     * watched by a new thread
+     */
+    static synchronized void close() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                LOGGER.warn("Unable to close the watcher of authentication files", e);
+            }
+            watcherThread.interrupt();
+            watcher = null;
+            watcherThread = null;
+        }
+        DIRECTORIES.clear();
+        FILES.clear();
+    }
+
+    private void reload() {
+        passwords.set(privileged(this::parse));
+    }
+
+    private Map<String, byte[]> parse() {
+        try {
+            final String ref = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+            final Settings settings = Settings.builder().put(new YamlSettingsLoader(true).load(ref)).build();
+            Map<String, byte[]> parsed = new HashMap<>();
+            for (String username : settings.names()) {
+                final String hash = settings.get(username + PASSWD);
+                byte[] password = null;
+                if (StringUtils.isNotBlank(hash)) {
+                    password = new String(DatatypeConverter.parseBase64Binary(hash), StandardCharsets.UTF_8).trim()
+                            .getBytes(StandardCharsets.UTF_8);
+                }
+                parsed.put(username, password);
+            }
+            return Collections.unmodifiableMap(parsed);
+        } catch (final Exception e) {
+            throw new OpenShiftElasticSearchConfigurationException("Unable to parse " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private static synchronized void watch(final Path directory) {
+        if (directory == null || DIRECTORIES.containsValue(directory)) {
+            return;
+        }
+        try {
+            if (watcher == null) {
+                final WatchService service = FileSystems.getDefault().newWatchService();
+                watcher = service;
+                watcherThread = privileged(() -> {
+                    Thread thread = new Thread(() -> processEvents(service), "openshift-auth-file-watcher");
+                    thread.setDaemon(true);
+                    thread.start();
+                    return thread;
+                });
+            }
+            DIRECTORIES.put(directory.register(watcher, ENTRY_CREATE, ENTRY_MODIFY), directory);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to watch {} for changes to authentication files. They are only reloaded with the configuration", directory, e);
+        }
+    }
+
+    /*
+     * Secrets mounted into pods are replaced by swapping a symlink so any
+     * event in the directory reloads the files it holds.  The thread stops
+     * once its watcher is closed
+     */
+    private static void processEvents(final WatchService service) {
+        while (true) {
+            final WatchKey key;
+            try {
+                key = service.take();
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            key.pollEvents();
+            final Path directory = DIRECTORIES.get(key);
+            for (Map.Entry<Path, AuthFile> entry : FILES.entrySet()) {
+                if (entry.getKey().getParent().equals(directory)) {
+                    try {
+                        entry.getValue().reload();
+                        LOGGER.debug("Reloaded authentication file {}", entry.getKey());
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("Unable to reload authentication file {}, keeping its previous content", entry.getKey(), e);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                DIRECTORIES.remove(key);
+            }
+        }
+    }
+
+    private static <T> T privileged(final PrivilegedAction<T> action) {
+        final SecurityManager sm = System.getSecurityManager();
+        if (sm != null) {
+            sm.checkPermission(new SpecialPermission());
+        }
+        return AccessController.doPrivileged(action);
+    }
+}
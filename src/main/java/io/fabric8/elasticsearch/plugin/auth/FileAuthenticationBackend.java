@@ -18,6 +18,7 @@ package io.fabric8.elasticsearch.plugin.auth;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import javax.xml.bind.DatatypeConverter;
 
@@ -25,7 +26,6 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.elasticsearch.ElasticsearchSecurityException;
 import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.common.settings.loader.YamlSettingsLoader;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
@@ -71,11 +71,9 @@ import io.fabric8.elasticsearch.plugin.OpenShiftElasticSearchConfigurationExcept
  */
 public class FileAuthenticationBackend implements AuthenticationBackend, HTTPAuthenticator {
 
-    private static final String PASSWD = ".passwd";
     protected static final String FILE = "file_path";
-    private final File auth; 
-    private Settings mappings;
-    private long lastModified;
+    private static final String BASIC = "basic ";
+    private final AuthFile authFile;
     
     /*
      * remove me if we need TransportConfigUpdateAction
@@ -89,39 +87,51 @@ public class FileAuthenticationBackend implements AuthenticationBackend, HTTPAut
         if(StringUtils.isBlank(file)) {
             throw new OpenShiftElasticSearchConfigurationException("Unable to Configure FileAuthenticationBackend because file_path is empty");
         }
-        auth = FileUtils.getFile(file);
+        final File auth = FileUtils.getFile(file);
         if(!auth.exists()) {
             throw new OpenShiftElasticSearchConfigurationException("Unable to Configure YmlFileAuthenticationBackend because file_path does not exist: " + file);
         }
-        loadAuthFile();
+        authFile = AuthFile.load(auth);
+    }
+
+    /**
+     * Stop the thread watching the authentication files for changes
+     */
+    public static void stopWatching() {
+        AuthFile.close();
     }
     
     @Override
     public AuthCredentials extractCredentials(RestRequest request, ThreadContext context) throws ElasticsearchSecurityException {
         final String authorizationHeader = request.header("Authorization");
         if (authorizationHeader != null) {
-            if (authorizationHeader.trim().toLowerCase().startsWith("basic ")) {
-                final String decoded = new String(DatatypeConverter.parseBase64Binary(authorizationHeader.split(" ")[1]),
-                        StandardCharsets.UTF_8);
+            final String header = authorizationHeader.trim();
+            if (header.regionMatches(true, 0, BASIC, 0, BASIC.length())) {
+                final int end = header.indexOf(' ', BASIC.length());
+                final byte[] decoded = DatatypeConverter.parseBase64Binary(header.substring(BASIC.length(), end < 0 ? header.length() : end));
 
                 //username:password
                 //Assume password is all chars from the last : to the end
                 //this is the only way to send service accounts
-               
-                final int delimiter = decoded.lastIndexOf(':');
-
-                String username = null;
-                String password = null;
-
+                //':' is a single byte in UTF-8 which never occurs within a multibyte character
+                //so the password is sliced from the bytes without decoding it into a String
+                int delimiter = decoded.length - 1;
+                while (delimiter >= 0 && decoded[delimiter] != ':') {
+                    delimiter--;
+                }
                 if (delimiter > 0) {
-                    username = decoded.substring(0, delimiter);
-                    
-                    if(decoded.length() - 1 != delimiter) {
-                        password = decoded.substring(delimiter + 1).trim();
+                    int start = delimiter + 1;
+                    int stop = decoded.length;
+                    while (start < stop && (decoded[start] & 0xff) <= ' ') {
+                        start++;
+                    }
+                    while (stop > start && (decoded[stop - 1] & 0xff) <= ' ') {
+                        stop--;
+                    }
+                    if (start < stop) {
+                        final String username = new String(decoded, 0, delimiter, StandardCharsets.UTF_8);
+                        return new AuthCredentials(username, Arrays.copyOfRange(decoded, start, stop)).markComplete();
                     }
-                }
-                if (username != null && StringUtils.isNotEmpty(password)) {
-                    return new AuthCredentials(username, password.getBytes(StandardCharsets.UTF_8)).markComplete();
                 }
             }
         }
@@ -144,16 +154,8 @@ public class FileAuthenticationBackend implements AuthenticationBackend, HTTPAut
         if (credentials == null) {
             throw new ElasticsearchSecurityException("Creditials are null while trying to authenticate");
         }
-        Settings settings = loadAuthFile();
-        if(exists(settings, credentials.getUsername())){
-            final String hash = settings.get(credentials.getUsername() + PASSWD);
-            if(StringUtils.isNotBlank(hash)) {
-                final String saved = new String(DatatypeConverter.parseBase64Binary(hash), StandardCharsets.UTF_8).trim();
-                final String presented = new String(credentials.getPassword());
-                if(saved.equals(presented)) {
-                    return new User(credentials.getUsername());
-                }
-            }
+        if(authFile.matches(credentials.getUsername(), credentials.getPassword())) {
+            return new User(credentials.getUsername());
         }
         throw new ElasticsearchSecurityException("Unable to authenticate {}", credentials.getUsername());
     }
@@ -163,26 +165,7 @@ public class FileAuthenticationBackend implements AuthenticationBackend, HTTPAut
         if(user == null || user.getName() == null) {
             return false;
         }
-        Settings settings = loadAuthFile();
-        return exists(settings, user.getName());
-    }
-    
-    private boolean exists(Settings settings, String username) {
-        return settings.names().contains(username);
-    }
-
-    private Settings loadAuthFile() {
-        long now = auth.lastModified();
-        if (now > lastModified) {
-            try {
-                final String ref = FileUtils.readFileToString(auth);
-                mappings = Settings.builder().put(new YamlSettingsLoader(true).load(ref)).build();
-                lastModified = now;
-            } catch (final Exception e) {
-                throw new OpenShiftElasticSearchConfigurationException("Unable to parse " + auth.getAbsolutePath(), e);
-            }
-        }
-        return mappings;
+        return authFile.exists(user.getName());
     }
 
 }
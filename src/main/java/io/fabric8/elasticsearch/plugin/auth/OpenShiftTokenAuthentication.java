@@ -43,7 +43,6 @@ import io.fabric8.elasticsearch.plugin.OpenshiftAPIService;
 import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory;
 import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory.OpenshiftRequestContext;
 import io.fabric8.elasticsearch.plugin.PluginServiceFactory;
-import io.fabric8.elasticsearch.plugin.acl.BaseRolesSyncStrategy;
 import io.fabric8.elasticsearch.plugin.acl.SearchGuardRolesMapping;
 
 /**
@@ -112,7 +111,7 @@ public class OpenShiftTokenAuthentication implements AuthenticationBackend, HTTP
                 return null;
             }
             User user = new User(context.getUser(), context.getBackendRoles());
-            addGeneralRoles(user, credentials, context);
+            addGeneralRoles(user, context);
             return user;
         }
         return null;
@@ -154,9 +153,9 @@ public class OpenShiftTokenAuthentication implements AuthenticationBackend, HTTP
         return roles;
     }
 
-    private void addGeneralRoles(User user, AuthCredentials credentials, OpenshiftRequestContext context) {
-        user.addRole(BaseRolesSyncStrategy.formatUserRoleName(credentials.getUsername()));
-        user.addRole(BaseRolesSyncStrategy.formatUserKibanaRoleName(credentials.getUsername()));
+    private void addGeneralRoles(User user, OpenshiftRequestContext context) {
+        user.addRole(context.getUserRoleName());
+        user.addRole(context.getUserKibanaRoleName());
         if (context.isOperationsUser()) {
             user.addRole(SearchGuardRolesMapping.ADMIN_ROLE);
         }
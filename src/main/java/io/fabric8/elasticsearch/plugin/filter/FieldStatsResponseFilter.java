@@ -25,12 +25,16 @@ import org.elasticsearch.action.fieldstats.FieldStatsRequest;
 import org.elasticsearch.action.fieldstats.FieldStatsResponse;
 import org.elasticsearch.action.support.ActionFilter;
 import org.elasticsearch.action.support.ActionFilterChain;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.tasks.Task;
 
-import io.fabric8.elasticsearch.plugin.PluginClient;
-
 /**
  * Filter to modify the response code when an
  * index does not exist.  
@@ -40,15 +44,19 @@ import io.fabric8.elasticsearch.plugin.PluginClient;
  * no indexes and the request of '_field_stats?level=indices'
  * causes SG to generate a 403.
  *
+ * The indices are looked up in the cluster state of the node so evaluating
+ * a failure never makes a request or blocks the thread of the listener.
  */
 public class FieldStatsResponseFilter implements ActionFilter {
     
     public static final String INDICES_FIELD_STATS_READ_ACTION = "indices:data/read/field_stats";
     private static final Logger LOGGER = Loggers.getLogger(FieldStatsResponseFilter.class);
-    private final PluginClient client;
+    private final ClusterService clusterService;
+    private final IndexNameExpressionResolver resolver;
     
-    public FieldStatsResponseFilter(PluginClient client) {
-        this.client = client;
+    public FieldStatsResponseFilter(final ClusterService clusterService, final Settings settings) {
+        this.clusterService = clusterService;
+        this.resolver = new IndexNameExpressionResolver(settings);
     }
     
     @Override
@@ -83,8 +91,9 @@ public class FieldStatsResponseFilter implements ActionFilter {
                     LOGGER.trace("Evaluating failure for action '{}' to see if we need to change from a 403", action);
                     Exception err = e;
                     if( INDICES_FIELD_STATS_READ_ACTION.equals(action) && request instanceof FieldStatsRequest) {
+                        final ClusterState state = clusterService.state();
                         for (String index : ((FieldStatsRequest)request).indices()) {
-                            if(!client.indexExists(index)) {
+                            if(!indexExists(state, index)) {
                                 LOGGER.trace("Modifying the response to be {}", RestStatus.NOT_FOUND);
                                 err = new ElasticsearchException("The index '" + index + "' was not found. This could mean data has not yet been collected.",
                                         RestStatus.NOT_FOUND);
@@ -101,4 +110,17 @@ public class FieldStatsResponseFilter implements ActionFilter {
         }
 
     }
+
+    /*
+     * Resolves the expression the same way as an indices exists request:
+     * aliases and wildcards of open or closed indices which match nothing
+     * are missing
+     */
+    private boolean indexExists(final ClusterState state, final String index) {
+        try {
+            return resolver.concreteIndexNames(state, IndicesOptions.strictExpand(), index).length > 0;
+        } catch (IndexNotFoundException e) {
+            return false;
+        }
+    }
 }
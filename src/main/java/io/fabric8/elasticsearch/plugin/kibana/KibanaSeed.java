@@ -21,11 +21,14 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.Logger;
-import org.elasticsearch.action.admin.indices.get.GetIndexResponse;
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.Settings;
@@ -36,6 +39,7 @@ import io.fabric8.elasticsearch.plugin.PluginClient;
 import io.fabric8.elasticsearch.plugin.PluginClient.BulkBuilder;
 import io.fabric8.elasticsearch.plugin.PluginSettings;
 import io.fabric8.elasticsearch.plugin.model.Project;
+import io.fabric8.elasticsearch.plugin.stats.PluginStats;
 
 public class KibanaSeed implements ConfigurationSettings {
 
@@ -50,9 +54,16 @@ public class KibanaSeed implements ConfigurationSettings {
     private final String defaultKibanaIndex;
     private final PluginSettings settings;
     private final KibanaUtils kibanaUtils;
+    private final PluginStats stats;
 
     public KibanaSeed(final PluginSettings settings, final IndexMappingLoader loader, final PluginClient pluginClient,
             final KibanaUtils kibanaUtils) {
+        this(settings, loader, pluginClient, kibanaUtils, new PluginStats());
+    }
+
+    public KibanaSeed(final PluginSettings settings, final IndexMappingLoader loader, final PluginClient pluginClient,
+            final KibanaUtils kibanaUtils, final PluginStats stats) {
+        this.stats = stats;
         this.mappingLoader = loader;
         this.pluginClient = pluginClient;
         this.defaultKibanaIndex = settings.getDefaultKibanaIndex();
@@ -60,68 +71,107 @@ public class KibanaSeed implements ConfigurationSettings {
         this.kibanaUtils = kibanaUtils;
     }
 
-    public void setDashboards(final OpenshiftRequestContext context, String kibanaVersion, final String projectPrefix) {
-        if (!pluginClient.indexExists(defaultKibanaIndex)) {
-            LOGGER.debug("Default Kibana index '{}' does not exist. Skipping Kibana seeding", defaultKibanaIndex);
-            return;
-        }
-
-        LOGGER.debug("Begin setDashboards:  projectPrefix '{}' for user '{}' projects '{}' kibanaIndex '{}'",
-                projectPrefix, context.getUser(), context.getProjects(), context.getKibanaIndex());
-
-        // We want to seed the Kibana user index initially
-        // since the logic from Kibana has changed to create before this plugin
-        // starts...
-        Tuple<Boolean, Project> action = Tuple.tuple(initialSeedKibanaIndex(context), Project.EMPTY);
-
-        if (context.isOperationsUser()) {
-            action = seedOperationsIndexPatterns(context, kibanaVersion);
-        } else {
-            action = seedUsersIndexPatterns(context, kibanaVersion);
-        }
+    /**
+     * Seed the Kibana index of the user without blocking.  The requests are
+     * chained on the responses of the previous ones so no thread waits for
+     * them
+     *
+     * @return a future completed once the index is seeded.  Its dependent
+     *          stages run in the context of the caller
+     */
+    public CompletableFuture<Void> setDashboards(final OpenshiftRequestContext context, String kibanaVersion, final String projectPrefix) {
+        final long start = System.nanoTime();
+        final Seeding seeding = new Seeding(context, kibanaVersion);
+        return seedDashboards(seeding, projectPrefix)
+                .whenComplete((ignored, e) -> stats.onKibanaSeed(start, seeding.roundTrips.get()));
+    }
 
-        if (action.v2() != null && !Project.EMPTY.equals(action.v2())) {
-            boolean defaultIndexPatternExists = pluginClient.documentExists(context.getKibanaIndex(), INDICIES_TYPE, action.v2().getName());
-            GetResponse config = pluginClient.getDocument(context.getKibanaIndex(), CONFIG_DOC_TYPE, kibanaVersion);
-            if(!defaultIndexPatternExists || !config.isExists() || StringUtils.isBlank(kibanaUtils.getDefaultIndexPattern(config))){
-                setDefaultProject(context.getKibanaIndex(), action.v2(), kibanaVersion);
-                action =  Tuple.tuple(true, action.v2());
+    private CompletableFuture<Void> seedDashboards(final Seeding seeding, final String projectPrefix) {
+        final OpenshiftRequestContext context = seeding.context;
+        return seeding.send(() -> pluginClient.indexExistsAsync(defaultKibanaIndex)).thenCompose(defaultKibanaIndexExists -> {
+            if (!defaultKibanaIndexExists) {
+                LOGGER.debug("Default Kibana index '{}' does not exist. Skipping Kibana seeding", defaultKibanaIndex);
+                return CompletableFuture.completedFuture(null);
             }
-        }
 
-        if (action.v1()) {
-            pluginClient.refreshIndices(context.getKibanaIndex());
+            LOGGER.debug("Begin setDashboards:  projectPrefix '{}' for user '{}' projects '{}' kibanaIndex '{}'",
+                    projectPrefix, context.getUser(), context.getProjects(), context.getKibanaIndex());
+
+            // We want to seed the Kibana user index initially
+            // since the logic from Kibana has changed to create before this plugin
+            // starts...
+            return initialSeedKibanaIndex(seeding)
+                .thenCompose(seeded -> context.isOperationsUser() ? seedOperationsIndexPatterns(seeding) : seedUsersIndexPatterns(seeding))
+                .thenCompose(action -> setDefaultProjectIfMissing(seeding, action))
+                .thenCompose(changed -> {
+                    if (changed) {
+                        return seeding.send(() -> pluginClient.refreshIndicesAsync(context.getKibanaIndex())).thenApply(response -> null);
+                    }
+                    return CompletableFuture.completedFuture(null);
+                });
+        });
+    }
+
+    /*
+     * @return The indicator that a change was made
+     */
+    private CompletableFuture<Boolean> setDefaultProjectIfMissing(final Seeding seeding, final Tuple<Boolean, Project> action) {
+        if (action.v2() == null || Project.EMPTY.equals(action.v2())) {
+            return CompletableFuture.completedFuture(action.v1());
         }
+        final String kibanaIndex = seeding.context.getKibanaIndex();
+        CompletableFuture<Boolean> defaultIndexPatternExists = seeding
+                .send(() -> pluginClient.documentExistsAsync(kibanaIndex, INDICIES_TYPE, action.v2().getName()));
+        CompletableFuture<GetResponse> config = seeding
+                .send(() -> pluginClient.getDocumentAsync(kibanaIndex, CONFIG_DOC_TYPE, seeding.kibanaVersion));
+        return defaultIndexPatternExists
+            .thenCombine(config, (exists, response) -> !exists || !response.isExists() || StringUtils.isBlank(kibanaUtils.getDefaultIndexPattern(response)))
+            .thenCompose(missing -> {
+                if (missing) {
+                    return setDefaultProject(seeding, action.v2()).thenApply(response -> true);
+                }
+                return CompletableFuture.completedFuture(action.v1());
+            });
     }
 
     /*
      * @return The indicator that a change was made and the default index-pattern to
      * set
      */
-    private Tuple<Boolean, Project> seedOperationsIndexPatterns(final OpenshiftRequestContext context, String kibanaVersion) {
-        boolean changed = false;
+    private CompletableFuture<Tuple<Boolean, Project>> seedOperationsIndexPatterns(final Seeding seeding) {
+        final String kibanaIndex = seeding.context.getKibanaIndex();
+        final List<CompletableFuture<Boolean>> created = new ArrayList<>();
         for (String pattern : settings.getKibanaOpsIndexPatterns()) {
-            if (!pluginClient.documentExists(context.getKibanaIndex(), INDICIES_TYPE, pattern)) {
+            created.add(seeding.send(() -> pluginClient.documentExistsAsync(kibanaIndex, INDICIES_TYPE, pattern)).thenCompose(exists -> {
+                if (exists) {
+                    return CompletableFuture.completedFuture(false);
+                }
                 LOGGER.trace("Creating index-pattern '{}'", pattern);
                 String source = StringUtils.replace(mappingLoader.getOperationsMappingsTemplate(), "$TITLE$", pattern);
-                pluginClient.createDocument(context.getKibanaIndex(), INDICIES_TYPE, pattern, source);
-                changed = true;
-            }
+                return seeding.send(() -> pluginClient.createDocumentAsync(kibanaIndex, INDICIES_TYPE, pattern, source)).thenApply(response -> true);
+            }));
         }
         // if current.default not set, load
         String defaultPattern = settings.getKibanaOpsIndexPatterns().size() > 0 
                 ? settings.getKibanaOpsIndexPatterns().iterator().next() : "";
-        String indexPattern = kibanaUtils.getDefaultIndexPattern(context.getKibanaIndex(), defaultPattern);
-        return Tuple.tuple(changed, new Project(indexPattern, null));
+        return CompletableFuture.allOf(created.toArray(new CompletableFuture<?>[created.size()]))
+            .thenCompose(ignored -> seeding.send(() -> kibanaUtils.getDefaultIndexPatternAsync(kibanaIndex, defaultPattern)))
+            .thenApply(indexPattern -> Tuple.tuple(created.stream().anyMatch(CompletableFuture::join), new Project(indexPattern, null)));
     }
 
-    private Tuple<Boolean, Project> seedUsersIndexPatterns(final OpenshiftRequestContext context, final String kibanaVersion) {
-        boolean changed = false;
-        Set<Project> projectsFromIndexPatterns = kibanaUtils.getProjectsFromIndexPatterns(context);
-        LOGGER.debug("Found '{}' Index patterns for user", projectsFromIndexPatterns.size());
+    private CompletableFuture<Tuple<Boolean, Project>> seedUsersIndexPatterns(final Seeding seeding) {
+        final OpenshiftRequestContext context = seeding.context;
+        CompletableFuture<Set<Project>> projectsFromIndexPatterns = seeding
+                .send(() -> kibanaUtils.getProjectsFromIndexPatternsAsync(context));
+        CompletableFuture<List<Project>> projectsWithIndices = filterProjectsWithIndices(seeding, context.getProjects());
+        return projectsFromIndexPatterns.thenCompose(fromIndexPatterns -> projectsWithIndices
+                .thenCompose(withIndices -> seedUsersIndexPatterns(seeding, fromIndexPatterns, withIndices)));
+    }
 
-        Set<Project> projects = context.getProjects();
-        List<Project> projectsWithIndices = filterProjectsWithIndices(projects);
+    private CompletableFuture<Tuple<Boolean, Project>> seedUsersIndexPatterns(final Seeding seeding, 
+            final Set<Project> projectsFromIndexPatterns, final List<Project> projectsWithIndices) {
+        final OpenshiftRequestContext context = seeding.context;
+        LOGGER.debug("Found '{}' Index patterns for user", projectsFromIndexPatterns.size());
         LOGGER.debug("projects for '{}' that have existing index patterns: '{}'", context.getUser(),
                 projectsWithIndices);
 
@@ -133,79 +183,73 @@ public class KibanaSeed implements ConfigurationSettings {
 
         // If none have been set yet
         BulkBuilder bulkBuilder = pluginClient.newBulkBuilder();
-        Project defaultProject = projectsWithIndices.isEmpty() ? Project.EMPTY : projectsWithIndices.get(0);
+        final Project defaultProject = projectsWithIndices.isEmpty() ? Project.EMPTY : projectsWithIndices.get(0);
         if (projectsFromIndexPatterns.isEmpty()) {
             create(bulkBuilder, context.getKibanaIndex(), projectsWithIndices, projectsFromIndexPatterns);
-            bulkBuilder.execute();
-            changed = true;
-        } else {
+            return seeding.send(bulkBuilder::executeAsync).thenApply(response -> Tuple.tuple(true, defaultProject));
+        }
 
-            List<Project> common = new ArrayList<Project>(projectsFromIndexPatterns);
+        List<Project> common = new ArrayList<Project>(projectsFromIndexPatterns);
 
-            common.retainAll(projectsWithIndices);
+        common.retainAll(projectsWithIndices);
 
-            projectsWithIndices.removeAll(common);
-            projectsFromIndexPatterns.removeAll(common);
+        projectsWithIndices.removeAll(common);
+        projectsFromIndexPatterns.removeAll(common);
 
-            // if we aren't a cluster-admin, make sure we're deleting the
-            // ADMIN_ALIAS_NAME
-            if (!context.isOperationsUser()) {
-                LOGGER.debug("user is not a cluster admin, ensure they don't keep/have the admin alias pattern");
-                projectsFromIndexPatterns.add(KibanaUtils.ALL_ALIAS);
-            }
+        // if we aren't a cluster-admin, make sure we're deleting the
+        // ADMIN_ALIAS_NAME
+        if (!context.isOperationsUser()) {
+            LOGGER.debug("user is not a cluster admin, ensure they don't keep/have the admin alias pattern");
+            projectsFromIndexPatterns.add(KibanaUtils.ALL_ALIAS);
+        }
 
-            // check if we're going to be adding or removing any index-patterns
-            if (!projectsWithIndices.isEmpty() || !projectsFromIndexPatterns.isEmpty()) {
-                changed = true;
-            }
+        // check if we're going to be adding or removing any index-patterns
+        final boolean changed = !projectsWithIndices.isEmpty() || !projectsFromIndexPatterns.isEmpty();
 
-            // for any to create (remaining in projects) call createIndices,
-            // createSearchmapping?, create dashboard
-            create(bulkBuilder, context.getKibanaIndex(), projectsWithIndices, projectsFromIndexPatterns);
-            
-
-            // cull any that are in ES but not in OS (remaining in indexPatterns)
-            remove(bulkBuilder, context.getKibanaIndex(), projectsFromIndexPatterns);
-            bulkBuilder.execute();
-
-            common.addAll(projectsWithIndices);
-            Collections.sort(common);
-            // Set default index to first index in common if we removed the default
-            String defaultIfNotSet = !common.isEmpty() ? common.get(0).getName() : Project.EMPTY.getName();
-            String pattern = kibanaUtils.getDefaultIndexPattern(context.getKibanaIndex(), defaultIfNotSet);
-            defaultProject = new Project(pattern, null);
-        }
-        return Tuple.tuple(changed, defaultProject);
+        // for any to create (remaining in projects) call createIndices,
+        // createSearchmapping?, create dashboard
+        create(bulkBuilder, context.getKibanaIndex(), projectsWithIndices, projectsFromIndexPatterns);
+
+        // cull any that are in ES but not in OS (remaining in indexPatterns)
+        remove(bulkBuilder, context.getKibanaIndex(), projectsFromIndexPatterns);
+
+        common.addAll(projectsWithIndices);
+        Collections.sort(common);
+        // Set default index to first index in common if we removed the default
+        String defaultIfNotSet = !common.isEmpty() ? common.get(0).getName() : Project.EMPTY.getName();
+        return seeding.send(bulkBuilder::executeAsync)
+            .thenCompose(response -> seeding.send(() -> kibanaUtils.getDefaultIndexPatternAsync(context.getKibanaIndex(), defaultIfNotSet)))
+            .thenApply(pattern -> Tuple.tuple(changed, new Project(pattern, null)));
     }
 
     /*
      * Given a list of projects, filter out those which have an index associated
      * with it
      */
-    private List<Project> filterProjectsWithIndices(Set<Project> projects) {
+    private CompletableFuture<List<Project>> filterProjectsWithIndices(final Seeding seeding, final Set<Project> projects) {
         List<String> patterns = new ArrayList<>(projects.size());
         for (Project project : projects) {
             String indexPattern = kibanaUtils.formatIndexPattern(project);
             patterns.add(indexPattern);
         }
         LOGGER.trace("Evaluating {} indexPattern for existing index.", patterns.size());
-        Set<Project> result = new HashSet<>(projects.size());
-        GetIndexResponse response = pluginClient.getIndex(patterns.toArray(new String[]{}));
-        for (String index : response.getIndices()) {
-            LOGGER.trace("Evaluating index {}", index);
-            Project project = kibanaUtils.getProjectFromIndex(index);
-            if(projects.contains(project)) {
-                LOGGER.trace("Found index for project {}", project);
-                result.add(project);
+        return seeding.send(() -> pluginClient.getIndexAsync(patterns.toArray(new String[]{}))).thenApply(response -> {
+            Set<Project> result = new HashSet<>(projects.size());
+            for (String index : response.getIndices()) {
+                LOGGER.trace("Evaluating index {}", index);
+                Project project = kibanaUtils.getProjectFromIndex(index);
+                if(projects.contains(project)) {
+                    LOGGER.trace("Found index for project {}", project);
+                    result.add(project);
+                }
             }
-        }
-        return new ArrayList<>(result);
+            return new ArrayList<>(result);
+        });
     }
 
-    private boolean initialSeedKibanaIndex(final OpenshiftRequestContext context) {
-        try {
-            String userIndex = context.getKibanaIndex();
-            boolean kibanaIndexExists = pluginClient.indexExists(userIndex);
+    private CompletableFuture<Boolean> initialSeedKibanaIndex(final Seeding seeding) {
+        final String userIndex = seeding.context.getKibanaIndex();
+        return seeding.send(() -> pluginClient.indexExistsAsync(userIndex)).thenCompose(kibanaIndexExists -> {
             LOGGER.debug("Kibana index '{}' exists? {}", userIndex, kibanaIndexExists);
             // copy the defaults if the userindex is not the kibanaindex
             if (!kibanaIndexExists && !defaultKibanaIndex.equals(userIndex)) {
@@ -213,19 +257,20 @@ public class KibanaSeed implements ConfigurationSettings {
                 Settings settings = Settings.builder()
                         .put("index.number_of_shards", 1)
                         .build();
-                pluginClient.copyIndex(defaultKibanaIndex, userIndex, settings, CONFIG_DOC_TYPE);
-                return true;
+                return seeding.send(() -> pluginClient.copyIndexAsync(defaultKibanaIndex, userIndex, settings, CONFIG_DOC_TYPE))
+                        .thenApply(response -> true);
             }
-        } catch (Exception e) {
+            return CompletableFuture.completedFuture(false);
+        }).exceptionally(e -> {
             LOGGER.error("Unable to create initial Kibana index", e);
-        }
-        return false;
+            return false;
+        });
     }
 
-    private void setDefaultProject(String kibanaIndex, Project project, String kibanaVersion) {
+    private CompletableFuture<UpdateResponse> setDefaultProject(final Seeding seeding, final Project project) {
         // this will create a default index-pattern of in .kibana.USERNAMEHASH
         String source = new DocumentBuilder().defaultIndex(kibanaUtils.formatIndexPattern(project)).build();
-        pluginClient.updateDocument(kibanaIndex, CONFIG_DOC_TYPE, kibanaVersion, source);
+        return seeding.send(() -> pluginClient.updateDocumentAsync(seeding.context.getKibanaIndex(), CONFIG_DOC_TYPE, seeding.kibanaVersion, source));
     }
 
     private void create(BulkBuilder bulkBuilder, String kibanaIndex, List<Project> projects, Set<Project> projectsWithIndexPatterns) {
@@ -266,4 +311,25 @@ public class KibanaSeed implements ConfigurationSettings {
         }
     }
 
+    /*
+     * The seed of the index of a user.  Its stages run on whichever thread
+     * completes the previous request so the requests are counted here rather
+     * than by the client
+     */
+    private static final class Seeding {
+
+        private final OpenshiftRequestContext context;
+        private final String kibanaVersion;
+        private final AtomicLong roundTrips = new AtomicLong();
+
+        Seeding(final OpenshiftRequestContext context, final String kibanaVersion) {
+            this.context = context;
+            this.kibanaVersion = kibanaVersion;
+        }
+
+        <T> CompletableFuture<T> send(final Supplier<CompletableFuture<T>> request) {
+            roundTrips.incrementAndGet();
+            return request.get();
+        }
+    }
 }
@@ -23,11 +23,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.common.logging.Loggers;
@@ -77,8 +80,24 @@ public class KibanaUtils {
      */
     public Set<Project> getProjectsFromIndexPatterns(OpenshiftRequestContext context) {
         LOGGER.trace("Getting projects from indexPatterns...");
+        return getProjectsFromIndexPatterns(context, pluginClient.search(context.getKibanaIndex(), INDICIES_TYPE, 1000, false));
+    }
+
+    /**
+     * Determine the projects of the index patterns generated by this plugin
+     * without blocking
+     *
+     * @param context   The OpenshiftRequestContext for this request
+     * @return a future of the set of projects
+     */
+    public CompletableFuture<Set<Project>> getProjectsFromIndexPatternsAsync(OpenshiftRequestContext context) {
+        LOGGER.trace("Getting projects from indexPatterns...");
+        return pluginClient.searchAsync(context.getKibanaIndex(), INDICIES_TYPE, 1000, false)
+                .thenApply(response -> getProjectsFromIndexPatterns(context, response));
+    }
+
+    private Set<Project> getProjectsFromIndexPatterns(OpenshiftRequestContext context, SearchResponse response) {
         Set<Project> patterns = new HashSet<>();
-        SearchResponse response = pluginClient.search(context.getKibanaIndex(), INDICIES_TYPE, 1000, false);
         if (response.getHits() != null && response.getHits().getTotalHits() > 0) {
             for (SearchHit hit : response.getHits().getHits()) {
                 String id = hit.getId();
@@ -156,33 +175,57 @@ public class KibanaUtils {
         // default if config doesnt exist or is not set
         // the value if config doesnt exist but previous does
         try {
-            SearchResponse response = pluginClient.search(kibanaIndex, "config", 10, true);
-            final long totalHits = response.getHits().getTotalHits();
-            if(totalHits == 0) {
-                return defaultIfNotSet;
-            } else if (totalHits == 1){
-                return getDefaultFromContent(response.getHits().getHits()[0].getSourceAsString(), defaultIfNotSet);
-            }
-            Map<Version, String> patternMap = new HashMap<>();
-            for (SearchHit hit : response.getHits().getHits()) {
-                String source = hit.getSourceAsString();
-                String defaultIndex = defaultIfNotSet;
-                try {
-                    defaultIndex = defaultPath.read(source);
-                }catch(PathNotFoundException e) {
-                    // skip
-                }
-                patternMap.put(Version.valueOf(hit.getId()), defaultIndex);
+            return getDefaultIndexPattern(pluginClient.search(kibanaIndex, "config", 10, true), defaultIfNotSet);
+        }catch (IndexNotFoundException e) {
+            return defaultIfNotSet;
+        }
+    }
+
+    /**
+     * Gets the default index-pattern like
+     * {@link #getDefaultIndexPattern(String, String)} without blocking
+     * 
+     * @param kibanaIndex The index to Check
+     * @param defaultIfNotSet The value to use if not set
+     * @return a future of the default index-pattern
+     */
+    public CompletableFuture<String> getDefaultIndexPatternAsync(String kibanaIndex, String defaultIfNotSet) {
+        return pluginClient.searchAsync(kibanaIndex, "config", 10, true).handle((response, e) -> {
+            if (e == null) {
+                return getDefaultIndexPattern(response, defaultIfNotSet);
             }
-            List<Version> versions = new ArrayList<>(patternMap.keySet());
-            Collections.sort(versions);
-            if(versions.contains(defaultVersion)) {
-                return StringUtils.defaultIfBlank(patternMap.get(defaultVersion), "");
-            } else {
-                return patternMap.get(versions.get(versions.size() - 1));
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (ExceptionsHelper.unwrapCause(cause) instanceof IndexNotFoundException) {
+                return defaultIfNotSet;
             }
-        }catch (IndexNotFoundException e) {
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        });
+    }
+
+    private String getDefaultIndexPattern(SearchResponse response, String defaultIfNotSet) {
+        final long totalHits = response.getHits().getTotalHits();
+        if(totalHits == 0) {
             return defaultIfNotSet;
+        } else if (totalHits == 1){
+            return getDefaultFromContent(response.getHits().getHits()[0].getSourceAsString(), defaultIfNotSet);
+        }
+        Map<Version, String> patternMap = new HashMap<>();
+        for (SearchHit hit : response.getHits().getHits()) {
+            String source = hit.getSourceAsString();
+            String defaultIndex = defaultIfNotSet;
+            try {
+                defaultIndex = defaultPath.read(source);
+            }catch(PathNotFoundException e) {
+                // skip
+            }
+            patternMap.put(Version.valueOf(hit.getId()), defaultIndex);
+        }
+        List<Version> versions = new ArrayList<>(patternMap.keySet());
+        Collections.sort(versions);
+        if(versions.contains(defaultVersion)) {
+            return StringUtils.defaultIfBlank(patternMap.get(defaultVersion), "");
+        } else {
+            return patternMap.get(versions.get(versions.size() - 1));
         }
     }
     
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Iterators;
+
+/**
+ * Immutable set of projects held as a sorted array of canonical
+ * {@link Project} instances.  The projects of a user are mostly shared with
+ * other users so each distinct project is kept once on the node no matter
+ * how many cached contexts refer to it, and a context only pays for a
+ * reference per project instead of a hash set node.  Lookups are binary
+ * searches.  Canonical projects are weakly referenced so projects which are
+ * no longer referred to by any set can be collected.
+ */
+public final class ProjectSet extends AbstractSet<Project> {
+
+    public static final ProjectSet EMPTY = new ProjectSet(new Project[0]);
+
+    private static final Interner<Project> PROJECTS = Interners.newWeakInterner();
+
+    /*
+     * Project.compareTo only compares names but projects are equal by
+     * name and uid
+     */
+    private static final Comparator<Project> ORDER = Comparator.comparing(Project::getName, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Project::getUID, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final Project[] projects;
+    private final int hash;
+
+    private ProjectSet(final Project[] projects) {
+        this.projects = projects;
+        int sum = 0;
+        for (Project project : projects) {
+            sum += project.hashCode();
+        }
+        this.hash = sum;
+    }
+
+    /**
+     * @param projects the projects
+     * @return a set of the canonical instances of the projects or the given
+     *          set when it already is a ProjectSet
+     */
+    public static ProjectSet of(final Collection<Project> projects) {
+        if (projects instanceof ProjectSet) {
+            return (ProjectSet) projects;
+        }
+        if (projects.isEmpty()) {
+            return EMPTY;
+        }
+        Project[] sorted = new Project[projects.size()];
+        int size = 0;
+        for (Project project : projects) {
+            sorted[size++] = PROJECTS.intern(project);
+        }
+        Arrays.sort(sorted, ORDER);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || ORDER.compare(sorted[distinct - 1], sorted[i]) != 0) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return new ProjectSet(distinct == size ? sorted : Arrays.copyOf(sorted, distinct));
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof Project && Arrays.binarySearch(projects, (Project) o, ORDER) >= 0;
+    }
+
+    @Override
+    public Iterator<Project> iterator() {
+        return Iterators.forArray(projects);
+    }
+
+    @Override
+    public int size() {
+        return projects.length;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof ProjectSet) {
+            ProjectSet other = (ProjectSet) o;
+            return hash == other.hash && Arrays.equals(projects, other.projects);
+        }
+        return super.equals(o);
+    }
+}
@@ -33,11 +33,20 @@ class OpenShiftRestResponse extends RestResponse {
 
     private final RestResponse response;
     private final BytesReference content;
+    private final boolean rewritten;
     private static final Logger LOGGER = Loggers.getLogger(OpenShiftRestResponse.class);
     
     OpenShiftRestResponse(final RestResponse response, final OpenshiftRequestContext context, final String defaultKibanaIndex){
         this.response = response;
         this.content = evaluateContentForKibanaIndex(response.content(), context, defaultKibanaIndex);
+        this.rewritten = this.content != response.content();
+    }
+    
+    /**
+     * @return true if the content of the original response was modified
+     */
+    boolean isRewritten() {
+        return rewritten;
     }
     
     @Override
@@ -28,6 +28,7 @@ import org.elasticsearch.rest.RestResponse;
 
 import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
 import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory.OpenshiftRequestContext;
+import io.fabric8.elasticsearch.plugin.stats.PluginStats;
 
 /**
  * Intercepts the response and modifies it if necessary
@@ -37,11 +38,13 @@ public class RestChannelInterceptor implements RestChannel {
     private final RestChannel channel;
     private final ThreadContext threadContext;
     private final String defaultKibanaIndex;
+    private final PluginStats stats;
 
-    public RestChannelInterceptor(final RestChannel channel, ThreadContext threadContext, String defaultKibanaIndex) {
+    public RestChannelInterceptor(final RestChannel channel, ThreadContext threadContext, String defaultKibanaIndex, final PluginStats stats) {
         this.channel = channel;
         this.threadContext = threadContext;
         this.defaultKibanaIndex = defaultKibanaIndex;
+        this.stats = stats;
     }
     
     @Override
@@ -77,7 +80,11 @@ public class RestChannelInterceptor implements RestChannel {
     @Override
     public void sendResponse(RestResponse response) {
         OpenshiftRequestContext context = threadContext.getTransient(ConfigurationSettings.OPENSHIFT_REQUEST_CONTEXT);
-        channel.sendResponse(new OpenShiftRestResponse(response, context, defaultKibanaIndex));
+        OpenShiftRestResponse modified = new OpenShiftRestResponse(response, context, defaultKibanaIndex);
+        if (modified.isRewritten()) {
+            stats.onResponseRewrite(modified.content().length());
+        }
+        channel.sendResponse(modified);
     }
 
 }
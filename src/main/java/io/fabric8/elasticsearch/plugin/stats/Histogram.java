@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.stats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of non-negative values using log-linear buckets in the
+ * spirit of HdrHistogram: every power of two is split into 16 linear
+ * sub-buckets which bounds the relative error of a reported percentile to
+ * about 6%.  Recording is a couple of atomic increments so it can be used on
+ * hot paths without contention.  Reads are not an atomic snapshot
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0L);
+
+    /**
+     * Record a value.  Negative values are recorded as 0
+     *
+     * @param value the value to record
+     */
+    public void record(final long value) {
+        final long normalized = Math.max(0L, value);
+        counts.incrementAndGet(bucketOf(normalized));
+        count.increment();
+        sum.add(normalized);
+        max.accumulate(normalized);
+    }
+
+    /**
+     * Record the microseconds elapsed since the given
+     * {@link System#nanoTime()}
+     *
+     * @param startNanos the start time
+     */
+    public void recordMicrosSince(final long startNanos) {
+        record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * The value at or below which the given percentage of values fall. The
+     * result is the highest value of the matching bucket capped by the max
+     *
+     * @param percentile a percentage between 0 and 100
+     * @return the value or 0 when nothing was recorded
+     */
+    public long getPercentile(final double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        final long target = Math.max(1L, (long) Math.ceil(total * Math.min(100.0, percentile) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public Map<String, Object> toMap() {
+        final long total = getCount();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", total);
+        map.put("sum", getSum());
+        map.put("mean", total == 0 ? 0.0 : (double) getSum() / total);
+        map.put("max", getMax());
+        map.put("p50", getPercentile(50.0));
+        map.put("p90", getPercentile(90.0));
+        map.put("p99", getPercentile(99.0));
+        map.put("p99_9", getPercentile(99.9));
+        return map;
+    }
+
+    static int bucketOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueOf(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        final long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        final long lowest = (SUB_BUCKETS + subBucket) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.stats;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+/**
+ * The statistics of the plugin on a single node
+ */
+public class OpenshiftNodeStats extends BaseNodeResponse implements ToXContent {
+
+    private Map<String, Object> stats;
+
+    OpenshiftNodeStats() {
+    }
+
+    public OpenshiftNodeStats(final DiscoveryNode node, final Map<String, Object> stats) {
+        super(node);
+        this.stats = stats;
+    }
+
+    public Map<String, Object> getStats() {
+        return stats;
+    }
+
+    static OpenshiftNodeStats readNodeStats(StreamInput in) throws IOException {
+        OpenshiftNodeStats nodeStats = new OpenshiftNodeStats();
+        nodeStats.readFrom(in);
+        return nodeStats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        stats = in.readMap();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeMap(stats);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(getNode().getId());
+        builder.field("name", getNode().getName());
+        for (Entry<String, Object> entry : stats.entrySet()) {
+            builder.field(entry.getKey(), entry.getValue());
+        }
+        return builder.endObject();
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.stats;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.client.ElasticsearchClient;
+
+/**
+ * Retrieve the statistics of the plugin from the nodes of the cluster
+ */
+public class OpenshiftStatsAction extends Action<OpenshiftStatsRequest, OpenshiftStatsResponse, OpenshiftStatsRequestBuilder> {
+
+    public static final OpenshiftStatsAction INSTANCE = new OpenshiftStatsAction();
+    public static final String NAME = "cluster:monitor/openshift/stats";
+
+    private OpenshiftStatsAction() {
+        super(NAME);
+    }
+
+    @Override
+    public OpenshiftStatsRequestBuilder newRequestBuilder(ElasticsearchClient client) {
+        return new OpenshiftStatsRequestBuilder(client, this);
+    }
+
+    @Override
+    public OpenshiftStatsResponse newResponse() {
+        return new OpenshiftStatsResponse();
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.stats;
+
+import org.elasticsearch.action.support.nodes.NodesOperationRequestBuilder;
+import org.elasticsearch.client.ElasticsearchClient;
+
+public class OpenshiftStatsRequestBuilder
+    extends NodesOperationRequestBuilder<OpenshiftStatsRequest, OpenshiftStatsResponse, OpenshiftStatsRequestBuilder> {
+
+    public OpenshiftStatsRequestBuilder(ElasticsearchClient client, OpenshiftStatsAction action) {
+        super(client, action, new OpenshiftStatsRequest());
+    }
+}
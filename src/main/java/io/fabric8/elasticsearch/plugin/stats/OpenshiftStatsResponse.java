@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.stats;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+public class OpenshiftStatsResponse extends BaseNodesResponse<OpenshiftNodeStats> implements ToXContent {
+
+    OpenshiftStatsResponse() {
+    }
+
+    public OpenshiftStatsResponse(ClusterName clusterName, List<OpenshiftNodeStats> nodes, List<FailedNodeException> failures) {
+        super(clusterName, nodes, failures);
+    }
+
+    @Override
+    protected List<OpenshiftNodeStats> readNodesFrom(StreamInput in) throws IOException {
+        return in.readList(OpenshiftNodeStats::readNodeStats);
+    }
+
+    @Override
+    protected void writeNodesTo(StreamOutput out, List<OpenshiftNodeStats> nodes) throws IOException {
+        out.writeStreamableList(nodes);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("_nodes")
+            .field("total", getNodes().size() + failures().size())
+            .field("successful", getNodes().size())
+            .field("failed", failures().size())
+            .endObject();
+        builder.field("cluster_name", getClusterName().value());
+        builder.startObject("nodes");
+        for (OpenshiftNodeStats node : getNodes()) {
+            node.toXContent(builder, params);
+        }
+        return builder.endObject();
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.stats;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Node local statistics of the plugin's hot paths.  Latencies are recorded
+ * in microseconds.  Components which already keep their own statistics
+ * (e.g. the context cache) register a section which is evaluated when the
+ * statistics are requested
+ */
+public class PluginStats {
+
+    /**
+     * The OpenShift API endpoints which are timed
+     */
+    public enum ApiEndpoint {
+        USER("user"),
+        PROJECTS("projects"),
+        SUBJECT_ACCESS_REVIEW("subject_access_review");
+
+        private final String key;
+
+        ApiEndpoint(final String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private final Map<ApiEndpoint, Histogram> apiLatency = new EnumMap<>(ApiEndpoint.class);
+
+    private final LongAdder aclSyncFailures = new LongAdder();
+    private final LongAdder aclRetries = new LongAdder();
+    private final LongAdder aclConflicts = new LongAdder();
+    private final Histogram aclSyncLatency = new Histogram();
+    private final Histogram aclLockWait = new Histogram();
+    private final Histogram aclBulkBytes = new Histogram();
+    private final Histogram aclSweepLatency = new Histogram();
+    private final LongAdder aclSweepFailures = new LongAdder();
+    private final LongAdder aclExpired = new LongAdder();
+    private final LongAdder aclDocumentsReused = new LongAdder();
+    private final LongAdder aclDocumentsFetched = new LongAdder();
+    private final Histogram aclConfigUpdateLatency = new Histogram();
+    private final LongAdder aclConfigUpdateFailures = new LongAdder();
+    private final LongAdder aclConfigReloads = new LongAdder();
+
+    private final Histogram kibanaSeedLatency = new Histogram();
+    private final Histogram kibanaSeedRoundTrips = new Histogram();
+
+    private final LongAdder requestRewrites = new LongAdder();
+    private final LongAdder requestRewriteBytes = new LongAdder();
+    private final LongAdder responseRewrites = new LongAdder();
+    private final LongAdder responseRewriteBytes = new LongAdder();
+
+    private final Map<String, Supplier<Map<String, Object>>> sections = new LinkedHashMap<>();
+
+    public PluginStats() {
+        for (ApiEndpoint endpoint : ApiEndpoint.values()) {
+            apiLatency.put(endpoint, new Histogram());
+        }
+    }
+
+    /**
+     * Register a section of statistics maintained elsewhere
+     *
+     * @param name     the name of the section
+     * @param supplier the supplier of the statistics of the section
+     */
+    public synchronized void register(final String name, final Supplier<Map<String, Object>> supplier) {
+        sections.put(name, supplier);
+    }
+
+    public void onApiCall(final ApiEndpoint endpoint, final long startNanos) {
+        apiLatency.get(endpoint).recordMicrosSince(startNanos);
+    }
+
+    public void onAclSync(final long startNanos, final boolean success) {
+        aclSyncLatency.recordMicrosSince(startNanos);
+        if (!success) {
+            aclSyncFailures.increment();
+        }
+    }
+
+    public void onAclLockAcquired(final long startNanos) {
+        aclLockWait.recordMicrosSince(startNanos);
+    }
+
+    public void onAclBulkWrite(final long bytes) {
+        aclBulkBytes.record(bytes);
+    }
+
+    public void onAclRetry() {
+        aclRetries.increment();
+    }
+
+    public void onAclConflict() {
+        aclConflicts.increment();
+    }
+
+    public void onAclLoad(final int reused, final int fetched) {
+        aclDocumentsReused.add(reused);
+        aclDocumentsFetched.add(fetched);
+    }
+
+    /**
+     * Record a broadcast asking the nodes to reload the SearchGuard
+     * configuration
+     *
+     * @param startNanos the start time of the broadcast
+     * @param nodes      the number of nodes which reloaded the configuration
+     */
+    public void onAclConfigUpdate(final long startNanos, final int nodes) {
+        aclConfigUpdateLatency.recordMicrosSince(startNanos);
+        aclConfigReloads.add(nodes);
+        if (nodes <= 0) {
+            aclConfigUpdateFailures.increment();
+        }
+    }
+
+    public void onAclSweep(final long startNanos, final int expired, final boolean success) {
+        aclSweepLatency.recordMicrosSince(startNanos);
+        aclExpired.add(expired);
+        if (!success) {
+            aclSweepFailures.increment();
+        }
+    }
+
+    public void onKibanaSeed(final long startNanos, final long roundTrips) {
+        kibanaSeedLatency.recordMicrosSince(startNanos);
+        kibanaSeedRoundTrips.record(roundTrips);
+    }
+
+    public void onRequestRewrite(final long bytes) {
+        requestRewrites.increment();
+        requestRewriteBytes.add(bytes);
+    }
+
+    public void onResponseRewrite(final long bytes) {
+        responseRewrites.increment();
+        responseRewriteBytes.add(bytes);
+    }
+
+    /**
+     * @return the statistics as a map suitable for serializing
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+
+        Map<String, Object> api = new LinkedHashMap<>();
+        for (Entry<ApiEndpoint, Histogram> entry : apiLatency.entrySet()) {
+            api.put(entry.getKey().getKey(), entry.getValue().toMap());
+        }
+        stats.put("openshift_api_latency_micros", api);
+
+        Map<String, Object> acl = new LinkedHashMap<>();
+        acl.put("syncs", aclSyncLatency.getCount());
+        acl.put("failures", aclSyncFailures.sum());
+        acl.put("retries", aclRetries.sum());
+        acl.put("conflicts", aclConflicts.sum());
+        acl.put("sync_latency_micros", aclSyncLatency.toMap());
+        acl.put("lock_wait_micros", aclLockWait.toMap());
+        acl.put("bulk_bytes", aclBulkBytes.toMap());
+        acl.put("documents_reused", aclDocumentsReused.sum());
+        acl.put("documents_fetched", aclDocumentsFetched.sum());
+        acl.put("config_updates", aclConfigUpdateLatency.getCount());
+        acl.put("config_update_failures", aclConfigUpdateFailures.sum());
+        acl.put("config_reloads", aclConfigReloads.sum());
+        acl.put("config_update_latency_micros", aclConfigUpdateLatency.toMap());
+        acl.put("sweeps", aclSweepLatency.getCount());
+        acl.put("sweep_failures", aclSweepFailures.sum());
+        acl.put("expired", aclExpired.sum());
+        acl.put("sweep_latency_micros", aclSweepLatency.toMap());
+        stats.put("acl", acl);
+
+        Map<String, Object> seed = new LinkedHashMap<>();
+        seed.put("latency_micros", kibanaSeedLatency.toMap());
+        seed.put("round_trips", kibanaSeedRoundTrips.toMap());
+        stats.put("kibana_seed", seed);
+
+        Map<String, Object> rewrite = new LinkedHashMap<>();
+        rewrite.put("requests", requestRewrites.sum());
+        rewrite.put("request_bytes", requestRewriteBytes.sum());
+        rewrite.put("responses", responseRewrites.sum());
+        rewrite.put("response_bytes", responseRewriteBytes.sum());
+        stats.put("rewrite", rewrite);
+
+        synchronized (this) {
+            for (Entry<String, Supplier<Map<String, Object>>> section : sections.entrySet()) {
+                stats.put(section.getKey(), section.getValue().get());
+            }
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.stats;
+
+import java.util.List;
+
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.BaseNodeRequest;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+public class TransportOpenshiftStatsAction extends TransportNodesAction<OpenshiftStatsRequest, OpenshiftStatsResponse,
+        TransportOpenshiftStatsAction.NodeRequest, OpenshiftNodeStats> {
+
+    private final PluginStats stats;
+
+    @Inject
+    public TransportOpenshiftStatsAction(final Settings settings, final ThreadPool threadPool, final ClusterService clusterService,
+            final TransportService transportService, final ActionFilters actionFilters,
+            final IndexNameExpressionResolver indexNameExpressionResolver, final PluginStats stats) {
+        super(settings, OpenshiftStatsAction.NAME, threadPool, clusterService, transportService, actionFilters, indexNameExpressionResolver,
+                OpenshiftStatsRequest::new, NodeRequest::new, ThreadPool.Names.MANAGEMENT, OpenshiftNodeStats.class);
+        this.stats = stats;
+    }
+
+    @Override
+    protected OpenshiftStatsResponse newResponse(OpenshiftStatsRequest request, List<OpenshiftNodeStats> responses,
+            List<FailedNodeException> failures) {
+        return new OpenshiftStatsResponse(clusterService.getClusterName(), responses, failures);
+    }
+
+    @Override
+    protected NodeRequest newNodeRequest(String nodeId, OpenshiftStatsRequest request) {
+        return new NodeRequest(nodeId);
+    }
+
+    @Override
+    protected OpenshiftNodeStats newNodeResponse() {
+        return new OpenshiftNodeStats();
+    }
+
+    @Override
+    protected OpenshiftNodeStats nodeOperation(NodeRequest request) {
+        return new OpenshiftNodeStats(clusterService.localNode(), stats.toMap());
+    }
+
+    @Override
+    protected boolean accumulateExceptions() {
+        return false;
+    }
+
+    public static class NodeRequest extends BaseNodeRequest {
+
+        public NodeRequest() {
+        }
+
+        NodeRequest(String nodeId) {
+            super(nodeId);
+        }
+    }
+}
@@ -42,6 +42,7 @@ import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
 import io.fabric8.elasticsearch.plugin.OpenshiftAPIService;
 import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory.OpenshiftRequestContext;
 import io.fabric8.elasticsearch.plugin.PluginSettings;
+import io.fabric8.elasticsearch.plugin.stats.PluginStats;
 
 import io.netty.channel.Channel;
 
@@ -54,11 +55,17 @@ public class RequestUtils implements ConfigurationSettings  {
     private final String proxyUserHeader;
     private final String defaultKibanaIndex;
     private final OpenshiftAPIService apiService;
+    private final PluginStats stats;
 
     public RequestUtils(final PluginSettings pluginSettings, final OpenshiftAPIService apiService) {
+        this(pluginSettings, apiService, new PluginStats());
+    }
+
+    public RequestUtils(final PluginSettings pluginSettings, final OpenshiftAPIService apiService, final PluginStats stats) {
         this.defaultKibanaIndex = pluginSettings.getDefaultKibanaIndex();
         this.proxyUserHeader = pluginSettings.getSettings().get(SEARCHGUARD_AUTHENTICATION_PROXY_HEADER, DEFAULT_AUTH_PROXY_HEADER);
         this.apiService = apiService;
+        this.stats = stats;
     }
     
     public void logRequest(final RestRequest request) {
@@ -230,7 +237,9 @@ public class RequestUtils implements ConfigurationSettings  {
         if(OpenshiftRequestContext.EMPTY != context && content.contains("_index\":\"" + defaultKibanaIndex)) {
             LOGGER.debug("Replacing the content that references the default kibana index");
             String replaced = content.replaceAll("_index\":\"" + defaultKibanaIndex + "\"", "_index\":\"" + context.getKibanaIndex() + "\"");
-            return new BytesArray(replaced);
+            BytesArray modified = new BytesArray(replaced);
+            stats.onRequestRewrite(modified.length());
+            return modified;
         }
         return request.content();
     }
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchSecurityException;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.After;
+import org.junit.Test;
+
+import io.fabric8.elasticsearch.plugin.OpenshiftAPIGuard.State;
+
+public class OpenshiftAPIGuardTest {
+
+    private Settings.Builder settings = Settings.builder()
+            .put(ConfigurationSettings.OPENSHIFT_API_BREAKER_MINIMUM_CALLS, 2);
+    private OpenshiftAPIGuard guard;
+    private ExecutorService executor;
+    private AtomicInteger invocations = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void givenGuard() {
+        guard = new OpenshiftAPIGuard(settings.build(), executor);
+    }
+
+    private void givenCallsFailWith(Exception e, int times) {
+        for (int i = 0; i < times; i++) {
+            try {
+                whenCalling(e);
+                fail("Exp. the call to throw");
+            } catch (Exception expected) {
+                // the failure is expected
+            }
+        }
+    }
+
+    private String whenCalling(final Exception failure) throws Exception {
+        return guard.call(() -> {
+            invocations.incrementAndGet();
+            if (failure != null) {
+                throw failure;
+            }
+            return "success";
+        });
+    }
+
+    private void assertCallIsRefusedWith(RestStatus status) throws Exception {
+        try {
+            whenCalling(null);
+            fail("Exp. the call to be refused");
+        } catch (ElasticsearchStatusException e) {
+            assertEquals(status, e.status());
+        }
+    }
+
+    @Test
+    public void testBreakerOpensOnFailureRate() throws Exception {
+        givenGuard();
+        givenCallsFailWith(new ElasticsearchException(new IOException()), 2);
+
+        assertEquals(State.OPEN, guard.getState());
+        assertCallIsRefusedWith(RestStatus.SERVICE_UNAVAILABLE);
+        assertEquals(2, invocations.get());
+        assertEquals(1, guard.getShortCircuitedCount());
+        assertEquals(1, guard.getTimesOpened());
+    }
+
+    @Test
+    public void testBreakerRemainsClosedWhenTokensAreRejected() throws Exception {
+        givenGuard();
+        givenCallsFailWith(new ElasticsearchSecurityException("", RestStatus.UNAUTHORIZED), 2);
+
+        assertEquals(State.CLOSED, guard.getState());
+        assertEquals("success", whenCalling(null));
+    }
+
+    @Test
+    public void testBreakerClosesAfterSuccessfulProbe() throws Exception {
+        settings.put(ConfigurationSettings.OPENSHIFT_API_BREAKER_OPEN_SECONDS, 0);
+        givenGuard();
+        givenCallsFailWith(new ElasticsearchException(new IOException()), 2);
+
+        assertEquals("success", whenCalling(null));
+        assertEquals(State.CLOSED, guard.getState());
+    }
+
+    @Test
+    public void testBreakerReopensAfterFailedProbe() throws Exception {
+        settings.put(ConfigurationSettings.OPENSHIFT_API_BREAKER_OPEN_SECONDS, 0);
+        givenGuard();
+        givenCallsFailWith(new ElasticsearchException(new IOException()), 3);
+
+        assertEquals(State.OPEN, guard.getState());
+        assertEquals(2, guard.getTimesOpened());
+    }
+
+    @Test
+    public void testBreakerAllowsAnotherProbeAfterProbeThrowsAnError() throws Exception {
+        settings.put(ConfigurationSettings.OPENSHIFT_API_BREAKER_OPEN_SECONDS, 0);
+        givenGuard();
+        givenCallsFailWith(new ElasticsearchException(new IOException()), 2);
+
+        try {
+            guard.call(() -> {
+                throw new LinkageError("probe failed");
+            });
+            fail("Exp. the error to be rethrown");
+        } catch (LinkageError expected) {
+            // the error is expected
+        }
+        assertEquals(State.OPEN, guard.getState());
+        assertEquals("success", whenCalling(null));
+        assertEquals(State.CLOSED, guard.getState());
+    }
+
+    @Test
+    public void testCallsAreRefusedWhenBulkheadIsSaturated() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        givenGuard();
+
+        assertCallIsRefusedWith(RestStatus.TOO_MANY_REQUESTS);
+        assertEquals(0, invocations.get());
+        assertEquals(1, guard.getRejectedCount());
+        assertEquals(State.CLOSED, guard.getState());
+    }
+
+    @Test
+    public void testSlowCallsTimeOut() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+        settings.put(ConfigurationSettings.OPENSHIFT_API_TIMEOUT_MILLIS, 10);
+        givenGuard();
+
+        try {
+            guard.call(() -> {
+                Thread.sleep(5000);
+                return "success";
+            });
+            fail("Exp. the call to time out");
+        } catch (ElasticsearchStatusException e) {
+            assertEquals(RestStatus.GATEWAY_TIMEOUT, e.status());
+        }
+        assertEquals(1, guard.getTimedOutCount());
+    }
+}
@@ -18,6 +18,7 @@ package io.fabric8.elasticsearch.plugin;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.mock;
@@ -29,6 +30,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.commons.lang.ArrayUtils;
+import org.elasticsearch.ElasticsearchSecurityException;
+import org.elasticsearch.rest.RestStatus;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -38,6 +41,7 @@ import org.mockito.stubbing.Answer;
 import io.fabric8.elasticsearch.plugin.OpenshiftAPIService.OpenShiftClientFactory;
 import io.fabric8.elasticsearch.plugin.model.Project;
 import io.fabric8.kubernetes.client.Config;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.openshift.api.model.ProjectBuilder;
 import io.fabric8.openshift.api.model.ProjectListBuilder;
 import io.fabric8.openshift.client.DefaultOpenShiftClient;
@@ -99,6 +103,29 @@ public class OpenshiftAPIServiceTest {
         assertEquals(exp, projects);
     }
 
+    @Test
+    public void testProjectNamesWhenTheClientFailsWithoutAResponse() {
+        assertEquals(RestStatus.SERVICE_UNAVAILABLE, statusOfProjectNamesFailingWith(new KubernetesClientException("Connection refused")));
+    }
+
+    @Test
+    public void testProjectNamesWhenTheClientFailsWithAResponse() {
+        assertEquals(RestStatus.UNAUTHORIZED, statusOfProjectNamesFailingWith(new KubernetesClientException("Unauthorized", 401, null)));
+    }
+
+    private RestStatus statusOfProjectNamesFailingWith(KubernetesClientException failure) {
+        OpenShiftClientFactory factory = mock(OpenShiftClientFactory.class);
+        when(factory.buildClient(anyString())).thenThrow(failure);
+        service = new OpenshiftAPIService(factory);
+        try {
+            service.projectNames("someToken");
+            fail("Exp. the failure of the client to be rethrown");
+            return null;
+        } catch (ElasticsearchSecurityException e) {
+            return e.status();
+        }
+    }
+
     @Test
     public void testLocalSubjectAccessReviewWhenNotNonResourceURL() throws IOException{
         OkHttpClient okClient = mock(OkHttpClient.class);
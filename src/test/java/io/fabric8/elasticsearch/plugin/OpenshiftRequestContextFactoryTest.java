@@ -21,8 +21,11 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
@@ -34,9 +37,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.elasticsearch.ElasticsearchSecurityException;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -46,6 +51,8 @@ import org.junit.runners.Parameterized.Parameter;
 import org.junit.runners.Parameterized.Parameters;
 
 import io.fabric8.elasticsearch.plugin.OpenshiftRequestContextFactory.OpenshiftRequestContext;
+import io.fabric8.elasticsearch.plugin.acl.BaseRolesSyncStrategy;
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles;
 import io.fabric8.elasticsearch.plugin.auth.BackendRoleRetriever;
 import io.fabric8.elasticsearch.plugin.model.Project;
 import io.fabric8.elasticsearch.util.RequestUtils;
@@ -156,6 +163,17 @@ public class OpenshiftRequestContextFactoryTest {
         assertEquals("test/user", context.getUser());
     }
 
+    @Test
+    public void testCreatingUserContextDerivesTheNamesOfTheUser() throws Exception {
+        givenUserContextFactory(false);
+        givenUserHasProjects();
+        whenCreatingUserContext("test\\user");
+        assertEquals(OpenshiftRequestContextFactory.getUsernameHash("test/user"), context.getUsernameHash());
+        assertEquals(BaseRolesSyncStrategy.formatUserRoleName("test/user"), context.getUserRoleName());
+        assertEquals(BaseRolesSyncStrategy.formatUserKibanaRoleName("test/user"), context.getUserKibanaRoleName());
+        assertEquals(SearchGuardRoles.formatUniqueKibanaRoleName("test/user"), context.getUniqueKibanaRoleName());
+    }
+
     @Test
     public void testGetKibanaIndexWhenUnrecognizedSharedMode() throws Exception {
         givenKibanaIndexMode("some random value");
@@ -227,4 +245,148 @@ public class OpenshiftRequestContextFactoryTest {
         assertTrue("Exp. the request context to identify an ops user", context.isOperationsUser());
     }
 
+    @Test
+    public void testRejectedTokenIsNotEvaluatedAgain() throws Exception {
+        givenUserContextFactory(false);
+        doThrow(new ElasticsearchSecurityException("Unable to determine username", RestStatus.UNAUTHORIZED))
+            .when(utils).assertUser(anyString());
+
+        assertEquals(OpenshiftRequestContext.EMPTY, factory.create(request));
+        assertEquals(OpenshiftRequestContext.EMPTY, factory.create(request));
+
+        verify(utils, times(1)).assertUser(anyString());
+        assertEquals(1, factory.getRejectedTokenCache().getAvoidedCalls());
+    }
+
+    @Test
+    public void testBackendRolesAreResolvedLazilyOnce() throws Exception {
+        BackendRoleRetriever retriever = givenBackendRoles("role1");
+        givenUserContextFactory(false);
+        givenUserHasProjects();
+        whenCreatingUserContext();
+
+        verify(retriever, times(0)).retrieveBackendRoles(anyString());
+        assertEquals(Arrays.asList("role1"), context.getBackendRoles());
+        assertEquals(Arrays.asList("role1"), context.getBackendRoles());
+        verify(retriever, times(1)).retrieveBackendRoles(anyString());
+    }
+
+    @Test
+    public void testFailedBackendRolesAreNotResolvedOnEveryRequest() throws Exception {
+        BackendRoleRetriever retriever = mock(BackendRoleRetriever.class);
+        when(retriever.retrieveBackendRoles(anyString())).thenThrow(new RuntimeException("master unavailable"));
+        PluginServiceFactory.setBackendRoleRetriever(retriever);
+        givenUserContextFactory(false);
+        givenUserHasProjects();
+        whenCreatingUserContext();
+
+        assertTrue("Exp. no backend roles", context.getBackendRoles().isEmpty());
+        assertTrue("Exp. no backend roles", context.getBackendRoles().isEmpty());
+        verify(retriever, times(1)).retrieveBackendRoles(anyString());
+    }
+
+    @Test
+    public void testEmptyBackendRolesAreResolvedOnce() throws Exception {
+        BackendRoleRetriever retriever = givenBackendRoles();
+        givenUserContextFactory(false);
+        givenUserHasProjects();
+        whenCreatingUserContext();
+
+        assertTrue("Exp. no backend roles", context.getBackendRoles().isEmpty());
+        assertTrue("Exp. no backend roles", context.getBackendRoles().isEmpty());
+        verify(retriever, times(1)).retrieveBackendRoles(anyString());
+    }
+
+    @Test
+    public void testBackendRolesAreSkippedWhenNoMappingUsesThem() throws Exception {
+        BackendRoleRetriever retriever = givenBackendRoles("role1");
+        givenUserContextFactory(false);
+        givenUserHasProjects();
+        factory.setBackendRolesMapped(false);
+        whenCreatingUserContext();
+
+        assertTrue("Exp. no backend roles", context.getBackendRoles().isEmpty());
+        verify(retriever, times(0)).retrieveBackendRoles(anyString());
+
+        factory.setBackendRolesMapped(true);
+        assertTrue("Exp. the context to not have retained the token", context.getBackendRoles().isEmpty());
+        verify(retriever, times(0)).retrieveBackendRoles(anyString());
+    }
+
+    @Test
+    public void testBackendRolesReleaseTheTokenWhenMappingsStopUsingThem() throws Exception {
+        BackendRoleRetriever retriever = givenBackendRoles("role1");
+        givenUserContextFactory(false);
+        givenUserHasProjects();
+        whenCreatingUserContext();
+
+        factory.setBackendRolesMapped(false);
+        assertTrue("Exp. no backend roles", context.getBackendRoles().isEmpty());
+
+        factory.setBackendRolesMapped(true);
+        assertTrue("Exp. the context to not have retained the token", context.getBackendRoles().isEmpty());
+        verify(retriever, times(0)).retrieveBackendRoles(anyString());
+    }
+
+    @Test
+    public void testContextCacheIsWeighedByEstimatedBytes() throws Exception {
+        givenUserContextFactory(false);
+        givenUserHasProjects();
+        whenCreatingUserContext();
+
+        Map<String, Object> cache = getCacheStats();
+        assertEquals(context.getEstimatedBytes(), cache.get("estimated_bytes"));
+        assertEquals(0L, cache.get("evictions_by_size"));
+    }
+
+    @Test
+    public void testContextsHeavierThanTheBudgetAreEvictedBySize() throws Exception {
+        settingsBuilder.put(ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_MAX_BYTES, "1b");
+        givenUserContextFactory(false);
+        givenUserHasProjects();
+        whenCreatingUserContext();
+
+        Map<String, Object> cache = getCacheStats();
+        assertEquals(0L, cache.get("estimated_bytes"));
+        assertEquals(1L, cache.get("evictions_by_size"));
+    }
+
+    @Test
+    public void testContextCacheIsLimitedByMaxSizeUnlessABudgetIsSet() throws Exception {
+        settingsBuilder.put(ConfigurationSettings.OPENSHIFT_CONTEXT_CACHE_MAXSIZE, 0);
+        givenUserContextFactory(false);
+        givenUserHasProjects();
+        whenCreatingUserContext();
+
+        Map<String, Object> cache = getCacheStats();
+        assertEquals(0L, cache.get("max_bytes"));
+        assertEquals(1L, cache.get("evictions_by_size"));
+    }
+
+    @Test
+    public void testEstimatedBytesGrowWithTheProjects() {
+        Set<Project> projects = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            projects.add(new Project("project" + i, "uid" + i));
+        }
+        OpenshiftRequestContext few = new OpenshiftRequestContext("user", "token", false, Collections.emptySet(), ".kibana", "unique",
+                Collections.emptyList());
+        OpenshiftRequestContext many = new OpenshiftRequestContext("user", "token", false, projects, ".kibana", "unique",
+                Collections.emptyList());
+        // the projects are shared by the contexts so only the references to them are charged
+        assertEquals(100 * 8L, many.getEstimatedBytes() - few.getEstimatedBytes());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getCacheStats() {
+        return (Map<String, Object>) factory.getStats().get("cache");
+    }
+
+    private BackendRoleRetriever givenBackendRoles(String... roles) {
+        BackendRoleRetriever retriever = mock(BackendRoleRetriever.class);
+        when(retriever.retrieveBackendRoles(anyString())).thenReturn(Arrays.asList(roles));
+        PluginServiceFactory.setBackendRoleRetriever(retriever);
+        return retriever;
+    }
+
 }
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.floragunn.searchguard.support.ConfigConstants;
+
+public class PluginClientTest {
+
+    private static final String CALLER = "caller";
+
+    private ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+    private PluginClient client;
+    private AtomicReference<ActionListener<String>> pending = new AtomicReference<>();
+
+    @Before
+    public void setUp() {
+        client = new PluginClient(mock(Client.class), threadContext);
+        threadContext.putTransient(CALLER, Boolean.TRUE);
+    }
+
+    @Test
+    public void testAsyncRequestsAreSentFromAStashedContextWithTheCommonHeaders() throws Exception {
+        AtomicReference<Object> caller = new AtomicReference<>();
+        AtomicReference<Object> channelType = new AtomicReference<>();
+        client.executeAsync((ActionListener<String> listener) -> {
+            caller.set(threadContext.getTransient(CALLER));
+            channelType.set(threadContext.getTransient(ConfigConstants.SG_CHANNEL_TYPE));
+            listener.onResponse("done");
+        });
+
+        assertNull(caller.get());
+        assertEquals("direct", channelType.get());
+        assertEquals(Boolean.TRUE, threadContext.getTransient(CALLER));
+        assertNull(threadContext.getTransient(ConfigConstants.SG_CHANNEL_TYPE));
+    }
+
+    @Test
+    public void testAsyncResponsesAreHandledInTheContextOfTheCaller() throws Exception {
+        CompletableFuture<Object> future = client.executeAsync((ActionListener<String> listener) -> pending.set(listener))
+                .thenApply(response -> threadContext.getTransient(CALLER));
+        whenTheResponseArrivesOnAnotherThread();
+
+        assertEquals(Boolean.TRUE, future.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAsyncFailuresCompleteTheFutureExceptionally() throws Exception {
+        RuntimeException failure = new RuntimeException("failed");
+        CompletableFuture<String> future = client.executeAsync((ActionListener<String> listener) -> {
+            throw failure;
+        });
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+            return;
+        }
+        throw new AssertionError("Exp. the future to fail");
+    }
+
+    private void whenTheResponseArrivesOnAnotherThread() throws InterruptedException {
+        Thread thread = new Thread(() -> pending.get().onResponse("done"));
+        thread.start();
+        thread.join();
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchSecurityException;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+public class RejectedTokenCacheTest {
+
+    private static final String TOKEN = "ABC123";
+
+    private RejectedTokenCache cache = new RejectedTokenCache(Settings.EMPTY);
+
+    @Test
+    public void testUnknownTokenIsNotRejected() {
+        assertFalse(cache.isRejected(TOKEN));
+        assertEquals(0, cache.getAvoidedCalls());
+    }
+
+    @Test
+    public void testUnauthorizedTokenIsRejected() {
+        cache.onFailure(TOKEN, new UncheckedExecutionException(new ElasticsearchSecurityException("", RestStatus.UNAUTHORIZED)));
+
+        assertTrue(cache.isRejected(TOKEN));
+        assertFalse(cache.isRejected("someothertoken"));
+        assertEquals(1, cache.getAvoidedCalls());
+    }
+
+    @Test
+    public void testStatusOfFailures() {
+        assertEquals(RestStatus.FORBIDDEN,
+                RejectedTokenCache.statusOf(new ExecutionException(new ElasticsearchSecurityException("", RestStatus.FORBIDDEN))));
+        assertEquals(RestStatus.SERVICE_UNAVAILABLE,
+                RejectedTokenCache.statusOf(new ElasticsearchSecurityException("", RestStatus.SERVICE_UNAVAILABLE)));
+        assertEquals(RestStatus.INTERNAL_SERVER_ERROR, RejectedTokenCache.statusOf(new ElasticsearchException(new IOException())));
+        assertEquals(RestStatus.INTERNAL_SERVER_ERROR, RejectedTokenCache.statusOf(new RuntimeException()));
+    }
+
+    @Test
+    public void testUnavailableFailuresAreNotRemembered() {
+        cache.onFailure(TOKEN, new ElasticsearchException(new IOException()));
+        cache.onFailure(TOKEN, new ElasticsearchSecurityException("", RestStatus.SERVICE_UNAVAILABLE));
+
+        assertFalse(cache.isRejected(TOKEN));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+public class TokenKeyTest {
+
+    private static final String TOKEN = "ABC123";
+
+    @Test
+    public void testKeysOfTheSameTokenAreEqual() {
+        assertEquals(TokenKey.of(TOKEN), TokenKey.of(new String(TOKEN.toCharArray())));
+        assertEquals(TokenKey.of(TOKEN).hashCode(), TokenKey.of(TOKEN).hashCode());
+    }
+
+    @Test
+    public void testKeysOfDifferentTokensAreNotEqual() {
+        assertNotEquals(TokenKey.of(TOKEN), TokenKey.of("ABC124"));
+        assertNotEquals(TokenKey.of(TOKEN), TokenKey.of(""));
+    }
+
+    @Test
+    public void testToStringDoesNotRevealTheToken() {
+        assertFalse(TokenKey.of(TOKEN).toString().contains(TOKEN));
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.Test;
+
+public class ACLDocumentSerializerTest {
+
+    private ACLDocumentSerializer serializer = new ACLDocumentSerializer();
+
+    private static Map<String, Object> toMap(XContentBuilder builder) {
+        return XContentHelper.convertToMap(builder.bytes(), false, XContentType.JSON).v2();
+    }
+
+    /*
+     * The source as it was built before: the JSON string of the document in a map
+     */
+    @SuppressWarnings("rawtypes")
+    private static Map<String, Object> expectedSourceOf(SearchGuardACLDocument doc) throws Exception {
+        Map<String, Object> content = new HashMap<>();
+        content.put(doc.getType(), new BytesArray(XContentHelper.toString(doc)));
+        return toMap(XContentFactory.jsonBuilder().map(content));
+    }
+
+    private static Map<String, Object> decode(Map<String, Object> source, String type) {
+        byte[] json = Base64.getDecoder().decode((String) source.get(type));
+        return XContentHelper.convertToMap(new BytesArray(json), false, XContentType.JSON).v2();
+    }
+
+    @Test
+    public void testRolesSourceMatchesTheDocument() throws Exception {
+        SearchGuardRoles roles = new SearchGuardRoles(1L);
+        roles.addAll(Arrays.asList(
+                new RoleBuilder("gen_user_foo").setClusters(new String[] {"cluster:monitor"})
+                    .setActions("project.foo.*", "*", new String[] {"read"}).expires(1234L).build(),
+                new RoleBuilder("gen_user_bar").setActions("project.bar.*", "*", new String[] {"read"}).build()));
+
+        Map<String, Object> expected = expectedSourceOf(roles);
+        Map<String, Object> actual = toMap(serializer.toSource(roles));
+
+        assertEquals(expected.keySet(), actual.keySet());
+        assertEquals(decode(expected, roles.getType()), decode(actual, roles.getType()));
+    }
+
+    @Test
+    public void testBufferIsReusedBetweenDocuments() throws Exception {
+        SearchGuardRolesMapping mappings = new SearchGuardRolesMapping(1L);
+        mappings.addAll(new RolesMappingBuilder().addUser("gen_user_foo", "foo").build());
+        SearchGuardRoles roles = new SearchGuardRoles(1L);
+        roles.addAll(Arrays.asList(new RoleBuilder("gen_user_foo").setActions("project.foo.*", "*", new String[] {"read"}).build()));
+
+        Map<String, Object> first = toMap(serializer.toSource(roles));
+        Map<String, Object> second = toMap(serializer.toSource(mappings));
+
+        assertEquals(decode(expectedSourceOf(roles), roles.getType()), decode(first, roles.getType()));
+        assertEquals(decode(expectedSourceOf(mappings), mappings.getType()), decode(second, mappings.getType()));
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ACLExpirySweeperTest {
+
+    private ClusterService clusterService = mock(ClusterService.class);
+    private ClusterState state = mock(ClusterState.class);
+    private DiscoveryNodes nodes = mock(DiscoveryNodes.class);
+    private ACLDocumentManager aclDocumentManager = mock(ACLDocumentManager.class);
+    private ACLExpirySweeper sweeper;
+
+    @Before
+    public void setUp() {
+        when(clusterService.state()).thenReturn(state);
+        when(state.nodes()).thenReturn(nodes);
+        sweeper = new ACLExpirySweeper(Settings.EMPTY, mock(ThreadPool.class), clusterService, aclDocumentManager);
+    }
+
+    @Test
+    public void testSweepOnElectedMaster() {
+        when(nodes.isLocalNodeElectedMaster()).thenReturn(true);
+
+        assertTrue(sweeper.sweep());
+        verify(aclDocumentManager).expireAcl(anyLong());
+    }
+
+    @Test
+    public void testNoSweepOnOtherNodes() {
+        when(nodes.isLocalNodeElectedMaster()).thenReturn(false);
+
+        assertFalse(sweeper.sweep());
+        verify(aclDocumentManager, never()).expireAcl(anyLong());
+    }
+
+    @Test
+    public void testNoSweepBeforeClusterStateIsKnown() {
+        when(clusterService.state()).thenReturn(null);
+
+        assertFalse(sweeper.sweep());
+        verify(aclDocumentManager, never()).expireAcl(anyLong());
+    }
+}
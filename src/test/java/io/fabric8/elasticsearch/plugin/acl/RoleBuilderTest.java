@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles;
+
+public class RoleBuilderTest {
+
+    private Roles givenRole(String name, String index) {
+        return new RoleBuilder(name)
+                .setClusters(RolesSyncStrategy.USER_ROLE_CLUSTER_ACTIONS)
+                .setActions(new String(index), RolesSyncStrategy.ALL, RolesSyncStrategy.PROJECT_ROLE_ACTIONS)
+                .expires(1234L)
+                .build();
+    }
+
+    @Test
+    public void testRolesShareIdenticalParts() {
+        Roles role1 = givenRole("gen_user_1", "foo?uid?*");
+        Roles role2 = givenRole("gen_user_2", "foo?uid?*");
+
+        assertSame(role1.getCluster(), role2.getCluster());
+        assertSame(role1.getIndices().get(0), role2.getIndices().get(0));
+        assertSame(role1.getIndices().get(0).getIndex(), role2.getIndices().get(0).getIndex());
+    }
+
+    @Test
+    public void testRolesShareActionsForDifferentIndices() {
+        Roles role1 = givenRole("gen_user_1", "foo?uid?*");
+        Roles role2 = givenRole("gen_user_2", "bar?uid?*");
+
+        assertEquals("bar?uid?*", role2.getIndices().get(0).getIndex());
+        assertSame(role1.getIndices().get(0).getTypes().get(0).getActions(), role2.getIndices().get(0).getTypes().get(0).getActions());
+    }
+
+    @Test
+    public void testAddingAClusterActionDoesNotModifyOtherRoles() {
+        Roles role1 = givenRole("gen_user_1", "foo?uid?*");
+        Roles role2 = givenRole("gen_user_2", "foo?uid?*");
+
+        role1.addClusterAction("OTHER");
+
+        assertEquals(Arrays.asList("USER_CLUSTER_OPERATIONS", "OTHER"), role1.getCluster());
+        assertEquals(Arrays.asList("USER_CLUSTER_OPERATIONS"), role2.getCluster());
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles;
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles.Indices;
+import io.fabric8.elasticsearch.plugin.model.Project;
+
+public class RoleTemplateCacheTest {
+
+    private RoleTemplateCache cache = new RoleTemplateCache("project", 100);
+
+    private Set<Project> givenProjects(String... names) {
+        Set<Project> projects = new HashSet<>();
+        for (String name : names) {
+            projects.add(new Project(name, "uid"));
+        }
+        return projects;
+    }
+
+    @Test
+    public void testIndexPatternsOfAProject() {
+        assertEquals(Arrays.asList("foo?bar?uid?*", "project?foo?bar?uid?*"), cache.indexPatterns(new Project("foo.bar", "uid")));
+        assertEquals(Arrays.asList("foo?uid?*"), new RoleTemplateCache("", 100).indexPatterns(new Project("foo", "uid")));
+    }
+
+    @Test
+    public void testUserRoleIsReusedWhileProjectsAreUnchanged() {
+        Roles first = cache.userRole("user1", givenProjects("foo", "bar"), 10);
+        Roles second = cache.userRole("user1", givenProjects("bar", "foo"), 20);
+
+        assertNotSame(first, second);
+        assertSame("Exp. the permissions to be shared", first.getIndices(), second.getIndices());
+        assertEquals(10, first.getExpiresInMillis());
+        assertEquals(20, second.getExpiresInMillis());
+        assertEquals(BaseRolesSyncStrategy.formatUserRoleName("user1"), second.getName());
+        assertEquals(4, second.getIndices().size());
+    }
+
+    @Test
+    public void testUserRoleIsRebuiltWhenProjectsChange() {
+        Roles first = cache.userRole("user1", givenProjects("foo", "bar"), 10);
+        Roles second = cache.userRole("user1", givenProjects("foo"), 10);
+
+        assertNotSame(first.getIndices(), second.getIndices());
+        assertEquals(2, second.getIndices().size());
+    }
+
+    @Test
+    public void testModifyingACopyDoesNotModifyTheTemplate() {
+        Roles first = cache.projectRole(new Project("foo", "uid"), 10);
+        first.addIndexAction("other", "*", "INDEX_PROJECT");
+        Roles second = cache.projectRole(new Project("foo", "uid"), 10);
+
+        assertEquals(3, first.getIndices().size());
+        assertEquals(2, second.getIndices().size());
+        for (Indices indices : second.getIndices()) {
+            assertTrue("Exp. only the patterns of the project", indices.getIndex().endsWith("foo?uid?*"));
+        }
+    }
+}
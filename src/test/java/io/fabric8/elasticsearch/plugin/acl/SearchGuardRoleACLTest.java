@@ -23,6 +23,8 @@ import static org.junit.Assert.assertEquals;
 import java.io.StringReader;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -138,6 +140,43 @@ public class SearchGuardRoleACLTest {
         assertEquals("Exp serialization to equal derialization", out,  XContentHelper.toString(inRoles));
     }
 
+    @Test
+    public void testIndicesAreKeptSortedByIndex() throws Exception {
+        Roles role = new RolesBuilder().newRoleBuilder("foo")
+            .addIndexAction("c", "*", "read")
+            .addIndexAction("a", "*", "read")
+            .addIndexAction("b", "*", "read")
+            .addIndexAction("a", "*", "write")
+            .build();
+
+        List<String> indices = role.getIndices().stream().map(i -> i.getIndex()).collect(Collectors.toList());
+        assertEquals(Arrays.asList("a", "a", "b", "c"), indices);
+        assertEquals(Arrays.asList("read"), role.getIndices().get(0).getTypes().get(0).getActions());
+        assertEquals(Arrays.asList("write"), role.getIndices().get(1).getTypes().get(0).getActions());
+    }
+
+    @Test
+    public void testRemoveExpired() throws Exception {
+        roles.addAll(Arrays.asList(
+                new RoleBuilder("expired").expires(10L).build(),
+                new RoleBuilder("refreshed").expires(10L).build(),
+                new RoleBuilder("current").expires(20L).build(),
+                new RoleBuilder("static").build()));
+        roles.addAll(Arrays.asList(new RoleBuilder("refreshed").expires(30L).build()));
+
+        List<Roles> removed = roles.removeExpired(20L);
+
+        assertEquals(1, removed.size());
+        assertEquals("expired", removed.get(0).getName());
+        assertEquals(0, roles.removeExpired(20L).size());
+        assertEquals("current", roles.removeExpired(21L).get(0).getName());
+        Set<String> remaining = new HashSet<>();
+        for (Roles role : roles) {
+            remaining.add(role.getName());
+        }
+        assertEquals(new HashSet<>(Arrays.asList("refreshed", "static")), remaining);
+    }
+
     @Test
     public void testRemove() throws Exception {
         SearchGuardRoles roles = new SearchGuardRoles()
@@ -136,6 +136,21 @@ public class SearchGuardRolesMappingACLTest {
         assertEquals("Exp serialization to equal derialization", out, XContentHelper.toString(inMapping));
     }
 
+    @Test
+    public void testRemoveExpired() throws Exception {
+        rolesMapping.addAll(new RolesMappingBuilder().addUser("expired", "user1").expire(10L).build());
+        rolesMapping.addAll(new RolesMappingBuilder().addUser("current", "user2").expire(20L).build());
+        rolesMapping.addAll(new RolesMappingBuilder().addUser("static", "user3").build());
+
+        List<RolesMapping> removed = rolesMapping.removeExpired(20L);
+
+        assertEquals(1, removed.size());
+        assertEquals("expired", removed.get(0).getName());
+        assertEquals(0, rolesMapping.removeExpired(20L).size());
+        assertEquals(1, rolesMapping.removeExpired(21L).size());
+        assertEquals("static", rolesMapping.iterator().next().getName());
+    }
+
     @Test
     public void testRemove() throws Exception {
         SearchGuardRolesMapping mappings = new SearchGuardRolesMapping()
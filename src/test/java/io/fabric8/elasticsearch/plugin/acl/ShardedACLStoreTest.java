@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRoles.Roles;
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRolesMapping.RolesMapping;
+
+public class ShardedACLStoreTest {
+
+    private SearchGuardRoles roles = new SearchGuardRoles();
+    private SearchGuardRolesMapping mappings = new SearchGuardRolesMapping();
+
+    @Test
+    public void testOnlyGeneratedRolesAreTakenFromAShard() {
+        Map<String, Object> acl = new HashMap<>();
+        acl.put("sg_role_admin", Collections.singletonMap("cluster", Arrays.asList("*")));
+        acl.put("gen_user_foo", Collections.singletonMap("cluster", Arrays.asList("indices:data/read/scroll*")));
+
+        ShardedACLStore.addGenerated(ShardedACLStore.ROLE_SHARD_TYPE, acl, roles, mappings);
+
+        List<String> names = new ArrayList<>();
+        for (Roles role : roles) {
+            names.add(role.getName());
+        }
+        assertEquals(Arrays.asList("gen_user_foo"), names);
+        assertFalse(mappings.iterator().hasNext());
+    }
+
+    @Test
+    public void testOnlyGeneratedRoleMappingsAreTakenFromAShard() {
+        Map<String, Object> acl = new HashMap<>();
+        acl.put("sg_role_admin", Collections.singletonMap("users", Arrays.asList("mallory")));
+        acl.put("gen_project_foo", Collections.singletonMap("users", Arrays.asList("mallory")));
+
+        ShardedACLStore.addGenerated(ShardedACLStore.MAPPING_SHARD_TYPE, acl, roles, mappings);
+
+        List<String> names = new ArrayList<>();
+        for (RolesMapping mapping : mappings) {
+            names.add(mapping.getName());
+        }
+        assertEquals(Arrays.asList("gen_project_foo"), names);
+        assertFalse(roles.iterator().hasNext());
+    }
+}
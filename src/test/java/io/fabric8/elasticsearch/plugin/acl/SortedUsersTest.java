@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.fabric8.elasticsearch.plugin.acl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import io.fabric8.elasticsearch.plugin.acl.SearchGuardRolesMapping.RolesMapping;
+
+public class SortedUsersTest {
+
+    @Test
+    public void testUsersAreSortedAndDistinct() {
+        assertArrayEquals(new String[] {"a", "b", "c"}, SortedUsers.of(Arrays.asList("c", "a", "b", "a", "c")));
+        assertSame(SortedUsers.EMPTY, SortedUsers.of(Collections.emptyList()));
+        assertSame(SortedUsers.EMPTY, SortedUsers.of(null));
+    }
+
+    @Test
+    public void testMerge() {
+        String[] users = SortedUsers.of(Arrays.asList("b", "d"));
+        assertArrayEquals(new String[] {"a", "b", "c", "d", "e"}, SortedUsers.merge(users, SortedUsers.of(Arrays.asList("e", "c", "a", "b"))));
+        assertArrayEquals(new String[] {"b", "d"}, SortedUsers.merge(SortedUsers.EMPTY, users));
+    }
+
+    @Test
+    public void testMergeOfKnownUsersKeepsTheArray() {
+        String[] users = SortedUsers.of(Arrays.asList("a", "b", "c"));
+        assertSame(users, SortedUsers.merge(users, SortedUsers.of(Arrays.asList("b"))));
+        assertSame(users, SortedUsers.merge(users, SortedUsers.EMPTY));
+    }
+
+    @Test
+    public void testMergingMappingsKeepsUsersSorted() {
+        SearchGuardRolesMapping mappings = new SearchGuardRolesMapping();
+        mappings.addAll(new RolesMappingBuilder().addUser("gen_project_foo", "user3").addUser("gen_project_foo", "user1").build());
+        mappings.addAll(new RolesMappingBuilder().addUser("gen_project_foo", "user2").build());
+
+        RolesMapping mapping = mappings.iterator().next();
+        assertEquals(Arrays.asList("user1", "user2", "user3"), mapping.getUsers());
+    }
+}
@@ -162,6 +162,43 @@ public class FileAuthenticationBackendTest {
         assertTrue("Exp. true when user does exist in the file", auth.exists(user));
     }
 
+    @Test
+    public void testChangesToTheFileAreReloaded() throws Exception {
+        //givenFilePath
+        //givenAuthenticationBackend
+        FileUtils.writeStringToFile(tmp, Samples.PASSWORDS.getContent() + "\nnewuser:\n  passwd: bmV3cGFzc3dk\n"); //newpasswd
+        final long deadline = System.currentTimeMillis() + 30000;
+        while (!auth.exists(new User("newuser")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        user = whenAuthenticating("newuser", "newpasswd");
+        assertEquals("newuser", user.getName());
+    }
+
+    @Test
+    public void testStopWatchingStopsTheWatcherUntilAFileIsLoadedAgain() throws Exception {
+        //givenFilePath
+        //givenAuthenticationBackend
+        FileAuthenticationBackend.stopWatching();
+        final long deadline = System.currentTimeMillis() + 30000;
+        while (isWatcherRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertFalse("Exp. the watcher thread to stop", isWatcherRunning());
+
+        givenAuthenticationBackend();
+        assertTrue("Exp. loading a file to watch it again", isWatcherRunning());
+    }
+
+    private static boolean isWatcherRunning() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if ("openshift-auth-file-watcher".equals(thread.getName()) && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Test
     public void testExistsWhenUserDoesNotExists() {
         user = new User("someuser");
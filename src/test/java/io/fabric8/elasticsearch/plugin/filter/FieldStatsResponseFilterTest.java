@@ -25,19 +25,26 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.action.fieldstats.FieldStatsRequest;
 import org.elasticsearch.action.support.ActionFilterChain;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.tasks.Task;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
-import io.fabric8.elasticsearch.plugin.PluginClient;
-
 @SuppressWarnings("rawtypes")
 public class FieldStatsResponseFilterTest {
 
@@ -49,11 +56,22 @@ public class FieldStatsResponseFilterTest {
     private ActionListener listener = mock(ActionListener.class);
     private Task task = mock(Task.class);
     private RuntimeException exception = mock(RuntimeException.class);
-    private PluginClient client = mock(PluginClient.class);
+    private ClusterService clusterService = mock(ClusterService.class);
     
     @Before
     public void setUp() throws Exception {
-        filter = new FieldStatsResponseFilter(client);
+        filter = new FieldStatsResponseFilter(clusterService, Settings.EMPTY);
+    }
+
+    private void givenTheClusterHasIndices(String... indices) {
+        MetaData.Builder metaData = MetaData.builder();
+        for (String index : indices) {
+            metaData.put(IndexMetaData.builder(index)
+                    .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+                    .numberOfShards(1)
+                    .numberOfReplicas(0));
+        }
+        when(clusterService.state()).thenReturn(ClusterState.builder(new ClusterName("test")).metaData(metaData).build());
     }
 
     @Test
@@ -85,13 +103,15 @@ public class FieldStatsResponseFilterTest {
         //given the chain will be called and wrappers the listener
         givenAnExeptionOccurs();
         FieldStatsRequest request = givenAFieldStatsRequest();
-        when(client.indexExists(anyString())).thenReturn(false);
+        givenTheClusterHasIndices("project.bar.uuid.2018.01.01");
         
         //when
         filter.apply(task, action, request, listener, chain );
         
         //then the original listener should be notified with the modified exception
-        verify(listener).onFailure(any(ElasticsearchException.class));
+        ArgumentCaptor<ElasticsearchException> captor = ArgumentCaptor.forClass(ElasticsearchException.class);
+        verify(listener).onFailure(captor.capture());
+        assertEquals(RestStatus.NOT_FOUND, captor.getValue().status());
     }
 
     @Test
@@ -99,13 +119,13 @@ public class FieldStatsResponseFilterTest {
         //given the chain will be called and wrappers the listener
         givenAnExeptionOccurs();
         FieldStatsRequest request = givenAFieldStatsRequest();
-        when(client.indexExists(anyString())).thenReturn(true);
+        givenTheClusterHasIndices("project.foo.uuid.2018.01.01");
         
         //when
         filter.apply(task, action, request, listener, chain );
         
-        //then the original listener should be notified with the modified exception
-        verify(listener).onFailure(any(ElasticsearchException.class));
+        //then the original listener should be notified with the original exception
+        verify(listener).onFailure(exception);
     }
     
     @Test
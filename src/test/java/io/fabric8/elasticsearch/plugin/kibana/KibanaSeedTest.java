@@ -16,9 +16,13 @@
 
 package io.fabric8.elasticsearch.plugin.kibana;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
@@ -26,17 +30,33 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.concurrent.ExecutionException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
+import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsAction;
+import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequestBuilder;
+import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse;
+import org.elasticsearch.action.get.GetAction;
+import org.elasticsearch.action.get.GetRequestBuilder;
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.search.SearchAction;
+import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.client.AdminClient;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.IndicesAdminClient;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.index.get.GetResult;
 import org.junit.After;
 import org.junit.Before;
@@ -44,6 +64,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Matchers;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.floragunn.searchguard.support.ConfigConstants;
 
 import io.fabric8.elasticsearch.plugin.ConfigurationSettings;
 import io.fabric8.elasticsearch.plugin.KibanaIndexMode;
@@ -58,6 +81,7 @@ public class KibanaSeedTest {
 
     private static final String USER = "auser";
     private static final String TOKEN = "token";
+    private static final String CALLER = "caller";
     
     private KibanaSeed seeder;
     private PluginClient pluginClient = mock(PluginClient.class);
@@ -72,13 +96,19 @@ public class KibanaSeedTest {
         context = new OpenshiftRequestContextFactory.OpenshiftRequestContext(USER, TOKEN, true, 
                 new HashSet<Project>(), ".kibana_123", KibanaIndexMode.SHARED_OPS, Collections.emptyList());
         when(loader.getOperationsMappingsTemplate()).thenReturn("{\"foo\":\"bar\"");
-        when(pluginClient.updateDocument(anyString(), anyString(), anyString(), anyString())).thenReturn(mock(UpdateResponse.class));
+        when(pluginClient.updateDocumentAsync(anyString(), anyString(), anyString(), anyString()))
+            .thenReturn(CompletableFuture.completedFuture(mock(UpdateResponse.class)));
+        when(pluginClient.createDocumentAsync(anyString(), anyString(), anyString(), anyString()))
+            .thenReturn(CompletableFuture.completedFuture(null));
+        when(pluginClient.refreshIndicesAsync(Matchers.<String>anyVararg())).thenReturn(CompletableFuture.completedFuture(null));
+        when(pluginClient.indexExistsAsync(anyString())).thenReturn(CompletableFuture.completedFuture(false));
+        when(pluginClient.documentExistsAsync(anyString(), anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(false));
    
         GetResponse response = new GetResponse(new GetResult(context.getKibanaIndex(), 
                 "config", ConfigurationSettings.DEFAULT_KIBANA_VERSION, 1L, false, 
                 new BytesArray("{\"defaultIndex\":\"\"}"), null));
-        when(pluginClient.getDocument(eq(context.getKibanaIndex()), eq("config"),
-                eq(ConfigurationSettings.DEFAULT_KIBANA_VERSION))).thenReturn(response);
+        when(pluginClient.getDocumentAsync(eq(context.getKibanaIndex()), eq("config"),
+                eq(ConfigurationSettings.DEFAULT_KIBANA_VERSION))).thenReturn(CompletableFuture.completedFuture(response));
     }
     
     @After
@@ -90,30 +120,32 @@ public class KibanaSeedTest {
         GetResponse response = new GetResponse(new GetResult(context.getKibanaIndex(), 
                 "config", ConfigurationSettings.DEFAULT_KIBANA_VERSION, 1L, true, 
                 new BytesArray("{\"defaultIndex\":\"" + index + "\"}"), null));
-        when(pluginClient.getDocument(eq(context.getKibanaIndex()), eq("config"),
-                eq(ConfigurationSettings.DEFAULT_KIBANA_VERSION))).thenReturn(response);
+        when(pluginClient.getDocumentAsync(eq(context.getKibanaIndex()), eq("config"),
+                eq(ConfigurationSettings.DEFAULT_KIBANA_VERSION))).thenReturn(CompletableFuture.completedFuture(response));
     }
     
     private void givenDefaultKibanaIndexExist(boolean exists) {
-        when(pluginClient.indexExists(eq(ConfigurationSettings.DEFAULT_USER_PROFILE_PREFIX))).thenReturn(exists);
+        when(pluginClient.indexExistsAsync(eq(ConfigurationSettings.DEFAULT_USER_PROFILE_PREFIX))).thenReturn(CompletableFuture.completedFuture(exists));
         KibanaUtilsTest.givenSearchResultForDocuments(pluginClient, ConfigurationSettings.DEFAULT_USER_PROFILE_PREFIX, new HashMap<>());
     }
 
     private void givenKibanaIndexExist(boolean exists) {
-        when(pluginClient.indexExists(eq(context.getKibanaIndex()))).thenReturn(exists);
+        when(pluginClient.indexExistsAsync(eq(context.getKibanaIndex()))).thenReturn(CompletableFuture.completedFuture(exists));
     }
     
     private void givenDocumentExistFor(String index, String type, String id, boolean exists) {
-        when(pluginClient.documentExists(eq(index), eq(type), eq(id))).thenReturn(exists);
+        when(pluginClient.documentExistsAsync(eq(index), eq(type), eq(id))).thenReturn(CompletableFuture.completedFuture(exists));
     }
     
-    private void givenCopyKibanaIndexIsSuccessful() throws InterruptedException, ExecutionException, IOException {
+    private void givenCopyKibanaIndexIsSuccessful() {
         CreateIndexResponse response = mock(CreateIndexResponse.class);
-        when(pluginClient.copyIndex(anyString(), anyString(), any(Settings.class), Matchers.<String>anyVararg())).thenReturn(response);
+        when(pluginClient.copyIndexAsync(anyString(), anyString(), any(Settings.class), Matchers.<String>anyVararg()))
+            .thenReturn(CompletableFuture.completedFuture(response));
     }
     
-    private void whenSettingTheDashboards() {
-        seeder.setDashboards(context, ConfigurationSettings.DEFAULT_KIBANA_VERSION, ConfigurationSettings.OPENSHIFT_DEFAULT_PROJECT_INDEX_PREFIX);
+    private void whenSettingTheDashboards() throws Exception {
+        seeder.setDashboards(context, ConfigurationSettings.DEFAULT_KIBANA_VERSION, ConfigurationSettings.OPENSHIFT_DEFAULT_PROJECT_INDEX_PREFIX)
+            .get(10, TimeUnit.SECONDS);
     }
     
     /*
@@ -131,10 +163,10 @@ public class KibanaSeedTest {
         
         //thenOperationsIndexPatternsShouldBeCreated();
         for (String pattern : ConfigurationSettings.DEFAULT_KIBANA_OPS_INDEX_PATTERNS) {
-            verify(pluginClient, never()).createDocument(eq(context.getKibanaIndex()), eq("index-pattern"), eq(pattern), anyString());
+            verify(pluginClient, never()).createDocumentAsync(eq(context.getKibanaIndex()), eq("index-pattern"), eq(pattern), anyString());
         }
         // thenKibanaIndexShouldBeRefreshed
-        verify(pluginClient, never()).refreshIndices(eq(context.getKibanaIndex()));
+        verify(pluginClient, never()).refreshIndicesAsync(eq(context.getKibanaIndex()));
     }
     
     @Test
@@ -153,15 +185,15 @@ public class KibanaSeedTest {
         
         //thenOperationsIndexPatternsShouldBeCreated();
         for (String pattern : ConfigurationSettings.DEFAULT_KIBANA_OPS_INDEX_PATTERNS) {
-            verify(pluginClient, times(1)).createDocument(eq(context.getKibanaIndex()), eq("index-pattern"), eq(pattern), anyString());
+            verify(pluginClient, times(1)).createDocumentAsync(eq(context.getKibanaIndex()), eq("index-pattern"), eq(pattern), anyString());
         }
         
         // then config doc should be updated with default
-        verify(pluginClient, times(1)).updateDocument(eq(context.getKibanaIndex()), eq("config"), 
+        verify(pluginClient, times(1)).updateDocumentAsync(eq(context.getKibanaIndex()), eq("config"), 
                 eq(ConfigurationSettings.DEFAULT_KIBANA_VERSION), anyString());
         
         // thenKibanaIndexShouldBeRefreshed
-        verify(pluginClient, times(1)).refreshIndices(eq(context.getKibanaIndex()));
+        verify(pluginClient, times(1)).refreshIndicesAsync(eq(context.getKibanaIndex()));
     }
 
     // Should be a no-op since everything exists
@@ -181,14 +213,14 @@ public class KibanaSeedTest {
         
         //thenOperationsIndexPatternsShouldBeCreated();
         for (String pattern : ConfigurationSettings.DEFAULT_KIBANA_OPS_INDEX_PATTERNS) {
-            verify(pluginClient, never()).createDocument(eq(context.getKibanaIndex()), eq("index-pattern"), eq(pattern), anyString());
+            verify(pluginClient, never()).createDocumentAsync(eq(context.getKibanaIndex()), eq("index-pattern"), eq(pattern), anyString());
         }
 
         // then config doc should be updated with default
-        verify(pluginClient, never()).updateDocument(eq(context.getKibanaIndex()), eq("config"), eq(ConfigurationSettings.DEFAULT_KIBANA_VERSION), anyString());
+        verify(pluginClient, never()).updateDocumentAsync(eq(context.getKibanaIndex()), eq("config"), eq(ConfigurationSettings.DEFAULT_KIBANA_VERSION), anyString());
         
         // thenKibanaIndexShouldBeRefreshed
-        verify(pluginClient, never()).refreshIndices(eq(context.getKibanaIndex()));
+        verify(pluginClient, never()).refreshIndicesAsync(eq(context.getKibanaIndex()));
     }
     
     @Test
@@ -209,14 +241,75 @@ public class KibanaSeedTest {
         
         //thenOperationsIndexPatternsShouldBeCreated();
         for (String pattern : ConfigurationSettings.DEFAULT_KIBANA_OPS_INDEX_PATTERNS) {
-            verify(pluginClient, never()).createDocument(eq(context.getKibanaIndex()), eq("index-pattern"), eq(pattern), anyString());
+            verify(pluginClient, never()).createDocumentAsync(eq(context.getKibanaIndex()), eq("index-pattern"), eq(pattern), anyString());
         }
         
         // then config doc should be updated with default
-        verify(pluginClient, times(1)).updateDocument(eq(context.getKibanaIndex()), eq("config"), 
+        verify(pluginClient, times(1)).updateDocumentAsync(eq(context.getKibanaIndex()), eq("config"), 
                 eq(ConfigurationSettings.DEFAULT_KIBANA_VERSION), anyString());
         
         // thenKibanaIndexShouldBeRefreshed
-        verify(pluginClient, times(1)).refreshIndices(eq(context.getKibanaIndex()));
+        verify(pluginClient, times(1)).refreshIndicesAsync(eq(context.getKibanaIndex()));
+    }
+
+    /*
+     * Every request of the seed is sent from a stashed context with the
+     * common headers while the stages between them, which run on the threads
+     * completing the requests, see the context of the caller
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testChainedRequestsAreSentFromAStashedContextAndCompletedInTheCallersContext() throws Exception {
+        final ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        final Client client = mock(Client.class);
+        final AdminClient admin = mock(AdminClient.class);
+        final IndicesAdminClient indices = mock(IndicesAdminClient.class);
+        when(client.admin()).thenReturn(admin);
+        when(admin.indices()).thenReturn(indices);
+        when(indices.prepareExists(Matchers.<String>anyVararg()))
+            .thenAnswer(invocation -> new IndicesExistsRequestBuilder(indices, IndicesExistsAction.INSTANCE));
+        when(client.prepareGet(anyString(), anyString(), anyString())).thenAnswer(invocation -> new GetRequestBuilder(client, GetAction.INSTANCE));
+        when(client.prepareSearch(Matchers.<String>anyVararg())).thenAnswer(invocation -> new SearchRequestBuilder(client, SearchAction.INSTANCE));
+
+        final GetResponse document = new GetResponse(new GetResult(context.getKibanaIndex(), 
+                "config", ConfigurationSettings.DEFAULT_KIBANA_VERSION, 1L, true, 
+                new BytesArray("{\"defaultIndex\":\"foo\"}"), null));
+        final List<Object> callers = Collections.synchronizedList(new ArrayList<>());
+        final List<Object> channelTypes = Collections.synchronizedList(new ArrayList<>());
+        final Answer<Void> respondOnAnotherThread = invocation -> {
+            callers.add(threadContext.getTransient(CALLER));
+            channelTypes.add(threadContext.getTransient(ConfigConstants.SG_CHANNEL_TYPE));
+            final Object action = invocation.getArguments()[0];
+            final Object response;
+            if (action == IndicesExistsAction.INSTANCE) {
+                response = new IndicesExistsResponse(true);
+            } else if (action == SearchAction.INSTANCE) {
+                response = KibanaUtilsTest.searchResponseFor(new HashMap<>());
+            } else {
+                response = document;
+            }
+            final ActionListener<Object> listener = (ActionListener<Object>) invocation.getArguments()[2];
+            new Thread(() -> listener.onResponse(response)).start();
+            return null;
+        };
+        doAnswer(respondOnAnotherThread).when(client).execute(any(Action.class), any(ActionRequest.class), any(ActionListener.class));
+        doAnswer(respondOnAnotherThread).when(indices).execute(any(Action.class), any(ActionRequest.class), any(ActionListener.class));
+
+        final PluginClient realClient = new PluginClient(client, threadContext);
+        final KibanaSeed realSeeder = new KibanaSeed(settings, loader, realClient, new KibanaUtils(settings, realClient));
+        threadContext.putTransient(CALLER, Boolean.TRUE);
+
+        final Object[] completion = realSeeder
+            .setDashboards(context, ConfigurationSettings.DEFAULT_KIBANA_VERSION, ConfigurationSettings.OPENSHIFT_DEFAULT_PROJECT_INDEX_PREFIX)
+            .thenApply(ignored -> new Object[] {threadContext.getTransient(CALLER), threadContext.getTransient(ConfigConstants.SG_CHANNEL_TYPE)})
+            .get(10, TimeUnit.SECONDS);
+
+        assertEquals("Exp. the caller's context to be restored on the completing thread", Boolean.TRUE, completion[0]);
+        assertNull("Exp. the common headers to be removed on the completing thread", completion[1]);
+        assertTrue("Exp. requests to be chained on the responses of others", channelTypes.size() > 2);
+        for (int i = 0; i < channelTypes.size(); i++) {
+            assertNull("Exp. each request to be sent from a stashed context", callers.get(i));
+            assertEquals("Exp. each request to be sent with the common headers", "direct", channelTypes.get(i));
+        }
     }
 }
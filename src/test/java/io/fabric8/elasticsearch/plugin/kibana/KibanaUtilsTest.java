@@ -29,6 +29,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchResponseSections;
@@ -68,9 +69,7 @@ public class KibanaUtilsTest {
         SearchResponseSections sections = new SearchResponseSections(searchHits, null, null, false, Boolean.FALSE, null,
                 0);
         ShardSearchFailure[] failures = null;
-        SearchResponse response = new SearchResponse(sections, "", 0, 0, 0, 0L, failures);
-
-        when(client.search(anyString(), anyString(),anyInt(), anyBoolean())).thenReturn(response);
+        return new SearchResponse(sections, "", 0, 0, 0, 0L, failures);
     }
 
     private void givenSearchResultForDocuments(String indexPattern, Map<String, BytesReference> docs) {
@@ -78,6 +77,12 @@ public class KibanaUtilsTest {
     }
 
     public static void givenSearchResultForDocuments(PluginClient client, String indexPattern, Map<String, BytesReference> docs) {
+        SearchResponse response = searchResponseFor(docs);
+        when(client.search(anyString(), anyString(),anyInt(), anyBoolean())).thenReturn(response);
+        when(client.searchAsync(anyString(), anyString(),anyInt(), anyBoolean())).thenReturn(CompletableFuture.completedFuture(response));
+    }
+
+    public static SearchResponse searchResponseFor(Map<String, BytesReference> docs) {
         List<SearchHit> hits = new ArrayList<>(docs.size());
         for (Map.Entry<String, BytesReference> entry : docs.entrySet()) {
             SearchHit hit = new SearchHit(1, entry.getKey(), null, null);
@@ -88,9 +93,7 @@ public class KibanaUtilsTest {
         SearchResponseSections sections = new SearchResponseSections(searchHits, null, null, false, Boolean.FALSE, null,
                 0);
         ShardSearchFailure[] failures = null;
-        SearchResponse response = new SearchResponse(sections, "", 0, 0, 0, 0L, failures);
-
-        when(client.search(anyString(), anyString(),anyInt(), anyBoolean())).thenReturn(response);
+        return new SearchResponse(sections, "", 0, 0, 0, 0L, failures);
     }
 
     @SuppressWarnings("unchecked")
@@ -174,6 +177,18 @@ public class KibanaUtilsTest {
         assertEquals("test-index-pattern", defaultPattern);
     }
 
+    @Test
+    public void testGetDefaultIndexPatternAsyncWhenIndexDoesNotExist() throws Exception {
+        // given current index doesnt exist
+        CompletableFuture<SearchResponse> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IndexNotFoundException(".kibana.foo"));
+        when(client.searchAsync(anyString(), anyString(),anyInt(), anyBoolean())).thenReturn(failed);
+        // when getting defaults
+        String defaultPattern = utils.getDefaultIndexPatternAsync(".kibana.foo", "test-index-pattern").get();
+        // assert its the default
+        assertEquals("test-index-pattern", defaultPattern);
+    }
+
     @Test
     public void testFormatIndexPatternForAllAlias() {
         assertEquals(".all", utils.formatIndexPattern(new Project(".all", null)));
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ProjectSetTest {
+
+    @Test
+    public void testEqualsTheSetItWasBuiltFrom() {
+        Set<Project> projects = new HashSet<>(Arrays.asList(new Project("foo", "1"), new Project("bar", "2"), new Project("foo", "3")));
+        ProjectSet set = ProjectSet.of(projects);
+
+        assertEquals(projects, set);
+        assertEquals(set, projects);
+        assertEquals(projects.hashCode(), set.hashCode());
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    public void testContainsProjectsByNameAndUid() {
+        ProjectSet set = ProjectSet.of(Arrays.asList(new Project("foo", "1"), new Project("bar", null)));
+
+        assertTrue(set.contains(new Project("foo", "1")));
+        assertTrue(set.contains(new Project("bar", null)));
+        assertFalse(set.contains(new Project("foo", "2")));
+        assertFalse(set.contains(new Project("baz", "1")));
+        assertFalse(set.contains("foo"));
+    }
+
+    @Test
+    public void testDuplicatesAreRemoved() {
+        ProjectSet set = ProjectSet.of(Arrays.asList(new Project("foo", "1"), new Project("foo", "1")));
+
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void testProjectsAreSharedBetweenSets() {
+        ProjectSet first = ProjectSet.of(Collections.singleton(new Project("foo", "1")));
+        ProjectSet second = ProjectSet.of(Collections.singleton(new Project("foo", "1")));
+
+        assertSame(first.iterator().next(), second.iterator().next());
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void testEmptyCollectionsAreTheEmptySet() {
+        assertSame(ProjectSet.EMPTY, ProjectSet.of(Collections.emptySet()));
+        assertSame(ProjectSet.EMPTY, ProjectSet.of(ProjectSet.EMPTY));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIsImmutable() {
+        ProjectSet.of(Collections.singleton(new Project("foo", "1"))).add(new Project("bar", "2"));
+    }
+}
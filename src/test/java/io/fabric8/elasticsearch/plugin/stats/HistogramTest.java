@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+    private Histogram histogram = new Histogram();
+
+    @Test
+    public void testBucketsCoverTheirValues() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue("Exp. the bucket of " + value + " to include it", Histogram.highestValueOf(bucket) >= value);
+            if (bucket > 0) {
+                assertTrue("Exp. the previous bucket of " + value + " to exclude it", Histogram.highestValueOf(bucket - 1) < value);
+            }
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.highestValueOf(Histogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        assertEquals(0L, histogram.getPercentile(99.0));
+        Map<String, Object> map = histogram.toMap();
+        assertEquals(0L, map.get("count"));
+        assertEquals(0.0, map.get("mean"));
+    }
+
+    @Test
+    public void testPercentilesAreWithinTheBucketError() {
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getSum());
+        assertEquals(1000, histogram.getMax());
+        assertWithinError(500, histogram.getPercentile(50.0));
+        assertWithinError(990, histogram.getPercentile(99.0));
+        assertEquals(1000, histogram.getPercentile(100.0));
+    }
+
+    @Test
+    public void testNegativeValuesAreRecordedAsZero() {
+        histogram.record(-5);
+        assertEquals(0L, histogram.getMax());
+        assertEquals(0L, histogram.getPercentile(50.0));
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue("Exp. " + actual + " to be within 1/16 of " + expected,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2015 Red Hat, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.fabric8.elasticsearch.plugin.stats;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+import io.fabric8.elasticsearch.plugin.stats.PluginStats.ApiEndpoint;
+
+public class PluginStatsTest {
+
+    private PluginStats stats = new PluginStats();
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testToMapIncludesRecordedAndRegisteredStats() {
+        stats.onApiCall(ApiEndpoint.PROJECTS, System.nanoTime());
+        stats.onAclSync(System.nanoTime(), false);
+        stats.onAclRetry();
+        stats.onAclConfigUpdate(System.nanoTime(), 3);
+        stats.onAclConfigUpdate(System.nanoTime(), 0);
+        stats.onRequestRewrite(10);
+        stats.onRequestRewrite(5);
+        stats.register("context", () -> Collections.singletonMap("size", 3L));
+
+        Map<String, Object> map = stats.toMap();
+
+        Map<String, Object> api = (Map<String, Object>) map.get("openshift_api_latency_micros");
+        assertEquals(1L, ((Map<String, Object>) api.get("projects")).get("count"));
+        assertEquals(0L, ((Map<String, Object>) api.get("user")).get("count"));
+        Map<String, Object> acl = (Map<String, Object>) map.get("acl");
+        assertEquals(1L, acl.get("syncs"));
+        assertEquals(1L, acl.get("failures"));
+        assertEquals(1L, acl.get("retries"));
+        assertEquals(2L, acl.get("config_updates"));
+        assertEquals(1L, acl.get("config_update_failures"));
+        assertEquals(3L, acl.get("config_reloads"));
+        Map<String, Object> rewrite = (Map<String, Object>) map.get("rewrite");
+        assertEquals(2L, rewrite.get("requests"));
+        assertEquals(15L, rewrite.get("request_bytes"));
+        assertEquals(3L, ((Map<String, Object>) map.get("context")).get("size"));
+    }
+}